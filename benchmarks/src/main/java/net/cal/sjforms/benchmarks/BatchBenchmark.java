@@ -0,0 +1,77 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.BatchMode;
+import net.cal.sjforms.Form;
+import net.cal.sjforms.FormValidationException;
+import net.cal.sjforms.ParseResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares validating a large batch of records one at a time on one thread with
+ * {@link Form#parseBatch(java.util.List, BatchMode)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+  private static final int RECORDS = 100000;
+
+  @Param({"50"})
+  public int fieldCount;
+
+  private Form form;
+  private List<Map<String, String>> records;
+
+  @Setup
+  public void setup() {
+    form = Forms.wideForm(fieldCount);
+    records = new ArrayList<>(RECORDS);
+    // the same two maps over and over; only the validation work matters here
+    Map<String, String> valid = Forms.validInput(fieldCount);
+    Map<String, String> invalid = Forms.invalidInput(fieldCount);
+    for (int i = 0; i < RECORDS; ++i) {
+      records.add(i % 100 == 99 ? invalid : valid);
+    }
+  }
+
+  @Benchmark
+  public Object sequential() {
+    List<ParseResult> results = new ArrayList<>(RECORDS);
+    for (Map<String, String> record : records) {
+      try {
+        results.add(form.parseAll(record));
+      } catch (FormValidationException e) {
+        results.add(null);
+      }
+    }
+    return results;
+  }
+
+  @Benchmark
+  public Object parseBatch() {
+    return form.parseBatch(records, BatchMode.COLLECT_ALL);
+  }
+
+  @Benchmark
+  public Object parseBatchStreamed() {
+    // an Iterable that is not a Collection, so its size is unknown up front
+    Iterable<Map<String, String>> stream = new Iterable<Map<String, String>>() {
+      @Override
+      public Iterator<Map<String, String>> iterator() {
+        return records.iterator();
+      }
+    };
+    return form.parseBatch(stream, BatchMode.COLLECT_ALL);
+  }
+
+}
@@ -0,0 +1,87 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.Field;
+import net.cal.sjforms.Form;
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.ParseResult;
+import net.cal.sjforms.ValidationException;
+import net.cal.sjforms.Validator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Form#tryParse(java.util.Map)} on a form and on its
+ * {@link Form#cheapFirst()} copy, for a form whose first field has an expensive custom
+ * validator and whose last field is required, with input that is either valid or
+ * missing the required field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheapFirstBenchmark {
+
+  private static final int FIELD_COUNT = 10;
+
+  /** stands in for a validator that does real work, e.g. checking a signature */
+  private static final Validator<String, String> EXPENSIVE_VALIDATOR = new Validator<String, String>() {
+    @Override
+    public String validate(String fieldName, String value) throws ValidationException {
+      if (value != null) {
+        int hash = 0;
+        for (int round = 0; round < 200; ++round) {
+          for (int i = 0; i < value.length(); ++i) {
+            hash = 31 * hash + value.charAt(i);
+          }
+        }
+        if (hash == 0) {
+          throw new ValidationException(fieldName, value, "bad signature");
+        }
+      }
+      return value;
+    }
+  };
+
+  @Param({"valid", "missingRequired"})
+  public String input;
+
+  private Form form;
+  private Form cheapFirst;
+  private Map<String, String> values;
+
+  @Setup
+  public void setup() {
+    List<Field> fields = new ArrayList<>(FIELD_COUNT);
+    values = new HashMap<>();
+    fields.add(Field.stringField("signature").withValidator(EXPENSIVE_VALIDATOR));
+    values.put("signature", "0123456789abcdef0123456789abcdef");
+    for (int i = 1; i < FIELD_COUNT - 1; ++i) {
+      fields.add(Field.intField("field" + i).atLeast(0));
+      values.put("field" + i, Integer.toString(i * 1000));
+    }
+    fields.add(Field.stringField("token").required());
+    if (input.equals("valid")) {
+      values.put("token", "abc");
+    }
+    form = new Form(fields);
+    cheapFirst = form.cheapFirst();
+  }
+
+  @Benchmark
+  public Outcome<ParseResult> declarationOrder() {
+    return form.tryParse(values);
+  }
+
+  @Benchmark
+  public Outcome<ParseResult> cheapFirst() {
+    return cheapFirst.tryParse(values);
+  }
+
+}
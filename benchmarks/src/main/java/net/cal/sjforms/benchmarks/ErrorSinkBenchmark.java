@@ -0,0 +1,65 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.ErrorSink;
+import net.cal.sjforms.Field;
+import net.cal.sjforms.Form;
+import net.cal.sjforms.FormValidationException;
+import net.cal.sjforms.ParseResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Form#parseAll(java.util.Map)} with
+ * {@link Form#parseAll(java.util.Map, ErrorSink)} (capped at 10 errors) on a 400-field
+ * form and a junk payload in which every value is malformed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorSinkBenchmark {
+
+  private static final int FIELD_COUNT = 400;
+
+  private Form form;
+  private Map<String, String> junk;
+  private ErrorSink sink;
+
+  @Setup
+  public void setup() {
+    List<Field> fields = new ArrayList<>(FIELD_COUNT);
+    junk = new HashMap<>();
+    for (int i = 0; i < FIELD_COUNT; ++i) {
+      if (i % 2 == 0) {
+        fields.add(Field.intField("field" + i).atLeast(0));
+      } else {
+        fields.add(Field.stringField("field" + i).oneOf("red", "green", "blue"));
+      }
+      junk.put("field" + i, "junk" + i);
+    }
+    form = new Form(fields);
+    sink = new ErrorSink(10);
+  }
+
+  @Benchmark
+  public Object parseAll() {
+    try {
+      return form.parseAll(junk);
+    } catch (FormValidationException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public ParseResult parseAllWithSink() {
+    return form.parseAll(junk, sink);
+  }
+
+}
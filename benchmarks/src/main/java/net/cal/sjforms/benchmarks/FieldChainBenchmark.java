@@ -0,0 +1,114 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.Field;
+import net.cal.sjforms.IntField;
+import net.cal.sjforms.ValidationException;
+import net.cal.sjforms.validators.IntValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Field#validate(String)}, the unboxed
+ * {@link IntField#validateInt(String, int)}, and generic validator chains before
+ * and after {@link Field#compile()} on chains of increasing
+ * depth, built the same way as in the examples (e.g.
+ * <code>intField(..).withDefault(..).clampMin(..).clampMax(..)</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldChainBenchmark {
+
+  /** Number of validators after the int parser. */
+  @Param({"0", "3", "6"})
+  public int depth;
+
+  /** "missing" stands for a null input. */
+  @Param({"50", "1000", "missing", "x"})
+  public String input;
+
+  private IntField field;
+  private Field<Integer> genericField;
+  private Field<Integer> compiledField;
+  private String value;
+
+  @Setup
+  public void setup() {
+    field = chain(depth);
+    genericField = genericChain(depth);
+    compiledField = genericField.compile();
+    value = "missing".equals(input) ? null : input;
+  }
+
+  static IntField chain(int depth) {
+    IntField field = Field.intField("limit");
+    if (depth >= 3) {
+      field = field.withDefault(10).clampMin(0).clampMax(100);
+    }
+    if (depth >= 6) {
+      field = field.required().atLeast(0).lessThan(1000);
+    }
+    return field;
+  }
+
+  /**
+   * The same chain as {@link #chain(int)}, but built from the generic (boxing)
+   * validators, one {@link Field#withValidator} layer per step.
+   */
+  static Field<Integer> genericChain(int depth) {
+    Field<Integer> field = Field.named("limit").withValidator(new IntValidator());
+    if (depth >= 3) {
+      field = field.withDefault(10).clampMin(0).clampMax(100);
+    }
+    if (depth >= 6) {
+      field = field.required().atLeast(0).lessThan(1000);
+    }
+    return field;
+  }
+
+  @Benchmark
+  public Object validate() {
+    try {
+      return field.validate(value);
+    } catch (ValidationException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object tryValidate() {
+    return field.tryValidate(value);
+  }
+
+  @Benchmark
+  public Object validateGeneric() {
+    try {
+      return genericField.validate(value);
+    } catch (ValidationException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object validateCompiled() {
+    try {
+      return compiledField.validate(value);
+    } catch (ValidationException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public int validateInt() {
+    try {
+      return field.validateInt(value, -1);
+    } catch (ValidationException e) {
+      return e.hashCode();
+    }
+  }
+
+}
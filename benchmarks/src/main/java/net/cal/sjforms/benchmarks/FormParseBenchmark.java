@@ -0,0 +1,99 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.Form;
+import net.cal.sjforms.FormValidationException;
+import net.cal.sjforms.ParseResult;
+import net.cal.sjforms.ValidationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Form#parse(java.util.Map)}, {@link Form#tryParse(java.util.Map)},
+ * {@link Form#parseAll(java.util.Map)} and parsing of the equivalent urlencoded input
+ * ({@link Form#parseUrlEncoded(CharSequence)}, {@link Form#parseUrlEncodedBytes(java.nio.ByteBuffer)})
+ * on forms of various widths, for both valid and invalid input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormParseBenchmark {
+
+  @Param({"5", "50", "500"})
+  public int fieldCount;
+
+  @Param({"valid", "invalid"})
+  public String input;
+
+  private Form form;
+  private Map<String, String> values;
+  private String queryString;
+  private ByteBuffer body;
+
+  @Setup
+  public void setup() throws UnsupportedEncodingException {
+    form = Forms.wideForm(fieldCount);
+    values = "valid".equals(input) ? Forms.validInput(fieldCount) : Forms.invalidInput(fieldCount);
+    StringBuilder encoded = new StringBuilder();
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      if (encoded.length() > 0) {
+        encoded.append('&');
+      }
+      encoded.append(URLEncoder.encode(entry.getKey(), "UTF-8")).append('=').append(URLEncoder.encode(entry.getValue(), "UTF-8"));
+    }
+    // a few parameters the form does not declare
+    encoded.append("&utm_source=newsletter&utm_medium=email&_=1404079612345");
+    queryString = encoded.toString();
+    body = ByteBuffer.wrap(queryString.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Benchmark
+  public Object parse() {
+    try {
+      return form.parse(values);
+    } catch (ValidationException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object parseQueryString() {
+    try {
+      return form.parseUrlEncoded(queryString);
+    } catch (ValidationException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object parseBody() {
+    try {
+      return form.parseUrlEncodedBytes(body);
+    } catch (ValidationException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object tryParse() {
+    return form.tryParse(values);
+  }
+
+  @Benchmark
+  public Object parseAll() {
+    try {
+      return form.parseAll(values);
+    } catch (FormValidationException e) {
+      return e;
+    }
+  }
+
+}
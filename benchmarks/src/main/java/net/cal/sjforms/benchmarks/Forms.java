@@ -0,0 +1,89 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.Field;
+import net.cal.sjforms.Form;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds synthetic forms and inputs for the benchmarks. Fields cycle through a
+ * handful of typical shapes (clamped ints, bounded doubles, enumerated strings,
+ * booleans and plain strings) so that wide forms look like real request forms.
+ */
+final class Forms {
+
+  private static final int SHAPES = 5;
+
+  private Forms() { }
+
+  static Form wideForm(int fieldCount) {
+    List<Field> fields = new ArrayList<>(fieldCount);
+    for (int i = 0; i < fieldCount; ++i) {
+      String name = "field" + i;
+      switch (i % SHAPES) {
+        case 0:
+          fields.add(Field.intField(name).withDefault(10).clampMin(0).clampMax(100));
+          break;
+        case 1:
+          fields.add(Field.doubleField(name).required().atLeast(0.0).atMost(1000.0));
+          break;
+        case 2:
+          fields.add(Field.stringField(name).oneOf("asc", "desc"));
+          break;
+        case 3:
+          fields.add(Field.boolField(name));
+          break;
+        default:
+          fields.add(Field.stringField(name));
+          break;
+      }
+    }
+    return new Form(fields);
+  }
+
+  /**
+   * Input for {@link #wideForm(int)} in which every field is present and valid.
+   */
+  static Map<String, String> validInput(int fieldCount) {
+    Map<String, String> values = new HashMap<>();
+    for (int i = 0; i < fieldCount; ++i) {
+      values.put("field" + i, validValue(i));
+    }
+    return values;
+  }
+
+  /**
+   * Input for {@link #wideForm(int)} with problems scattered throughout: in
+   * alternating groups of fields, either the required double is missing or the
+   * int and the enumerated string are malformed. The first field to fail is the
+   * second one.
+   */
+  static Map<String, String> invalidInput(int fieldCount) {
+    Map<String, String> values = validInput(fieldCount);
+    for (int i = 0; i < fieldCount; ++i) {
+      int shape = i % SHAPES;
+      if ((i / SHAPES) % 2 == 0 && shape == 1) {
+        values.remove("field" + i);
+      } else if ((i / SHAPES) % 2 == 1 && shape == 0) {
+        values.put("field" + i, "ten");
+      } else if ((i / SHAPES) % 2 == 1 && shape == 2) {
+        values.put("field" + i, "sideways");
+      }
+    }
+    return values;
+  }
+
+  private static String validValue(int i) {
+    switch (i % SHAPES) {
+      case 0: return Integer.toString(i % 200);
+      case 1: return Double.toString(i * 1.5);
+      case 2: return i % 2 == 0 ? "asc" : "desc";
+      case 3: return i % 2 == 0 ? "true" : "false";
+      default: return "value" + i;
+    }
+  }
+
+}
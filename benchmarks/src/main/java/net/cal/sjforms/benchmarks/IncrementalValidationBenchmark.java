@@ -0,0 +1,83 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.Field;
+import net.cal.sjforms.Form;
+import net.cal.sjforms.FormValidationException;
+import net.cal.sjforms.IntField;
+import net.cal.sjforms.ValidationDiff;
+import net.cal.sjforms.ValidationSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares revalidating a whole form with {@link Form#parseAll(java.util.Map)} after each
+ * edit with a {@link ValidationSession}, which revalidates only the edited field and the
+ * cross-field checks that read it. The form has <code>fieldCount</code> int fields in
+ * start/end pairs, with each end required to be at least its start, and each edit
+ * toggles one end between a valid and an invalid value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncrementalValidationBenchmark {
+
+  @Param({"20", "200"})
+  public int fieldCount;
+
+  private Form form;
+  private Map<String, String> input;
+  private ValidationSession session;
+  private boolean valid;
+
+  @Setup
+  public void setup() {
+    List<Field> fields = new ArrayList<>(fieldCount);
+    List<IntField> ends = new ArrayList<>();
+    List<IntField> starts = new ArrayList<>();
+    input = new HashMap<>();
+    for (int i = 0; i < fieldCount / 2; ++i) {
+      IntField start = Field.intField("start" + i).atLeast(0);
+      IntField end = Field.intField("end" + i).atLeast(0);
+      fields.add(start);
+      fields.add(end);
+      starts.add(start);
+      ends.add(end);
+      input.put("start" + i, "10");
+      input.put("end" + i, "20");
+    }
+    form = new Form(fields);
+    for (int i = 0; i < starts.size(); ++i) {
+      form = form.requireAtLeast(ends.get(i), starts.get(i));
+    }
+    session = form.newSession(input);
+  }
+
+  private String nextValue() {
+    valid = !valid;
+    return valid ? "20" : "5";
+  }
+
+  @Benchmark
+  public Object parseAllAfterEdit() {
+    input.put("end0", nextValue());
+    try {
+      return form.parseAll(input);
+    } catch (FormValidationException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public ValidationDiff sessionEdit() {
+    return session.set("end0", nextValue());
+  }
+
+}
@@ -0,0 +1,76 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.Field;
+import net.cal.sjforms.Form;
+import net.cal.sjforms.IntField;
+import net.cal.sjforms.LazyParseResult;
+import net.cal.sjforms.ParseResult;
+import net.cal.sjforms.ValidationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Form#parse(java.util.Map)} with {@link Form#parseLazy(java.util.Map)}
+ * on a fully-populated 60-field form of which the caller reads only three fields.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazyParseBenchmark {
+
+  private static final int FIELD_COUNT = 60;
+
+  private Form form;
+  private List<IntField> read;
+  private Map<String, String> values;
+
+  @Setup
+  public void setup() {
+    List<Field> fields = new ArrayList<>(FIELD_COUNT);
+    read = new ArrayList<>();
+    values = new HashMap<>();
+    for (int i = 0; i < FIELD_COUNT; ++i) {
+      if (i % 2 == 0) {
+        IntField field = Field.intField("field" + i).atLeast(0);
+        fields.add(field);
+        if (i % 20 == 0) {
+          read.add(field);
+        }
+        values.put("field" + i, Integer.toString(i * 1000));
+      } else {
+        fields.add(Field.stringField("field" + i).oneOf("red", "green", "blue"));
+        values.put("field" + i, "green");
+      }
+    }
+    form = new Form(fields);
+  }
+
+  @Benchmark
+  public long parse() throws ValidationException {
+    ParseResult result = form.parse(values);
+    long sum = 0;
+    for (IntField field : read) {
+      sum += result.getInt(field);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long parseLazy() throws ValidationException {
+    LazyParseResult result = form.parseLazy(values);
+    long sum = 0;
+    for (IntField field : read) {
+      sum += result.getParsedValue(field);
+    }
+    return sum;
+  }
+
+}
@@ -0,0 +1,68 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.Field;
+import net.cal.sjforms.Form;
+import net.cal.sjforms.ParseResult;
+import net.cal.sjforms.ValidationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing flat input with nested keys (<code>address.zip</code>,
+ * <code>items[3].qty</code>) into sub-forms, from a map and from a query string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestedFormBenchmark {
+
+  @Param({"20"})
+  public int itemCount;
+
+  private Form form;
+  private Map<String, String> values;
+  private String query;
+
+  @Setup
+  public void setup() {
+    Form address = new Form(Field.stringField("street"), Field.stringField("zip").required());
+    Form item = new Form(Field.stringField("sku").required(), Field.intField("qty").required().atLeast(1), Field.stringField("note"));
+    form = new Form(
+        Field.stringField("name"),
+        Field.subForm("address", address),
+        Field.subFormList("items", item, 100));
+    values = new HashMap<>();
+    values.put("name", "someone");
+    values.put("address.street", "1 Main St");
+    values.put("address.zip", "12345");
+    for (int i = 0; i < itemCount; ++i) {
+      values.put("items[" + i + "].sku", "sku" + i);
+      values.put("items[" + i + "].qty", Integer.toString(i + 1));
+    }
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      if (builder.length() > 0) {
+        builder.append('&');
+      }
+      builder.append(entry.getKey()).append('=').append(entry.getValue().replace(' ', '+'));
+    }
+    query = builder.toString();
+  }
+
+  @Benchmark
+  public ParseResult parseMap() throws ValidationException {
+    return form.parse(values);
+  }
+
+  @Benchmark
+  public ParseResult parseQuery() throws ValidationException {
+    return form.parseUrlEncoded(query);
+  }
+
+}
@@ -0,0 +1,53 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.validators.NumberParsing;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link NumberParsing} with the JDK parsers (which signal malformed input by
+ * throwing) on typical valid and malformed inputs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberParsingBenchmark {
+
+  @Param({"42", "-7.25", "3.141592653589793", "6.02214076e23", "12abc"})
+  public String input;
+
+  @Benchmark
+  public double parseDouble() {
+    double result = NumberParsing.parseDouble(input);
+    return result == result || NumberParsing.isNaN(input) ? result : -1;
+  }
+
+  @Benchmark
+  public double parseDoubleJdk() {
+    try {
+      return Double.parseDouble(input);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  @Benchmark
+  public long parseLong() {
+    long result = NumberParsing.parseLong(input);
+    return result != NumberParsing.FAILED || NumberParsing.isLong(input) ? result : -1;
+  }
+
+  @Benchmark
+  public long parseLongJdk() {
+    try {
+      return Long.parseLong(input);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+}
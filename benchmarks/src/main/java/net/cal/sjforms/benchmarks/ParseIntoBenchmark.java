@@ -0,0 +1,69 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.DoubleField;
+import net.cal.sjforms.Field;
+import net.cal.sjforms.Form;
+import net.cal.sjforms.IntField;
+import net.cal.sjforms.LongField;
+import net.cal.sjforms.ParseBuffer;
+import net.cal.sjforms.ParseResult;
+import net.cal.sjforms.ValidationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Form#parse(java.util.Map)} with
+ * {@link Form#parseInto(java.util.Map, ParseBuffer)} on a valid request for a form of
+ * int, long, double and string fields. Run with <code>-prof gc</code> (as
+ * <code>gradle :benchmarks:jmh</code> does) to see that <code>parseInto</code> allocates
+ * nothing per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseIntoBenchmark {
+
+  private static final IntField PAGE = Field.intField("page").atLeast(1);
+  private static final IntField LIMIT = Field.intField("limit").atLeast(1).atMost(100);
+  private static final LongField SINCE = Field.longField("since");
+  private static final DoubleField LAT = Field.doubleField("lat").atLeast(-90.0).atMost(90.0);
+  private static final DoubleField LON = Field.doubleField("lon").atLeast(-180.0).atMost(180.0);
+  private static final Field<String> QUERY = Field.stringField("q");
+  private static final Field<String> SORT = Field.stringField("sort").oneOf("asc", "desc");
+  private static final Form FORM = new Form(PAGE, LIMIT, SINCE, LAT, LON, QUERY, SORT);
+
+  private Map<String, String> values;
+  private ParseBuffer buffer;
+
+  @Setup
+  public void setup() {
+    values = new HashMap<>();
+    values.put("page", "3");
+    values.put("limit", "50");
+    values.put("since", "1404172800000");
+    values.put("lat", "47.6062");
+    values.put("lon", "-122.3321");
+    values.put("q", "coffee");
+    values.put("sort", "desc");
+    buffer = FORM.newBuffer();
+  }
+
+  @Benchmark
+  public double parse() throws ValidationException {
+    ParseResult result = FORM.parse(values);
+    return result.getInt(LIMIT) + result.getDouble(LAT);
+  }
+
+  @Benchmark
+  public double parseInto() throws ValidationException {
+    ParseResult result = FORM.parseInto(values, buffer);
+    return result.getInt(LIMIT) + result.getDouble(LAT);
+  }
+
+}
@@ -0,0 +1,57 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.validators.LinearPattern;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link java.util.regex.Pattern} with {@link LinearPattern} on an ordinary
+ * pattern and input, and on a pattern that backtracks exponentially in
+ * <code>Pattern</code> with a crafted input of 24 characters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternBenchmark {
+
+  @Param({"email", "crafted"})
+  public String kind;
+
+  private Pattern jdkPattern;
+  private LinearPattern linearPattern;
+  private String input;
+
+  @Setup
+  public void setup() {
+    String regex;
+    if (kind.equals("email")) {
+      regex = "[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[a-z]{2,}";
+      input = "someone.else@example.com";
+    } else {
+      regex = "(a|aa)+b";
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 24; ++i) {
+        builder.append('a');
+      }
+      input = builder.toString();
+    }
+    jdkPattern = Pattern.compile(regex);
+    linearPattern = LinearPattern.compile(regex);
+  }
+
+  @Benchmark
+  public boolean jdkPattern() {
+    return jdkPattern.matcher(input).matches();
+  }
+
+  @Benchmark
+  public boolean linearPattern() {
+    return linearPattern.matches(input);
+  }
+
+}
@@ -0,0 +1,65 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.Field;
+import net.cal.sjforms.Form;
+import net.cal.sjforms.ValidationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Form#parse(java.util.Map)} on wide forms of optional fields when the
+ * input only has a few parameters, as is typical for large configuration forms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SparseInputBenchmark {
+
+  @Param({"40", "400"})
+  public int fieldCount;
+
+  private Form form;
+  private Form strictForm;
+  private Map<String, String> values;
+
+  @Setup
+  public void setup() {
+    List<Field> fields = new ArrayList<>(fieldCount);
+    for (int i = 0; i < fieldCount; ++i) {
+      fields.add(i % 2 == 0 ? Field.intField("field" + i).withDefault(0) : Field.stringField("field" + i));
+    }
+    form = new Form(fields);
+    strictForm = form.strict();
+    values = new HashMap<>();
+    values.put("field0", "17");
+    values.put("field" + (fieldCount / 2 + 1), "hello");
+    values.put("field" + (fieldCount - 2), "42");
+  }
+
+  @Benchmark
+  public Object parse() {
+    try {
+      return form.parse(values);
+    } catch (ValidationException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object parseStrict() {
+    try {
+      return strictForm.parse(values);
+    } catch (ValidationException e) {
+      return e;
+    }
+  }
+
+}
@@ -0,0 +1,78 @@
+package net.cal.sjforms.benchmarks;
+
+import net.cal.sjforms.Field;
+import net.cal.sjforms.Outcome;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks the string content validators on valid free text of different lengths,
+ * against a {@link java.util.regex.Pattern} doing the same printable-ASCII check, and
+ * the length check on a value ten times longer than allowed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringContentBenchmark {
+
+  private static final Pattern PRINTABLE_ASCII = Pattern.compile("[ -~]*");
+
+  @Param({"100", "32768"})
+  public int length;
+
+  private Field<String> printableAscii;
+  private Field<String> onlyChars;
+  private Field<String> validUtf8;
+  private Field<String> maxLength;
+  private String text;
+  private String oversized;
+
+  @Setup
+  public void setup() {
+    printableAscii = Field.stringField("text").maxLength(length).printableAscii();
+    onlyChars = Field.stringField("text").maxLength(length).onlyChars("\\w .,;:!?'\\-");
+    validUtf8 = Field.stringField("text").maxLength(length).validUtf8();
+    maxLength = Field.stringField("text").maxLength(length).printableAscii();
+    String words = "The quick brown fox jumps over the lazy dog, again; and again! ";
+    StringBuilder builder = new StringBuilder(length * 10);
+    while (builder.length() < length) {
+      builder.append(words);
+    }
+    text = builder.substring(0, length);
+    while (builder.length() < length * 10) {
+      builder.append(words);
+    }
+    oversized = builder.toString();
+  }
+
+  @Benchmark
+  public boolean jdkPatternPrintableAscii() {
+    return PRINTABLE_ASCII.matcher(text).matches();
+  }
+
+  @Benchmark
+  public Outcome<String> printableAscii() {
+    return printableAscii.tryValidate(text);
+  }
+
+  @Benchmark
+  public Outcome<String> onlyChars() {
+    return onlyChars.tryValidate(text);
+  }
+
+  @Benchmark
+  public Outcome<String> validUtf8() {
+    return validUtf8.tryValidate(text);
+  }
+
+  @Benchmark
+  public Outcome<String> oversized() {
+    return maxLength.tryValidate(oversized);
+  }
+
+}
@@ -0,0 +1,34 @@
+package net.cal.sjforms;
+
+import java.util.Arrays;
+
+public class Binding {
+
+  enum Order { ASC, DESC }
+
+  /**
+   * The processor generates {@code Binding_SearchBinder} from these annotations.
+   */
+  static class Search {
+    @FormField(required = true) String query;
+    @FormField(min = 1, max = 100, defaultValue = "10") int limit;
+    @FormField(defaultValue = "asc", ignoreCase = true) Order order;
+    @FormField(name = "tag", maxCount = 5, min = 0) int[] tags;
+  }
+
+  public static void main(String[] args) {
+
+    for (String input : Arrays.asList("query=cats", "query=dogs&limit=50&order=DESC&tag=1&tag=2", "limit=5", "query=x&limit=1000")) {
+      String output;
+      try {
+        Search search = Binding_SearchBinder.parseUrlEncoded(input);
+        output = search.query + " limit=" + search.limit + " order=" + search.order + " tags=" + Arrays.toString(search.tags);
+      } catch (ValidationException e) {
+        output = "ERROR: " + e.getMessage();
+      }
+      System.out.println("Binding for '" + input + "' = " + output);
+    }
+
+  }
+
+}
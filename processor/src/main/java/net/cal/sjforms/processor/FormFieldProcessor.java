@@ -0,0 +1,612 @@
+package net.cal.sjforms.processor;
+
+import net.cal.sjforms.FormField;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates a binder class for each class with {@link FormField}-annotated members. See
+ * {@link FormField} for what is generated.
+ *
+ * <p>The generated code only uses the public API of the library: each field is built
+ * with the same factory and builder methods that hand-written code would use, values
+ * are read with the primitive getters of {@link net.cal.sjforms.ParseResult} where
+ * possible, and objects are filled in by assigning to their members (or calling their
+ * setters) directly. Mistakes that can be found at compile time, such as unsupported
+ * member types, malformed default values and misplaced attributes, are reported as
+ * errors on the offending member.</p>
+ */
+public final class FormFieldProcessor extends AbstractProcessor {
+
+  private static final String ANNOTATION = FormField.class.getName();
+  private static final String PACKAGE = "net.cal.sjforms";
+
+  /**
+   * The kinds of member this processor supports.
+   */
+  private enum Kind {
+    INT("IntField", "intField"),
+    LONG("LongField", "longField"),
+    DOUBLE("DoubleField", "doubleField"),
+    BOOLEAN("Field<Boolean>", "boolField"),
+    STRING("StringField", "stringField"),
+    ENUM(null, null),
+    INT_LIST("IntListField", "intList"),
+    LONG_LIST("LongListField", "longList");
+
+    final String fieldType;
+    final String factory;
+
+    Kind(String fieldType, String factory) {
+      this.fieldType = fieldType;
+      this.factory = factory;
+    }
+  }
+
+  /**
+   * Everything needed to generate the code for one annotated member.
+   */
+  private static final class Member {
+    VariableElement element;
+    FormField annotation;
+    Kind kind;
+    /** true for int, long, double and boolean (as opposed to their boxed forms) */
+    boolean primitive;
+    /** the enum type, for ENUM members */
+    String enumType;
+    String parameterName;
+    String constantName;
+    /** the setter to call, or null to assign the member directly */
+    String setter;
+  }
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(ANNOTATION);
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    Set<TypeElement> types = new LinkedHashSet<>();
+    for (Element element : roundEnv.getElementsAnnotatedWith(FormField.class)) {
+      types.add((TypeElement)element.getEnclosingElement());
+    }
+    for (TypeElement type : types) {
+      List<Member> members = new ArrayList<>();
+      boolean ok = checkType(type);
+      // declaration order, so the form's fields are in the order they are written
+      for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+        if (field.getAnnotation(FormField.class) != null) {
+          Member member = analyze(type, field);
+          ok &= member != null;
+          members.add(member);
+        }
+      }
+      if (ok && checkNames(members)) {
+        generate(type, members);
+      }
+    }
+    return true;
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private boolean checkType(TypeElement type) {
+    boolean ok = true;
+    if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+      error(type, "@FormField members must belong to a concrete class");
+      ok = false;
+    }
+    if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+      error(type, "Classes with @FormField members must be top-level or static");
+      ok = false;
+    } else if (type.getNestingKind() != NestingKind.TOP_LEVEL && type.getNestingKind() != NestingKind.MEMBER) {
+      error(type, "Classes with @FormField members must be top-level or static");
+      ok = false;
+    }
+    boolean constructor = false;
+    for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+      if (c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE)) {
+        constructor = true;
+      }
+    }
+    if (!constructor) {
+      error(type, "Classes with @FormField members need a non-private constructor without arguments");
+      ok = false;
+    }
+    return ok;
+  }
+
+  /**
+   * @return the member, or null if it has errors (which have been reported)
+   */
+  private Member analyze(TypeElement type, VariableElement field) {
+    Member member = new Member();
+    member.element = field;
+    member.annotation = field.getAnnotation(FormField.class);
+    FormField annotation = member.annotation;
+    String name = field.getSimpleName().toString();
+    member.parameterName = annotation.name().isEmpty() ? name : annotation.name();
+    member.constantName = constantName(name) + "_FIELD";
+
+    if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.FINAL)) {
+      error(field, "@FormField members must not be static or final");
+      return null;
+    }
+    if (!classify(member, field.asType())) {
+      error(field, "@FormField does not support members of type " + field.asType());
+      return null;
+    }
+    if (field.getModifiers().contains(Modifier.PRIVATE)) {
+      member.setter = findSetter(type, field);
+      if (member.setter == null) {
+        error(field, "Private @FormField members need a non-private setter");
+        return null;
+      }
+    }
+    return checkAttributes(member) ? member : null;
+  }
+
+  /**
+   * Set the kind of the member from its type.
+   * @return false if the type is not supported
+   */
+  private boolean classify(Member member, TypeMirror type) {
+    switch (type.getKind()) {
+      case INT:
+        member.kind = Kind.INT;
+        member.primitive = true;
+        return true;
+      case LONG:
+        member.kind = Kind.LONG;
+        member.primitive = true;
+        return true;
+      case DOUBLE:
+        member.kind = Kind.DOUBLE;
+        member.primitive = true;
+        return true;
+      case BOOLEAN:
+        member.kind = Kind.BOOLEAN;
+        member.primitive = true;
+        return true;
+      case ARRAY:
+        TypeKind component = ((ArrayType)type).getComponentType().getKind();
+        if (component == TypeKind.INT) {
+          member.kind = Kind.INT_LIST;
+          return true;
+        }
+        if (component == TypeKind.LONG) {
+          member.kind = Kind.LONG_LIST;
+          return true;
+        }
+        return false;
+      case DECLARED:
+        TypeElement element = (TypeElement)((DeclaredType)type).asElement();
+        if (element.getKind() == ElementKind.ENUM) {
+          member.kind = Kind.ENUM;
+          member.enumType = element.getQualifiedName().toString();
+          return true;
+        }
+        switch (element.getQualifiedName().toString()) {
+          case "java.lang.Integer":
+            member.kind = Kind.INT;
+            return true;
+          case "java.lang.Long":
+            member.kind = Kind.LONG;
+            return true;
+          case "java.lang.Double":
+            member.kind = Kind.DOUBLE;
+            return true;
+          case "java.lang.Boolean":
+            member.kind = Kind.BOOLEAN;
+            return true;
+          case "java.lang.String":
+            member.kind = Kind.STRING;
+            return true;
+          default:
+            return false;
+        }
+      default:
+        return false;
+    }
+  }
+
+  private String findSetter(TypeElement type, VariableElement field) {
+    String name = field.getSimpleName().toString();
+    String setter = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+      if (method.getSimpleName().contentEquals(setter) &&
+          method.getParameters().size() == 1 &&
+          processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.asType()) &&
+          !method.getModifiers().contains(Modifier.PRIVATE) &&
+          !method.getModifiers().contains(Modifier.STATIC)) {
+        return setter;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Check that the annotation's attributes make sense for the member's kind.
+   * @return false if there are errors (which have been reported)
+   */
+  private boolean checkAttributes(Member member) {
+    FormField annotation = member.annotation;
+    Element field = member.element;
+    Kind kind = member.kind;
+    boolean numeric = kind == Kind.INT || kind == Kind.LONG || kind == Kind.DOUBLE || kind == Kind.INT_LIST || kind == Kind.LONG_LIST;
+    boolean ok = true;
+    if (!numeric && (annotation.min() != Long.MIN_VALUE || annotation.max() != Long.MAX_VALUE)) {
+      error(field, "min and max only apply to numeric members");
+      ok = false;
+    }
+    if (annotation.min() > annotation.max()) {
+      error(field, "min must not be greater than max");
+      ok = false;
+    }
+    if ((kind == Kind.INT || kind == Kind.INT_LIST) &&
+        ((annotation.min() != Long.MIN_VALUE && annotation.min() != (int)annotation.min()) ||
+         (annotation.max() != Long.MAX_VALUE && annotation.max() != (int)annotation.max()))) {
+      error(field, "min and max must be ints for int members");
+      ok = false;
+    }
+    if (annotation.oneOf().length > 0 && kind != Kind.STRING) {
+      error(field, "oneOf only applies to String members");
+      ok = false;
+    }
+    if (annotation.ignoreCase() && kind != Kind.ENUM && annotation.oneOf().length == 0) {
+      error(field, "ignoreCase only applies to enum members and to members with oneOf");
+      ok = false;
+    }
+    if (annotation.maxCount() != Integer.MAX_VALUE && kind != Kind.INT_LIST && kind != Kind.LONG_LIST) {
+      error(field, "maxCount only applies to int[] and long[] members");
+      ok = false;
+    } else if (annotation.maxCount() < 0) {
+      error(field, "maxCount must not be negative");
+      ok = false;
+    }
+    if (!FormField.NO_DEFAULT.equals(annotation.defaultValue()) && defaultLiteral(member) == null) {
+      ok = false;
+    }
+    return ok;
+  }
+
+  /**
+   * @return the Java expression for the member's default value, or null if the default
+   *         is not legal for the member (which has been reported)
+   */
+  private String defaultLiteral(Member member) {
+    String value = member.annotation.defaultValue();
+    try {
+      switch (member.kind) {
+        case INT:
+          return Integer.toString(Integer.parseInt(value.trim()));
+        case LONG:
+          return Long.parseLong(value.trim()) + "L";
+        case DOUBLE:
+          return doubleLiteral(Double.parseDouble(value));
+        case BOOLEAN:
+          if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+            return value.toLowerCase(Locale.ROOT);
+          }
+          break;
+        case STRING:
+          return stringLiteral(value);
+        case ENUM:
+          TypeElement type = processingEnv.getElementUtils().getTypeElement(member.enumType);
+          for (Element constant : type.getEnclosedElements()) {
+            if (constant.getKind() == ElementKind.ENUM_CONSTANT &&
+                (member.annotation.ignoreCase() ?
+                    constant.getSimpleName().toString().equalsIgnoreCase(value) :
+                    constant.getSimpleName().contentEquals(value))) {
+              return member.enumType + '.' + constant.getSimpleName();
+            }
+          }
+          break;
+        default:
+          error(member.element, "defaultValue does not apply to list members");
+          return null;
+      }
+    } catch (NumberFormatException e) {
+      // fall through
+    }
+    error(member.element, "Illegal defaultValue \"" + value + "\" for a member of type " + member.element.asType());
+    return null;
+  }
+
+  private boolean checkNames(List<Member> members) {
+    boolean ok = true;
+    Set<String> parameters = new HashSet<>();
+    Set<String> constants = new HashSet<>();
+    for (Member member : members) {
+      if (!parameters.add(member.parameterName)) {
+        error(member.element, "Duplicate parameter name '" + member.parameterName + '\'');
+        ok = false;
+      }
+      if (!constants.add(member.constantName)) {
+        error(member.element, "Member name maps to the same constant (" + member.constantName + ") as an earlier one");
+        ok = false;
+      }
+    }
+    return ok;
+  }
+
+  private void generate(TypeElement type, List<Member> members) {
+    String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    String typeName = type.getQualifiedName().toString();
+    String binderName = binderName(type);
+    String qualifiedBinderName = packageName.isEmpty() ? binderName : packageName + '.' + binderName;
+    String visibility = type.getModifiers().contains(Modifier.PUBLIC) ? "public " : "";
+    try {
+      JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedBinderName, type);
+      try (Writer writer = file.openWriter(); PrintWriter out = new PrintWriter(writer)) {
+        if (!packageName.isEmpty()) {
+          out.println("package " + packageName + ";");
+          out.println();
+        }
+        out.println("/**");
+        out.println(" * Binds form input to {@link " + typeName + "}. Generated by");
+        out.println(" * " + getClass().getName() + " from its");
+        out.println(" * {@link " + ANNOTATION + "} annotations; do not edit.");
+        out.println(" */");
+        out.println(visibility + "final class " + binderName + " implements " + PACKAGE + ".FormBinder<" + typeName + "> {");
+        out.println();
+        for (Member member : members) {
+          out.println("  " + visibility + "static final " + fieldType(member) + ' ' + member.constantName + " = " + fieldExpression(member) + ';');
+        }
+        out.println();
+        out.print("  " + visibility + "static final " + PACKAGE + ".Form FORM = new " + PACKAGE + ".Form(");
+        for (int i = 0; i < members.size(); ++i) {
+          out.print((i == 0 ? "" : ", ") + members.get(i).constantName);
+        }
+        out.println(");");
+        out.println();
+        out.println("  " + visibility + "static final " + binderName + " INSTANCE = new " + binderName + "();");
+        out.println();
+        out.println("  private " + binderName + "() {");
+        out.println("  }");
+        out.println();
+        out.println("  /**");
+        out.println("   * Parse form inputs into a new {@link " + typeName + "}.");
+        out.println("   * @see " + PACKAGE + ".Form#parse(java.util.Map)");
+        out.println("   */");
+        out.println("  " + visibility + "static " + typeName + " parse(java.util.Map<String, String> values) throws " + PACKAGE + ".ValidationException {");
+        out.println("    return INSTANCE.bind(FORM.parse(values));");
+        out.println("  }");
+        out.println();
+        out.println("  /**");
+        out.println("   * Parse urlencoded input into a new {@link " + typeName + "}.");
+        out.println("   * @see " + PACKAGE + ".Form#parseUrlEncoded(CharSequence)");
+        out.println("   */");
+        out.println("  " + visibility + "static " + typeName + " parseUrlEncoded(CharSequence input) throws " + PACKAGE + ".ValidationException {");
+        out.println("    return INSTANCE.bind(FORM.parseUrlEncoded(input));");
+        out.println("  }");
+        out.println();
+        out.println("  @Override");
+        out.println("  public " + PACKAGE + ".Form getForm() {");
+        out.println("    return FORM;");
+        out.println("  }");
+        out.println();
+        out.println("  @Override");
+        out.println("  public " + typeName + " bind(" + PACKAGE + ".ParseResult result) {");
+        out.println("    " + typeName + " target = new " + typeName + "();");
+        for (Member member : members) {
+          writeBinding(out, member);
+        }
+        out.println("    return target;");
+        out.println("  }");
+        out.println();
+        out.println("}");
+      }
+    } catch (IOException e) {
+      error(type, "Could not write " + qualifiedBinderName + ": " + e);
+    }
+  }
+
+  private String fieldType(Member member) {
+    return member.kind == Kind.ENUM ?
+        PACKAGE + ".Field<" + member.enumType + '>' :
+        PACKAGE + '.' + member.kind.fieldType;
+  }
+
+  private String fieldExpression(Member member) {
+    FormField annotation = member.annotation;
+    Kind kind = member.kind;
+    StringBuilder result = new StringBuilder(PACKAGE).append(".Field.");
+    if (kind == Kind.ENUM) {
+      result.append("enumField(").append(stringLiteral(member.parameterName)).append(", ")
+          .append(member.enumType).append(".class").append(annotation.ignoreCase() ? ", true)" : ")");
+    } else {
+      result.append(kind.factory).append('(').append(stringLiteral(member.parameterName)).append(')');
+    }
+    if (!FormField.NO_DEFAULT.equals(annotation.defaultValue())) {
+      result.append(".withDefault(").append(defaultLiteral(member)).append(')');
+    }
+    if (annotation.required()) {
+      result.append(".required()");
+    }
+    if (annotation.maxCount() != Integer.MAX_VALUE) {
+      result.append(".maxCount(").append(annotation.maxCount()).append(')');
+    }
+    if (annotation.min() != Long.MIN_VALUE) {
+      result.append(".atLeast(").append(numberLiteral(kind, annotation.min())).append(')');
+    }
+    if (annotation.max() != Long.MAX_VALUE) {
+      result.append(".atMost(").append(numberLiteral(kind, annotation.max())).append(')');
+    }
+    if (annotation.oneOf().length > 0) {
+      result.append(annotation.ignoreCase() ? ".oneOfIgnoreCase(" : ".oneOf(");
+      String[] values = annotation.oneOf();
+      for (int i = 0; i < values.length; ++i) {
+        result.append(i == 0 ? "" : ", ").append(stringLiteral(values[i]));
+      }
+      result.append(')');
+    }
+    return result.toString();
+  }
+
+  private void writeBinding(PrintWriter out, Member member) {
+    String name = member.element.getSimpleName().toString();
+    String current = member.setter == null ? "target." + name : null;
+    String getter = null;
+    if (member.primitive && current != null) {
+      // read straight into the member, keeping its initial value if there is no value
+      switch (member.kind) {
+        case INT:
+          getter = "result.getInt(" + member.constantName + ", " + current + ')';
+          break;
+        case LONG:
+          getter = "result.getLong(" + member.constantName + ", " + current + ')';
+          break;
+        case DOUBLE:
+          getter = "result.getDouble(" + member.constantName + ", " + current + ')';
+          break;
+        default:
+          break;
+      }
+    }
+    if (getter != null) {
+      out.println("    " + current + " = " + getter + ';');
+      return;
+    }
+    String local = name + "Value";
+    String boxed;
+    switch (member.kind) {
+      case INT:
+        boxed = "Integer";
+        break;
+      case LONG:
+        boxed = "Long";
+        break;
+      case DOUBLE:
+        boxed = "Double";
+        break;
+      case BOOLEAN:
+        boxed = "Boolean";
+        break;
+      case INT_LIST:
+        boxed = "int[]";
+        break;
+      case LONG_LIST:
+        boxed = "long[]";
+        break;
+      case ENUM:
+        boxed = member.enumType;
+        break;
+      default:
+        boxed = "String";
+        break;
+    }
+    if (member.primitive && member.kind != Kind.BOOLEAN) {
+      // a private primitive member with a setter: check for a value without boxing
+      String type = member.kind == Kind.INT ? "Int" : member.kind == Kind.LONG ? "Long" : "Double";
+      out.println("    if (result.hasValue(" + member.constantName + ")) {");
+      out.println("      target." + member.setter + "(result.get" + type + '(' + member.constantName + "));");
+      out.println("    }");
+      return;
+    }
+    out.println("    " + boxed + ' ' + local + " = result.getParsedValue(" + member.constantName + ");");
+    out.println("    if (" + local + " != null) {");
+    out.println("      " + (current != null ? current + " = " + local : "target." + member.setter + '(' + local + ')') + ';');
+    out.println("    }");
+  }
+
+  private static String binderName(TypeElement type) {
+    StringBuilder name = new StringBuilder(type.getSimpleName());
+    for (Element e = type.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+      name.insert(0, e.getSimpleName() + "_");
+    }
+    return name.append("Binder").toString();
+  }
+
+  /**
+   * @return the name in UPPER_SNAKE_CASE, e.g. "MAX_ITEMS" for "maxItems"
+   */
+  static String constantName(String name) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < name.length(); ++i) {
+      char c = name.charAt(i);
+      if (Character.isUpperCase(c) && i > 0 && name.charAt(i - 1) != '_' && !Character.isUpperCase(name.charAt(i - 1))) {
+        result.append('_');
+      }
+      result.append(Character.toUpperCase(c));
+    }
+    return result.toString();
+  }
+
+  private static String numberLiteral(Kind kind, long value) {
+    switch (kind) {
+      case INT:
+      case INT_LIST:
+        return Long.toString(value);
+      case DOUBLE:
+        return doubleLiteral(value);
+      default:
+        return value + "L";
+    }
+  }
+
+  private static String doubleLiteral(double value) {
+    if (Double.isNaN(value)) {
+      return "Double.NaN";
+    }
+    if (Double.isInfinite(value)) {
+      return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+    }
+    return Double.toString(value);
+  }
+
+  static String stringLiteral(String value) {
+    StringBuilder result = new StringBuilder("\"");
+    for (int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          result.append("\\\"");
+          break;
+        case '\\':
+          result.append("\\\\");
+          break;
+        case '\n':
+          result.append("\\n");
+          break;
+        case '\r':
+          result.append("\\r");
+          break;
+        case '\t':
+          result.append("\\t");
+          break;
+        default:
+          if (c < 0x20 || c > 0x7E) {
+            result.append(String.format("\\u%04x", (int)c));
+          } else {
+            result.append(c);
+          }
+          break;
+      }
+    }
+    return result.append('"').toString();
+  }
+
+}
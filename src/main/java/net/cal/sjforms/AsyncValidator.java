@@ -0,0 +1,31 @@
+package net.cal.sjforms;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A validator that completes asynchronously, e.g. because it has to check the value
+ * against a database or a remote cache. Attach one to a field with
+ * {@link Field#withAsyncValidator(AsyncValidator)}, and use
+ * {@link Form#parseAsync(java.util.Map, java.util.concurrent.Executor)} to validate
+ * forms containing such fields without blocking.
+ *
+ * <p>The same conventions apply as for {@link net.cal.sjforms.Validator}: the returned
+ * future should fail with a {@link net.cal.sjforms.ValidationException} when the value is
+ * malformed, and should usually complete with null when the input value is null.
+ * Validators that look up many values should consider going through a
+ * {@link net.cal.sjforms.BatchingLookup} so that concurrent lookups are merged.</p>
+ *
+ * @param <In> the input type
+ * @param <Out> the output type
+ */
+public interface AsyncValidator<In, Out> {
+
+  /**
+   * Start validating the given input value.
+   * @param fieldName the name of the field being parsed
+   * @param value the value to parse
+   * @return a future for the parsed object. This should not block.
+   */
+  ListenableFuture<Out> validateAsync(String fieldName, In value);
+
+}
@@ -0,0 +1,21 @@
+package net.cal.sjforms;
+
+/**
+ * How {@link Form#parseBatch(java.util.List, BatchMode)} treats failures.
+ */
+public enum BatchMode {
+
+  /**
+   * Like {@link Form#parse(java.util.Map)}: each record stops at its first invalid
+   * field, and the batch stops at its first invalid record (in input order). Records
+   * after that one are not reported.
+   */
+  FAIL_FAST,
+
+  /**
+   * Like {@link Form#parseAll(java.util.Map)}: every field of every record is validated,
+   * and every failure is reported.
+   */
+  COLLECT_ALL
+
+}
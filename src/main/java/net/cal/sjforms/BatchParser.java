@@ -0,0 +1,215 @@
+package net.cal.sjforms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates batches of records in parallel on a {@link java.util.concurrent.ForkJoinPool}.
+ * A batch is split into chunks of records; each chunk is validated sequentially by one
+ * worker, writing into the shared result arrays at the records' input positions, so
+ * results come out in input order no matter which worker finished first.
+ *
+ * <p>In {@link BatchMode#FAIL_FAST} mode, workers share the index of the earliest
+ * failure seen so far and skip every record after it.</p>
+ */
+final class BatchParser {
+
+  /** Lazily created pool used when the caller does not supply one. */
+  private static final class DefaultPool {
+    static final ForkJoinPool INSTANCE = new ForkJoinPool();
+  }
+
+  private final Form form;
+  private final BatchMode mode;
+  private final int chunkSize;
+  private final AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+
+  private BatchParser(Form form, BatchMode mode, int chunkSize) {
+    if (mode == null) {
+      throw new NullPointerException("mode");
+    }
+    if (chunkSize < 0) {
+      throw new IllegalArgumentException("Chunk size must not be negative: " + chunkSize);
+    }
+    this.form = form;
+    this.mode = mode;
+    this.chunkSize = chunkSize;
+  }
+
+  static ForkJoinPool defaultPool() {
+    return DefaultPool.INSTANCE;
+  }
+
+  /**
+   * The smallest automatic chunk read from an {@link Iterable} of unknown size. Each such
+   * chunk is a separately submitted task with its own list, so it must be large enough
+   * to pay for that.
+   */
+  private static final int MIN_STREAMED_CHUNK = 256;
+
+  /**
+   * Pick a chunk size that gives every worker several chunks (for load balancing)
+   * without making chunks so small that task overhead dominates.
+   */
+  private static int automaticChunkSize(int records, ForkJoinPool pool) {
+    return Math.max(16, records / (8 * pool.getParallelism()));
+  }
+
+  /**
+   * Pick the size of the next chunk to read from an {@link Iterable} of unknown size,
+   * given how many records have been read so far. Having read that many, there are
+   * probably at least as many more, so chunks grow with the input (as
+   * {@link #automaticChunkSize(int, ForkJoinPool)} for twice the records read) and a
+   * long input is split into a number of chunks that grows only logarithmically.
+   */
+  private static int streamedChunkSize(int read, ForkJoinPool pool) {
+    return Math.max(MIN_STREAMED_CHUNK, automaticChunkSize(2 * read, pool));
+  }
+
+  static BatchResult parse(Form form, List<? extends Map<String, String>> records, BatchMode mode, ForkJoinPool pool, int chunkSize) {
+    int n = records.size();
+    if (chunkSize == 0) {
+      chunkSize = automaticChunkSize(n, pool);
+    }
+    BatchParser parser = new BatchParser(form, mode, chunkSize);
+    ParseResult[] results = new ParseResult[n];
+    FormValidationException[] failures = new FormValidationException[n];
+    pool.invoke(parser.new Chunk(records, 0, n, results, failures, 0));
+    return parser.finish(results, failures, n);
+  }
+
+  static BatchResult parse(Form form, Iterable<? extends Map<String, String>> records, BatchMode mode, ForkJoinPool pool, int chunkSize) {
+    if (chunkSize == 0 && records instanceof Collection) {
+      chunkSize = Math.max(MIN_STREAMED_CHUNK, automaticChunkSize(((Collection<?>)records).size(), pool));
+    }
+    // with an unknown number of records, each chunk is sized by how many have been read
+    boolean streamed = chunkSize == 0;
+    BatchParser parser = new BatchParser(form, mode, streamed ? MIN_STREAMED_CHUNK : chunkSize);
+    // Read the input one chunk at a time and hand each chunk to the pool as soon as it
+    // is full, so validation overlaps with reading the rest of the input.
+    List<Chunk> chunks = new ArrayList<>();
+    Iterator<? extends Map<String, String>> it = records.iterator();
+    int offset = 0;
+    while (it.hasNext() && !(mode == BatchMode.FAIL_FAST && parser.firstFailure.get() < offset)) {
+      int size = streamed ? streamedChunkSize(offset, pool) : chunkSize;
+      List<Map<String, String>> chunk = new ArrayList<>(size);
+      while (chunk.size() < size && it.hasNext()) {
+        chunk.add(it.next());
+      }
+      Chunk task = parser.new Chunk(chunk, 0, chunk.size(),
+          new ParseResult[chunk.size()], new FormValidationException[chunk.size()], offset);
+      pool.execute(task);
+      chunks.add(task);
+      offset += chunk.size();
+    }
+    ParseResult[] results = new ParseResult[offset];
+    FormValidationException[] failures = new FormValidationException[offset];
+    for (Chunk chunk : chunks) {
+      chunk.join();
+      System.arraycopy(chunk.results, 0, results, chunk.offset, chunk.results.length);
+      System.arraycopy(chunk.failures, 0, failures, chunk.offset, chunk.failures.length);
+    }
+    return parser.finish(results, failures, offset);
+  }
+
+  private BatchResult finish(ParseResult[] results, FormValidationException[] failures, int n) {
+    int reported = n;
+    if (mode == BatchMode.FAIL_FAST && firstFailure.get() < n) {
+      // Records after the first failure may or may not have been validated, depending
+      // on timing; drop them so the result does not depend on scheduling.
+      reported = firstFailure.get() + 1;
+      for (int i = reported; i < n; ++i) {
+        results[i] = null;
+        failures[i] = null;
+      }
+    }
+    return new BatchResult(results, failures, reported);
+  }
+
+  private void recordFailure(int index) {
+    int current;
+    do {
+      current = firstFailure.get();
+    } while (index < current && !firstFailure.compareAndSet(current, index));
+  }
+
+  /**
+   * Validates records <code>[from, to)</code> of a list, writing into arrays that hold
+   * the record at list index <code>i</code> at array index <code>i</code>. The global
+   * index of the record at list index <code>i</code> is <code>offset + i</code>.
+   */
+  private final class Chunk extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<? extends Map<String, String>> records;
+    private final int from;
+    private final int to;
+    final ParseResult[] results;
+    final FormValidationException[] failures;
+    final int offset;
+
+    Chunk(List<? extends Map<String, String>> records, int from, int to,
+          ParseResult[] results, FormValidationException[] failures, int offset) {
+      this.records = records;
+      this.from = from;
+      this.to = to;
+      this.results = results;
+      this.failures = failures;
+      this.offset = offset;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > chunkSize) {
+        int mid = (from + to) >>> 1;
+        ForkJoinTask.invokeAll(
+            new Chunk(records, from, mid, results, failures, offset),
+            new Chunk(records, mid, to, results, failures, offset));
+        return;
+      }
+      for (int i = from; i < to; ++i) {
+        int index = offset + i;
+        if (mode == BatchMode.FAIL_FAST) {
+          if (index > firstFailure.get()) {
+            return;
+          }
+          parseFailFast(i);
+        } else {
+          try {
+            results[i] = form.parseAll(records.get(i));
+          } catch (FormValidationException e) {
+            failures[i] = e;
+            recordFailure(index);
+          }
+        }
+      }
+    }
+
+    /**
+     * Same as {@link Form#parse(java.util.Map)}, but keeps track of which field failed.
+     */
+    private void parseFailFast(int i) {
+      // stays -1 if gather fails, on input that does not belong to any field
+      int[] failedSlot = {-1};
+      try {
+        results[i] = form.parseRaw(form.gather(records.get(i)), new ParseResult(form.layout()), failedSlot);
+      } catch (ValidationException e) {
+        failures[i] = failedSlot[0] < 0 ?
+            new FormValidationException(Collections.<Field, ValidationException>emptyMap(), Collections.singletonList(e)) :
+            new FormValidationException(Collections.singletonMap(form.layout().fields[failedSlot[0]], e));
+        recordFailure(offset + i);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,82 @@
+package net.cal.sjforms;
+
+/**
+ * The result of validating a batch of records with
+ * {@link Form#parseBatch(java.util.List, BatchMode)}. Results and failures are reported
+ * by the index of the record in the input.
+ */
+public class BatchResult {
+
+  private final ParseResult[] results;
+  private final FormValidationException[] failures;
+  private final int reported;
+  private final int firstFailure;
+
+  BatchResult(ParseResult[] results, FormValidationException[] failures, int reported) {
+    this.results = results;
+    this.failures = failures;
+    this.reported = reported;
+    int firstFailure = -1;
+    for (int i = 0; i < reported; ++i) {
+      if (failures[i] != null) {
+        firstFailure = i;
+        break;
+      }
+    }
+    this.firstFailure = firstFailure;
+  }
+
+  /**
+   * Get the number of records in the batch.
+   * @return the number of input records
+   */
+  public int size() {
+    return results.length;
+  }
+
+  /**
+   * Get the number of records whose outcome is reported. This is {@link #size()}, except
+   * in {@link BatchMode#FAIL_FAST} mode, where the records after the first failure are
+   * not reported.
+   * @return the number of reported records; these are the first records of the input
+   */
+  public int getReportedCount() {
+    return reported;
+  }
+
+  /**
+   * Determine whether every record validated successfully.
+   * @return true if there were no failures
+   */
+  public boolean isSuccess() {
+    return firstFailure < 0;
+  }
+
+  /**
+   * Get the index of the first record that failed to validate.
+   * @return the index of the first failure, or -1 if there were none
+   */
+  public int getFirstFailureIndex() {
+    return firstFailure;
+  }
+
+  /**
+   * Get the parsed values for a record.
+   * @param index the index of the record in the input
+   * @return the parsed values, or null if the record failed to validate or is not reported
+   */
+  public ParseResult getResult(int index) {
+    return results[index];
+  }
+
+  /**
+   * Get the validation failures for a record. In {@link BatchMode#FAIL_FAST} mode the
+   * exception contains only the record's first failure.
+   * @param index the index of the record in the input
+   * @return the failures, or null if the record validated successfully or is not reported
+   */
+  public FormValidationException getFailure(int index) {
+    return failures[index];
+  }
+
+}
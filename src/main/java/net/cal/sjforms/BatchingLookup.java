@@ -0,0 +1,208 @@
+package net.cal.sjforms;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges individual lookups into bulk lookups. Each call to {@link #lookup(Object)} joins
+ * the current batch; a batch is sent to {@link #lookupAll(java.util.Set)} when it reaches
+ * the maximum batch size or when the batching delay (counted from the batch's first
+ * lookup) runs out, whichever comes first. Lookups of the same key in the same batch
+ * share one result, but each gets its own future, so one caller cancelling theirs does
+ * not affect the others.
+ *
+ * <p>This is meant for {@link net.cal.sjforms.AsyncValidator}s that check values against
+ * a database or remote cache: when many forms are parsed concurrently, their lookups are
+ * merged into a few bulk calls.
+ * <pre>
+ *   final BatchingLookup&lt;String, Account&gt; ACCOUNTS = new BatchingLookup&lt;String, Account&gt;(scheduler, 2, TimeUnit.MILLISECONDS, 100) {
+ *     protected ListenableFuture&lt;Map&lt;String, Account&gt;&gt; lookupAll(Set&lt;String&gt; ids) {
+ *       return accountStore.findAll(ids);
+ *     }
+ *   };
+ * </pre></p>
+ *
+ * <p>Instances of this class are threadsafe.</p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public abstract class BatchingLookup<K, V> {
+
+  private final ScheduledExecutorService scheduler;
+  private final long delay;
+  private final TimeUnit unit;
+  private final int maxBatchSize;
+
+  // guarded by this
+  private Batch<K, V> pending = new Batch<>();
+  /** the timer that sends the pending batch once the delay runs out, if one is running */
+  // guarded by this
+  private ScheduledFuture<?> timer;
+
+  /**
+   * The lookups waiting to be sent together. Every lookup has its own future, so that a
+   * caller who cancels theirs does not cancel the lookup for the others.
+   */
+  private static final class Batch<K, V> {
+    /** the future of the first lookup of each key */
+    final Map<K, SettableFuture<V>> futures = new HashMap<>();
+    /** the futures of later lookups of keys already in the batch, or null if there are none */
+    Map<K, List<SettableFuture<V>>> repeats;
+
+    void addRepeat(K key, SettableFuture<V> future) {
+      if (repeats == null) {
+        repeats = new HashMap<>();
+      }
+      List<SettableFuture<V>> futures = repeats.get(key);
+      if (futures == null) {
+        futures = new ArrayList<>(2);
+        repeats.put(key, futures);
+      }
+      futures.add(future);
+    }
+
+    void set(Map<K, V> found) {
+      for (Map.Entry<K, SettableFuture<V>> entry : futures.entrySet()) {
+        entry.getValue().set(found == null ? null : found.get(entry.getKey()));
+      }
+      if (repeats != null) {
+        for (Map.Entry<K, List<SettableFuture<V>>> entry : repeats.entrySet()) {
+          V value = found == null ? null : found.get(entry.getKey());
+          for (SettableFuture<V> future : entry.getValue()) {
+            future.set(value);
+          }
+        }
+      }
+    }
+
+    void setException(Throwable t) {
+      for (SettableFuture<V> future : futures.values()) {
+        future.setException(t);
+      }
+      if (repeats != null) {
+        for (List<SettableFuture<V>> list : repeats.values()) {
+          for (SettableFuture<V> future : list) {
+            future.setException(t);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @param scheduler the scheduler used to send batches once the delay runs out
+   * @param delay how long the first lookup of a batch may wait for others to join it
+   * @param unit the unit of <code>delay</code>
+   * @param maxBatchSize the number of distinct keys at which a batch is sent immediately
+   */
+  protected BatchingLookup(ScheduledExecutorService scheduler, long delay, TimeUnit unit, int maxBatchSize) {
+    if (delay < 0) {
+      throw new IllegalArgumentException("Negative delay " + delay);
+    }
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("Illegal maximum batch size " + maxBatchSize);
+    }
+    this.scheduler = scheduler;
+    this.delay = delay;
+    this.unit = unit;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Look up many keys at once.
+   * @param keys the keys to look up (never empty)
+   * @return a future for the values found. Keys missing from the map are looked up as
+   *         null. If the future fails, every lookup in the batch fails the same way.
+   */
+  protected abstract ListenableFuture<Map<K, V>> lookupAll(Set<K> keys);
+
+  /**
+   * Look up a single key as part of the current batch.
+   * @param key the key to look up
+   * @return a future for the value, or for null if there is no value for the key. Each
+   *         call returns a new future; cancelling it only means this caller no longer
+   *         gets the value (the batch is still sent, for the other lookups in it).
+   */
+  public ListenableFuture<V> lookup(K key) {
+    SettableFuture<V> result = SettableFuture.create();
+    Batch<K, V> full = null;
+    synchronized (this) {
+      if (pending.futures.containsKey(key)) {
+        pending.addRepeat(key, result);
+        return result;
+      }
+      pending.futures.put(key, result);
+      if (pending.futures.size() >= maxBatchSize) {
+        full = pending;
+        pending = new Batch<>();
+        if (timer != null) {
+          // the batch is sent now, so its timer must not send the next one early
+          timer.cancel(false);
+          timer = null;
+        }
+      } else if (pending.futures.size() == 1) {
+        final Batch<K, V> batch = pending;
+        timer = scheduler.schedule(new Runnable() {
+          @Override
+          public void run() {
+            flushIfPending(batch);
+          }
+        }, delay, unit);
+      }
+    }
+    if (full != null) {
+      flush(full);
+    }
+    return result;
+  }
+
+  /**
+   * Send the given batch if it is still the pending one. (Its timer may already be
+   * running when the batch fills up and is sent, in which case cancelling it has no
+   * effect.)
+   */
+  private void flushIfPending(Batch<K, V> batch) {
+    synchronized (this) {
+      if (pending != batch) {
+        return;
+      }
+      pending = new Batch<>();
+      timer = null;
+    }
+    flush(batch);
+  }
+
+  private void flush(final Batch<K, V> batch) {
+    ListenableFuture<Map<K, V>> values;
+    try {
+      values = lookupAll(Collections.unmodifiableSet(batch.futures.keySet()));
+    } catch (RuntimeException e) {
+      values = Futures.immediateFailedFuture(e);
+    }
+    Futures.addCallback(values, new FutureCallback<Map<K, V>>() {
+      @Override
+      public void onSuccess(Map<K, V> found) {
+        batch.set(found);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        batch.setException(t);
+      }
+    });
+  }
+
+}
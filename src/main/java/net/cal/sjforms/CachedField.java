@@ -0,0 +1,83 @@
+package net.cal.sjforms;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * A field that remembers the outcomes of validating recently seen inputs, failures
+ * included. See {@link Field#cached(int)}.
+ *
+ * <p>The cache is split into independently locked segments, each of which evicts its
+ * least recently used entries once the cache is full. Null inputs are never cached.</p>
+ *
+ * @param <T> the type of validated result this field returns
+ */
+public final class CachedField<T> extends Field<T> {
+
+  private final Field<T> field;
+  private final Cache<String, Outcome<T>> cache;
+
+  CachedField(Field<T> field, int maxEntries) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Illegal maximum cache size " + maxEntries);
+    }
+    this.field = field;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maxEntries)
+        .recordStats()
+        .build();
+  }
+
+  @Override
+  public String getName() {
+    return field.getName();
+  }
+
+  @Override
+  public T validate(String value) throws ValidationException {
+    return tryValidate(value).getOrThrow();
+  }
+
+  @Override
+  public Outcome<T> tryValidate(String value) {
+    if (value == null) {
+      return field.tryValidate(null);
+    }
+    Outcome<T> outcome = cache.getIfPresent(value);
+    if (outcome == null) {
+      // Two threads may both miss and validate the same input; since the field is pure
+      // they will compute equal outcomes, so it does not matter which one is kept.
+      outcome = field.tryValidate(value);
+      cache.put(value, outcome);
+    }
+    return outcome;
+  }
+
+  @Override
+  boolean isPure() {
+    return true;
+  }
+
+  /**
+   * @return statistics for this field's cache (hits, misses, evictions, etc.)
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /**
+   * @return the approximate number of cached inputs
+   */
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * Forget all cached inputs. Statistics are not reset.
+   */
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+}
@@ -0,0 +1,47 @@
+package net.cal.sjforms;
+
+import java.util.List;
+
+/**
+ * A {@link CrossFieldValidator} attached to a form, with its target and dependencies
+ * resolved to slots.
+ */
+final class CrossFieldCheck {
+
+  final int target;
+  /** the slots the check reads, including the target */
+  final int[] slots;
+  final CrossFieldValidator validator;
+
+  /**
+   * @throws IllegalArgumentException if the target or a dependency is not on the form
+   */
+  CrossFieldCheck(SlotLayout layout, Field<?> target, CrossFieldValidator validator) {
+    this.target = slotOf(layout, target);
+    List<? extends Field<?>> dependencies = validator.getDependencies();
+    int[] slots = new int[dependencies.size() + 1];
+    slots[0] = this.target;
+    for (int i = 0; i < dependencies.size(); ++i) {
+      slots[i + 1] = slotOf(layout, dependencies.get(i));
+    }
+    this.slots = slots;
+    this.validator = validator;
+  }
+
+  private static int slotOf(SlotLayout layout, Field<?> field) {
+    int slot = layout.slotOf(field);
+    if (slot < 0) {
+      throw new IllegalArgumentException("Field " + field.getName() + " is not on the form");
+    }
+    return slot;
+  }
+
+  /**
+   * Run the check on values that are all valid.
+   * @return null if the values are consistent, or the reason they are not
+   */
+  ValidationError check(SlotLayout layout, ParseResult values) {
+    return validator.check(layout.names[target], values);
+  }
+
+}
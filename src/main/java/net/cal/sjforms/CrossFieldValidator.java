@@ -0,0 +1,37 @@
+package net.cal.sjforms;
+
+import java.util.List;
+
+/**
+ * A check on the values of several fields together, such as "end must be at least
+ * start". Cross-field validators are attached to a {@link Form} with
+ * {@link Form#withCrossFieldValidator(Field, CrossFieldValidator)}, which names the
+ * <em>target</em> field that a failure is reported for.
+ *
+ * <p>Cross-field validators run after every field has been validated, and only when the
+ * target and all of the validator's dependencies have valid values (which may be null
+ * for optional fields without input); a field that fails on its own is reported as such,
+ * and the checks that depend on it are skipped. Declaring the dependencies lets a
+ * {@link ValidationSession} re-run only the checks affected by an edit.</p>
+ *
+ * <p>Like {@link PureValidator}s, cross-field validators must only depend on the values
+ * they are given.</p>
+ */
+public interface CrossFieldValidator {
+
+  /**
+   * @return every field whose value {@link #check(String, ParseResult)} reads (the target
+   *         field may be included, but does not have to be)
+   */
+  List<? extends Field<?>> getDependencies();
+
+  /**
+   * Check the values.
+   * @param fieldName the name of the target field, to report a failure for
+   * @param values the parsed values of the form, which include valid values for the
+   *               target and every dependency
+   * @return null if the values are consistent, or the reason they are not
+   */
+  ValidationError check(String fieldName, ParseResult values);
+
+}
@@ -0,0 +1,356 @@
+package net.cal.sjforms;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads delimited records (CSV or TSV) and validates each one with a {@link Form}, as
+ * by {@link Form#parseAll(java.util.Map)}.
+ *
+ * <p>The first line of the input is a header naming the columns. Columns are bound to
+ * the form's fields by name once, when the header is read; columns that do not name a
+ * field are skipped without ever being turned into Strings, and fields without a
+ * column are treated as missing. (For a {@link Form#strict()} form, columns that do not
+ * name a field, or repeat the name of an earlier column, are reported once, as an
+ * {@link IOException} from reading the header whose cause is a
+ * {@link FormValidationException} listing them.) After that, each record's cells go
+ * straight to the fields. The reader reuses a single input buffer and a single row
+ * buffer, and never keeps more than a maximum number of characters of a cell or of a record (1 MiB and
+ * 4 MiB characters by default), so memory use does not depend on the size of the input.
+ * A record with a longer cell in a bound column, or a longer record, fails without
+ * being validated (an overlong header is an {@link IOException}), and reading carries on
+ * with the next record.</p>
+ *
+ * <p>Example:
+ * <pre>
+ *   try (DelimitedRecordReader reader = DelimitedRecordReader.csv(FORM, inputStream)) {
+ *     reader.readAll(new RecordHandler() {
+ *       public void onRecord(long row, ParseResult result) { ... }
+ *       public void onFailure(long row, FormValidationException failure) { ... }
+ *     });
+ *   }
+ * </pre></p>
+ *
+ * <p>Cells follow RFC 4180: a cell may be quoted with <code>"</code>, in which case it
+ * may contain the delimiter, line breaks, and doubled quotes (<code>""</code>) standing
+ * for a single quote. Records end with <code>\n</code>, <code>\r\n</code> or
+ * <code>\r</code>; blank lines are skipped. An empty unquoted cell is a missing value
+ * (null), while a quoted empty cell (<code>""</code>) is the empty string. Records with
+ * fewer cells than the header are padded with missing values; extra cells are ignored.
+ * Malformed quoting is read leniently: text after a closing quote is kept, and an
+ * unterminated quote runs to the end of the input (so that record is almost certainly
+ * too long and fails).</p>
+ *
+ * <p>Instances of this class are not threadsafe.</p>
+ */
+public final class DelimitedRecordReader implements Closeable {
+
+  /** The maximum number of characters in a cell, unless given to the constructor. */
+  public static final int DEFAULT_MAX_CELL_LENGTH = 1 << 20;
+  /** The maximum number of characters in a record, unless given to the constructor. */
+  public static final int DEFAULT_MAX_RECORD_LENGTH = 1 << 22;
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final int NOT_BOUND = -1;
+
+  private final Form form;
+  private final Reader in;
+  private final char delimiter;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private final int maxCellLength;
+  private final int maxRecordLength;
+  private int position;
+  private int limit;
+  /** the number of characters read so far */
+  private long consumed;
+  /** the value of {@link #consumed} before the first character of the current row */
+  private long rowStart;
+  private final StringBuilder cell = new StringBuilder();
+  /** true if the current cell was cut short at the maximum cell or record length */
+  private boolean cellTruncated;
+  private final String[] raw;
+  /** the slots whose cells in the current row were longer than the maximum */
+  private final boolean[] tooLong;
+  private boolean anyTooLong;
+  private boolean recordTooLong;
+  private int[] columnSlots;
+  private long row;
+
+  /**
+   * Construct a reader for the given delimiter.
+   * @param form the form to validate records with
+   * @param in the input, starting with the header line
+   * @param delimiter the character that separates cells (e.g. ',' or '\t')
+   */
+  public DelimitedRecordReader(Form form, Reader in, char delimiter) {
+    this(form, in, delimiter, DEFAULT_MAX_CELL_LENGTH, DEFAULT_MAX_RECORD_LENGTH);
+  }
+
+  /**
+   * Construct a reader for the given delimiter and limits.
+   * @param form the form to validate records with
+   * @param in the input, starting with the header line
+   * @param delimiter the character that separates cells (e.g. ',' or '\t')
+   * @param maxCellLength the greatest number of characters in a cell of a column that is
+   *                      bound to a field (or of the header)
+   * @param maxRecordLength the greatest number of characters in a record, not counting
+   *                        the line break that ends it
+   */
+  public DelimitedRecordReader(Form form, Reader in, char delimiter, int maxCellLength, int maxRecordLength) {
+    if (delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+      throw new IllegalArgumentException("Illegal delimiter " + (int)delimiter);
+    }
+    if (maxCellLength < 1 || maxRecordLength < 1) {
+      throw new IllegalArgumentException("Illegal maximum length: " + Math.min(maxCellLength, maxRecordLength));
+    }
+    this.form = form;
+    this.in = in;
+    this.delimiter = delimiter;
+    this.maxCellLength = maxCellLength;
+    this.maxRecordLength = maxRecordLength;
+    this.raw = new String[form.getFields().size()];
+    this.tooLong = new boolean[raw.length];
+  }
+
+  public static DelimitedRecordReader csv(Form form, Reader in) {
+    return new DelimitedRecordReader(form, in, ',');
+  }
+
+  public static DelimitedRecordReader csv(Form form, InputStream in) {
+    return csv(form, new InputStreamReader(in, StandardCharsets.UTF_8));
+  }
+
+  public static DelimitedRecordReader tsv(Form form, Reader in) {
+    return new DelimitedRecordReader(form, in, '\t');
+  }
+
+  public static DelimitedRecordReader tsv(Form form, InputStream in) {
+    return tsv(form, new InputStreamReader(in, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Read and validate every remaining record, passing each outcome to the handler.
+   * @param handler the handler for results and failures
+   * @return the number of records read
+   * @throws IOException if reading fails, or if the header is too long or (for a strict
+   *         form) has unknown or repeated column names
+   */
+  public long readAll(RecordHandler handler) throws IOException {
+    long start = row;
+    while (readRecord(handler)) {
+      // keep going
+    }
+    return row - start;
+  }
+
+  /**
+   * Read and validate the next record, passing its outcome to the handler.
+   * @param handler the handler for the result or failure
+   * @return false if there are no more records (in which case the handler is not called)
+   * @throws IOException if reading fails, or if the header is too long or (for a strict
+   *         form) has unknown or repeated column names
+   */
+  public boolean readRecord(RecordHandler handler) throws IOException {
+    if (columnSlots == null) {
+      bindHeader();
+    }
+    Arrays.fill(raw, null);
+    if (!readRow(null)) {
+      return false;
+    }
+    ++row;
+    if (recordTooLong || anyTooLong) {
+      handler.onFailure(row, tooLongFailure());
+      return true;
+    }
+    ParseResult result;
+    try {
+      result = form.parseAllRaw(raw);
+    } catch (FormValidationException e) {
+      handler.onFailure(row, e);
+      return true;
+    }
+    handler.onRecord(row, result);
+    return true;
+  }
+
+  /**
+   * @return the failure of a record that was too long, or had cells that were
+   */
+  private FormValidationException tooLongFailure() {
+    if (recordTooLong) {
+      // cells may have been cut short by the record's length, so only report that
+      return new FormValidationException(Collections.<Field, ValidationException>emptyMap(), Collections.singletonList(
+          new ValidationException("row " + row, "record is longer than " + maxRecordLength + " characters")), false);
+    }
+    Field[] fields = form.layout().fields;
+    Map<Field, ValidationException> failures = new HashMap<>();
+    for (int slot = 0; slot < tooLong.length; ++slot) {
+      if (tooLong[slot]) {
+        failures.put(fields[slot], new ValidationException(fields[slot].getName(), "cell is longer than " + maxCellLength + " characters"));
+      }
+    }
+    return new FormValidationException(failures, Collections.<ValidationException>emptyList(), false);
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private void bindHeader() throws IOException {
+    List<String> header = new ArrayList<>();
+    readRow(header);
+    if (recordTooLong || anyTooLong) {
+      throw new IOException("Header is longer than the maximum of " + (recordTooLong ? maxRecordLength + " characters" : maxCellLength + " characters per cell"));
+    }
+    FieldIndex index = form.index();
+    columnSlots = new int[header.size()];
+    Arrays.fill(columnSlots, NOT_BOUND);
+    boolean[] bound = new boolean[raw.length];
+    List<ValidationException> rejected = null;
+    for (int column = 0; column < header.size(); ++column) {
+      String name = header.get(column);
+      int slot = index.find(name);
+      if (slot >= 0 && !bound[slot]) {
+        columnSlots[column] = slot;
+        bound[slot] = true;
+      } else if (form.isStrict()) {
+        // as for a map, unknown and repeated names fail a strict form; otherwise the
+        // column is skipped (so only the first of several with the same name is read)
+        if (rejected == null) {
+          rejected = new ArrayList<>();
+        }
+        rejected.add(new ValidationException(name, slot < 0 ? "unknown parameter" : "duplicate parameter"));
+      }
+    }
+    if (rejected != null) {
+      throw new IOException("Header has columns that the strict form does not accept",
+          new FormValidationException(Collections.<Field, ValidationException>emptyMap(), rejected, false));
+    }
+  }
+
+  /**
+   * Read one row. If <code>header</code> is null, the cells of bound columns are stored in
+   * {@link #raw}; otherwise every cell is added to <code>header</code>.
+   * @return false if the input ended before the row started
+   */
+  private boolean readRow(List<String> header) throws IOException {
+    int c = read();
+    while (c == '\n' || c == '\r') {
+      c = read();
+    }
+    if (c < 0) {
+      return false;
+    }
+    rowStart = consumed - 1;
+    if (anyTooLong) {
+      Arrays.fill(tooLong, false);
+      anyTooLong = false;
+    }
+    recordTooLong = false;
+    for (int column = 0; ; ++column) {
+      int slot = header == null && column < columnSlots.length ? columnSlots[column] : NOT_BOUND;
+      boolean keep = header != null || slot != NOT_BOUND;
+      boolean quoted = c == '"';
+      cell.setLength(0);
+      cellTruncated = false;
+      if (quoted) {
+        c = read();
+        while (c >= 0) {
+          if (c == '"') {
+            c = read();
+            if (c != '"') {
+              break;
+            }
+          }
+          if (keep) {
+            append(c);
+          }
+          c = read();
+        }
+      }
+      while (c >= 0 && c != delimiter && c != '\n' && c != '\r') {
+        if (keep) {
+          append(c);
+        }
+        c = read();
+      }
+      if (cellTruncated) {
+        // the cell (or the record so far) is too long; anything kept of it is useless
+        anyTooLong = true;
+        if (slot != NOT_BOUND) {
+          tooLong[slot] = true;
+        }
+      } else if (header != null) {
+        header.add(cell.toString());
+      } else if (keep) {
+        raw[slot] = quoted || cell.length() > 0 ? cell.toString() : null;
+      }
+      if (c != delimiter) {
+        break;
+      }
+      c = read();
+    }
+    // the character that ended the row (if any) is not part of it
+    recordTooLong = consumed - rowStart - (c >= 0 ? 1 : 0) > maxRecordLength;
+    if (recordTooLong) {
+      Arrays.fill(raw, null);
+    }
+    if (c == '\r' && peek() == '\n') {
+      read();
+    }
+    return true;
+  }
+
+  /**
+   * Add a character to the current cell, unless that would make it (or the record)
+   * longer than the maximum.
+   */
+  private void append(int c) {
+    if (cell.length() < maxCellLength && consumed - rowStart <= maxRecordLength) {
+      cell.append((char)c);
+    } else {
+      cellTruncated = true;
+    }
+  }
+
+  private int read() throws IOException {
+    if (position == limit && !fill()) {
+      return -1;
+    }
+    ++consumed;
+    return buffer[position++];
+  }
+
+  private int peek() throws IOException {
+    if (position == limit && !fill()) {
+      return -1;
+    }
+    return buffer[position];
+  }
+
+  private boolean fill() throws IOException {
+    int n;
+    do {
+      n = in.read(buffer, 0, buffer.length);
+    } while (n == 0);
+    if (n < 0) {
+      return false;
+    }
+    position = 0;
+    limit = n;
+    return true;
+  }
+
+}
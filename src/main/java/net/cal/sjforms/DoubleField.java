@@ -0,0 +1,165 @@
+package net.cal.sjforms;
+
+import net.cal.sjforms.validators.NumberParsing;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Field} for double values. In addition to the usual {@link #validate(String)}
+ * method, double fields offer {@link #validateDouble(String)} and
+ * {@link #validateDouble(String, double)}, which parse, check and clamp the value without
+ * ever boxing it. The range, clamp and default steps on this class take primitive
+ * arguments and compare primitives (with the same ordering as
+ * {@link Double#compare(double, double)}, so NaN is greater than everything
+ * else, just as when comparing boxed values).
+ *
+ * <p>Example: create a field for an optional double parameter called "x" that
+ * defaults to 0.5 and is clamped to [0, 1]:
+ * <pre>
+ *   DoubleField X_FIELD = Field.doubleField("x").withDefault(0.5).clampMin(0).clampMax(1);
+ *   // ...
+ *   double x = X_FIELD.validateDouble(input);
+ * </pre></p>
+ *
+ * Instances are obtained with {@link Field#doubleField(String)}.
+ */
+public final class DoubleField extends PrimitiveField<Double> {
+
+  private final double[] operands;
+
+  DoubleField(String name) {
+    this(name, new byte[0], new double[0]);
+  }
+
+  private DoubleField(String name, byte[] ops, double[] operands) {
+    super(name, ops);
+    this.operands = operands;
+  }
+
+  private DoubleField then(byte op, double operand) {
+    double[] newOperands = Arrays.copyOf(operands, operands.length + 1);
+    newOperands[operands.length] = operand;
+    return new DoubleField(getName(), append(ops, op), newOperands);
+  }
+
+  @Override
+  public DoubleField required() {
+    return then(REQUIRED, 0);
+  }
+
+  public DoubleField withDefault(double defaultValue) {
+    return then(DEFAULT, defaultValue);
+  }
+
+  public DoubleField atLeast(double min) {
+    return then(AT_LEAST, min);
+  }
+
+  public DoubleField greaterThan(double min) {
+    return then(GREATER_THAN, min);
+  }
+
+  public DoubleField clampMin(double min) {
+    return then(CLAMP_MIN, min);
+  }
+
+  public DoubleField atMost(double max) {
+    return then(AT_MOST, max);
+  }
+
+  public DoubleField lessThan(double max) {
+    return then(LESS_THAN, max);
+  }
+
+  public DoubleField clampMax(double max) {
+    return then(CLAMP_MAX, max);
+  }
+
+  /**
+   * Validate an input that must produce a value.
+   * @param value the raw input
+   * @return the validated value
+   * @throws ValidationException if the input is malformed, fails any check, or
+   *         is missing (see {@link #hasValue(String)})
+   */
+  public double validateDouble(String value) throws ValidationException {
+    if (!hasValue(value)) {
+      throw missing();
+    }
+    return validateDouble(value, 0);
+  }
+
+  /**
+   * Validate an input that may be missing.
+   * @param value the raw input
+   * @param missingValue the value to return if the input does not produce a value
+   *                     (see {@link #hasValue(String)})
+   * @return the validated value, or <code>missingValue</code>
+   * @throws ValidationException if the input is malformed or fails any check
+   */
+  public double validateDouble(String value, double missingValue) throws ValidationException {
+    boolean present = value != null;
+    double result = missingValue;
+    if (present) {
+      result = NumberParsing.parseDouble(value);
+      if (result != result && !NumberParsing.isNaN(value)) {
+        throw new ValidationException(getName(), value, "not a valid double");
+      }
+    }
+    for (int i = 0; i < ops.length; ++i) {
+      double operand = operands[i];
+      switch (ops[i]) {
+        case DEFAULT:
+          if (!present) {
+            result = operand;
+            present = true;
+          }
+          break;
+        case REQUIRED:
+          if (!present) {
+            throw missing();
+          }
+          break;
+        case AT_LEAST:
+          if (present && Double.compare(result, operand) < 0) {
+            throw new ValidationError(getName(), result, "must be at least ", operand).toException();
+          }
+          break;
+        case GREATER_THAN:
+          if (present && Double.compare(result, operand) <= 0) {
+            throw new ValidationError(getName(), result, "must be greater than ", operand).toException();
+          }
+          break;
+        case AT_MOST:
+          if (present && Double.compare(result, operand) > 0) {
+            throw new ValidationError(getName(), result, "must be at most ", operand).toException();
+          }
+          break;
+        case LESS_THAN:
+          if (present && Double.compare(result, operand) >= 0) {
+            throw new ValidationError(getName(), result, "must be less than ", operand).toException();
+          }
+          break;
+        case CLAMP_MIN:
+          if (present && Double.compare(result, operand) < 0) {
+            result = operand;
+          }
+          break;
+        case CLAMP_MAX:
+          if (present && Double.compare(result, operand) > 0) {
+            result = operand;
+          }
+          break;
+        default:
+          throw new AssertionError(ops[i]);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Double validate(String value) throws ValidationException {
+    return hasValue(value) ? validateDouble(value, 0) : null;
+  }
+
+}
@@ -0,0 +1,168 @@
+package net.cal.sjforms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the validation failures of {@link Form#parseAll(java.util.Map, ErrorSink)}, up
+ * to a fixed number of them. Failures are kept as {@link ValidationError}s (no exceptions
+ * are created for fields built from {@link TryValidator}s) in two parallel arrays that
+ * are allocated once, so collecting errors allocates nothing. Once the sink is full,
+ * the form stops validating, so junk input costs at most as much as the first few
+ * failing fields.
+ *
+ * <p>A sink is cleared at the start of each parse and can be reused for any number of
+ * requests, but it is not threadsafe: give each thread its own, e.g. with a
+ * {@link ThreadLocal}.</p>
+ *
+ * <p>Failures are kept in the order they were found: failures of the input as a whole
+ * (which have no field, see {@link FormValidationException#getInputFailures()}) first,
+ * then failing fields in the order they were validated: that of {@link Form#getFields()},
+ * or of {@link Form#cheapFirst()} for forms made by it.</p>
+ */
+public final class ErrorSink {
+
+  private final Field<?>[] fields;
+  private final ValidationError[] errors;
+  private int size;
+  private boolean truncated;
+
+  /**
+   * @param maxErrors the number of failures to collect before validation stops
+   */
+  public ErrorSink(int maxErrors) {
+    if (maxErrors < 1) {
+      throw new IllegalArgumentException("Illegal maximum number of errors: " + maxErrors);
+    }
+    fields = new Field<?>[maxErrors];
+    errors = new ValidationError[maxErrors];
+  }
+
+  /**
+   * @return the greatest number of failures this sink collects
+   */
+  public int getMaxErrors() {
+    return errors.length;
+  }
+
+  /**
+   * @return the number of failures collected
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return true if no failures were collected
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return true if this sink filled up before the whole input was validated, so that
+   *         there may have been more failures than were collected
+   */
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  /**
+   * Get a failure.
+   * @param index the index of the failure, from 0 to <code>size() - 1</code>
+   * @return the reason for the failure
+   */
+  public ValidationError getError(int index) {
+    checkIndex(index);
+    return errors[index];
+  }
+
+  /**
+   * Get the field that failed.
+   * @param index the index of the failure, from 0 to <code>size() - 1</code>
+   * @return the field that failed, or null if the failure was of the input as a whole
+   */
+  public Field<?> getField(int index) {
+    checkIndex(index);
+    return fields[index];
+  }
+
+  /**
+   * Copy the collected failures into an exception, as would be thrown by
+   * {@link Form#parseAll(java.util.Map)} (but with at most {@link #getMaxErrors()} failures).
+   * @return a new exception
+   */
+  public FormValidationException toException() {
+    Map<Field, ValidationException> failures = new LinkedHashMap<>();
+    List<ValidationException> inputFailures = new ArrayList<>();
+    for (int i = 0; i < size; ++i) {
+      if (fields[i] == null) {
+        inputFailures.add(errors[i].toException());
+      } else {
+        failures.put(fields[i], errors[i].toException());
+      }
+    }
+    return new FormValidationException(failures, inputFailures, false);
+  }
+
+  /**
+   * Forget all failures.
+   */
+  public void clear() {
+    Arrays.fill(fields, 0, size, null);
+    Arrays.fill(errors, 0, size, null);
+    size = 0;
+    truncated = false;
+  }
+
+  /**
+   * @return true if no more failures can be collected
+   */
+  boolean isFull() {
+    return size == errors.length;
+  }
+
+  /**
+   * @return the index of the first failure of the given field, or -1 if it has none
+   */
+  int indexOf(Field<?> field) {
+    for (int i = 0; i < size; ++i) {
+      if (fields[i] == field) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Collect a failure, or mark this sink as truncated if it is full.
+   * @param field the field that failed, or null for a failure of the input as a whole
+   * @param error the reason
+   */
+  void add(Field<?> field, ValidationError error) {
+    if (isFull()) {
+      truncated = true;
+      return;
+    }
+    fields[size] = field;
+    errors[size] = error;
+    ++size;
+  }
+
+  /**
+   * Record that validation stopped early because this sink is full.
+   */
+  void truncate() {
+    truncated = true;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Error " + index + " of " + size);
+    }
+  }
+
+}
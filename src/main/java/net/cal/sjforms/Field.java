@@ -1,8 +1,18 @@
 package net.cal.sjforms;
 
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.Uninterruptibles;
 import net.cal.sjforms.validators.*;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * A field is responsible for parsing a string into a validated object. This class
@@ -29,6 +39,10 @@ import java.util.Arrays;
  *   Field&lt;Integer&gt; Y_FIELD = Field.doubleField("y").required().oneOf(0, 2, 4);
  * </pre></p>
  *
+ * <p>The int, long and double fields are specialized ({@link IntField}, {@link LongField},
+ * {@link DoubleField}) so that they can be parsed, checked and clamped without boxing.
+ * String fields are {@link StringField}s, which add steps that only apply to strings.</p>
+ *
  * <p>Example: create a field for an optional {@link java.util.Locale} parameter called "locale"
  * (you can also use this syntax to add arbitrary custom validators):
  * <pre>
@@ -46,45 +60,41 @@ public abstract class Field<T> {
 
   private static final Validator<String, Byte> BYTE_VALIDATOR = new ByteValidator();
   private static final Validator<String, Short> SHORT_VALIDATOR = new ShortValidator();
-  private static final Validator<String, Integer> INT_VALIDATOR = new IntValidator();
-  private static final Validator<String, Long> LONG_VALIDATOR = new LongValidator();
-  private static final Validator<String, Double> DOUBLE_VALIDATOR = new DoubleValidator();
   private static final Validator<String, Float> FLOAT_VALIDATOR = new FloatValidator();
   private static final Validator<String, Boolean> BOOLEAN_VALIDATOR = new BooleanValidator();
   private static final Validator<String, Character> CHAR_VALIDATOR = new CharValidator();
   private static final Validator REQUIRED_VALIDATOR = new RequiredValidator();
 
-  public static Field<String> named(final String name) {
-    return new Field<String>() {
-      @Override
-      public String getName() {
-        return name;
-      }
+  /**
+   * The slot this field was given by the first {@link Form} it was added to. It is set
+   * at most once (from -1, atomically) and never changes afterwards. This is only a hint;
+   * see {@link SlotLayout#slotOf(Field)}.
+   */
+  volatile int slotHint = -1;
 
-      @Override
-      public String validate(String value) {
-        return value;
-      }
-    };
+  public static Field<String> named(String name) {
+    return new NamedField(name);
   }
 
-  public <B> Field<B> withValidator(final Validator<T, B> validator) {
-    final Field<T> parent = this;
-    return new Field<B>() {
-      @Override
-      public String getName() {
-        return parent.getName();
-      }
+  public <B> Field<B> withValidator(Validator<T, B> validator) {
+    return new ValidatedField<>(this, validator);
+  }
 
-      @Override
-      public B validate(String value) throws ValidationException {
-        return validator.validate(getName(), parent.validate(value));
-      }
-    };
+  /**
+   * Add a validator that completes asynchronously. The resulting field can still be
+   * validated synchronously (e.g. by {@link Form#parse(java.util.Map)}), but that blocks
+   * until the validator completes; use
+   * {@link Form#parseAsync(java.util.Map, java.util.concurrent.Executor)} instead.
+   * @param validator the validator to add
+   * @param <B> the output type of the validator
+   * @return a new field
+   */
+  public <B> Field<B> withAsyncValidator(AsyncValidator<T, B> validator) {
+    return new AsyncValidatedField<>(this, validator);
   }
 
-  public static Field<String> stringField(String name) {
-    return named(name);
+  public static StringField stringField(String name) {
+    return new StringField(named(name));
   }
 
   public static Field<Byte> byteField(String name) {
@@ -95,16 +105,36 @@ public abstract class Field<T> {
     return named(name).withValidator(SHORT_VALIDATOR);
   }
 
-  public static Field<Integer> intField(String name) {
-    return named(name).withValidator(INT_VALIDATOR);
+  public static IntField intField(String name) {
+    return new IntField(name);
+  }
+
+  public static LongField longField(String name) {
+    return new LongField(name);
+  }
+
+  /**
+   * Create a field that takes every value given for a parameter and parses them into an
+   * <code>int[]</code>. See {@link ListField}.
+   * @param name the parameter name
+   * @return a new field
+   */
+  public static IntListField intList(String name) {
+    return new IntListField(name);
   }
 
-  public static Field<Long> longField(String name) {
-    return named(name).withValidator(LONG_VALIDATOR);
+  /**
+   * Create a field that takes every value given for a parameter and parses them into a
+   * <code>long[]</code>. See {@link ListField}.
+   * @param name the parameter name
+   * @return a new field
+   */
+  public static LongListField longList(String name) {
+    return new LongListField(name);
   }
 
-  public static Field<Double> doubleField(String name) {
-    return named(name).withValidator(DOUBLE_VALIDATOR);
+  public static DoubleField doubleField(String name) {
+    return new DoubleField(name);
   }
 
   public static Field<Float> floatField(String name) {
@@ -119,6 +149,58 @@ public abstract class Field<T> {
     return named(name).withValidator(CHAR_VALIDATOR);
   }
 
+  /**
+   * Create a field whose values are the constants of a Java enum, looked up by
+   * {@link Enum#name() name}.
+   * @param name the name of the field
+   * @param type the enum type
+   * @param <E> the enum type
+   * @return a new field
+   */
+  public static <E extends Enum<E>> Field<E> enumField(String name, Class<E> type) {
+    return enumField(name, type, false);
+  }
+
+  /**
+   * Create a field whose values are the constants of a Java enum, looked up by
+   * {@link Enum#name() name}.
+   * @param name the name of the field
+   * @param type the enum type
+   * @param ignoreCase whether to ignore case when matching names
+   * @param <E> the enum type
+   * @return a new field
+   */
+  public static <E extends Enum<E>> Field<E> enumField(String name, Class<E> type, boolean ignoreCase) {
+    return named(name).withValidator(new EnumConstantValidator<>(type, ignoreCase));
+  }
+
+  /**
+   * Create a field for a group of parameters whose keys share a prefix, such as
+   * <code>address.street</code> and <code>address.zip</code>, which are parsed by a
+   * sub-form (here, one with fields named "street" and "zip"). See {@link SubFormField}.
+   * @param prefix the name of the group, which is followed by '.' in each key
+   * @param form the sub-form that parses the group
+   * @return a new field
+   */
+  public static SubFormField subForm(String prefix, Form form) {
+    return new SubFormField(prefix, form, false);
+  }
+
+  /**
+   * Create a field for a list of parameter groups whose keys share a prefix and an index,
+   * such as <code>items[0].qty</code> and <code>items[1].qty</code>, each of which is
+   * parsed by a sub-form. See {@link SubFormListField}.
+   * @param prefix the name of the list, which is followed by <code>[index].</code> in each key
+   * @param form the sub-form that parses each group
+   * @param maxCount the number of indexes to accept: indexes from 0 to
+   *                 <code>maxCount - 1</code> are allowed, and input with any greater
+   *                 index fails as soon as that index is seen
+   * @return a new field
+   */
+  public static SubFormListField subFormList(String prefix, Form form, int maxCount) {
+    return new SubFormListField(prefix, form, maxCount, false);
+  }
+
   @SuppressWarnings("unchecked")
   public Field<T> required() {
     // this is safe because REQUIRED_VALIDATOR does not read the value other than to check whether it is null
@@ -129,8 +211,10 @@ public abstract class Field<T> {
     return withValidator(new DefaultValueValidator<>(defaultValue));
   }
 
-  @SafeVarargs
-  public final Field<T> oneOf(T... values) {
+  // not final (so that StringField can narrow the return type), and so not @SafeVarargs;
+  // the array is only read, so it is safe all the same
+  @SuppressWarnings("unchecked")
+  public Field<T> oneOf(T... values) {
     return oneOf(Arrays.asList(values));
   }
 
@@ -174,7 +258,452 @@ public abstract class Field<T> {
     return (Field<T>)withValidator(new ClampedMaxValidator(max));
   }
 
+  /**
+   * "Freeze" this field. Each call to {@link #withValidator(Validator)} wraps the field
+   * in another layer, so validating a field built from a long chain of validators
+   * makes one nested call per step. The returned field validates exactly like this one
+   * but runs all of the validators from a single array-driven loop, so its overhead
+   * does not grow with the depth of the chain.
+   *
+   * <p>Compiling is optional and is best done once, when the field is declared:
+   * <pre>
+   *   Field&lt;Locale&gt; LOCALE_FIELD = Field.named("locale").withValidator(new LocaleValidator()).required().compile();
+   * </pre>
+   * Note that the compiled field is a different object than this one, so it (and not
+   * this field) must be used to build forms and to look up parsed values.</p>
+   *
+   * @return a field equivalent to this one (possibly this field itself if there is
+   *         nothing to flatten, e.g. for {@link IntField}s, which are always flat)
+   */
+  public Field<T> compile() {
+    return this;
+  }
+
+  /**
+   * Remember the outcomes of validating recently seen inputs. This is worthwhile for
+   * parameters that keep repeating the same few values (sort orders, locale codes, page
+   * sizes) and have expensive validators. Failures are remembered too, as
+   * {@link net.cal.sjforms.ValidationError}s; a fresh exception is still created each time
+   * the returned field's {@link #validate(String)} fails.
+   *
+   * <p>Like {@link #compile()}, this returns a different field object, which must be used
+   * to build forms and to look up parsed values.</p>
+   *
+   * @param maxEntries the maximum number of inputs to remember
+   * @return a caching field equivalent to this one
+   * @throws java.lang.IllegalStateException if this field is not made entirely of
+   *         {@link net.cal.sjforms.PureValidator}s, since the cached outcomes would then be wrong
+   */
+  public CachedField<T> cached(int maxEntries) {
+    if (!isPure()) {
+      throw new IllegalStateException("Field " + getName() + " has validators that are not known to be pure");
+    }
+    return new CachedField<>(this, maxEntries);
+  }
+
+  /**
+   * @return true if every validator of this field is a {@link net.cal.sjforms.PureValidator}
+   */
+  boolean isPure() {
+    return false;
+  }
+
+  /**
+   * Validate a value without throwing. Fields built from the builtin validators (and any
+   * other {@link TryValidator}s) report failures without creating exceptions at all.
+   * @param value the raw input (may be null)
+   * @return the validated value, or the reason validation failed
+   */
+  public Outcome<T> tryValidate(String value) {
+    try {
+      return Outcome.success(validate(value));
+    } catch (ValidationException e) {
+      return Outcome.failure(e.getError());
+    }
+  }
+
+  /**
+   * Validate a value asynchronously. For fields without any
+   * {@link net.cal.sjforms.AsyncValidator}s this validates the value immediately.
+   * @param value the raw input (may be null)
+   * @param executor the executor that runs each step after the first asynchronous one
+   * @return a future for the validated value, which fails with a
+   *         {@link net.cal.sjforms.ValidationException} if validation fails
+   */
+  public ListenableFuture<T> validateAsync(String value, Executor executor) {
+    try {
+      return Futures.immediateFuture(validate(value));
+    } catch (ValidationException e) {
+      return Futures.immediateFailedFuture(e);
+    }
+  }
+
+  /**
+   * @return true if this field has any {@link net.cal.sjforms.AsyncValidator}s
+   */
+  boolean isAsync() {
+    return false;
+  }
+
+  /**
+   * Validate this field's input when it may be structured (see {@link RawInput}). Fields
+   * that take structured input override this; all others just validate their raw value.
+   * @param raw the input of the form this field is in
+   * @param slot this field's position in the form
+   */
+  Object validateNested(RawInput raw, int slot) throws ValidationException {
+    return validate(raw.values[slot]);
+  }
+
+  /**
+   * Same as {@link #validateNested(RawInput, int)}, but asynchronously, as by
+   * {@link #validateAsync(String, Executor)}.
+   */
+  ListenableFuture<T> validateNestedAsync(RawInput raw, int slot, Executor executor) {
+    if (raw.nested(slot) == null) {
+      return validateAsync(raw.values[slot], executor);
+    }
+    try {
+      @SuppressWarnings("unchecked")
+      T value = (T)validateNested(raw, slot);
+      return Futures.immediateFuture(value);
+    } catch (ValidationException e) {
+      return Futures.immediateFailedFuture(e);
+    }
+  }
+
+  /**
+   * @return the {@link SubFormField} or {@link SubFormListField} that this field is (or
+   *         adds validators to), whose input is a group of keys, or null if there is none
+   */
+  Field<?> group() {
+    return null;
+  }
+
   public abstract String getName();
   public abstract T validate(String value) throws ValidationException;
 
+  @SuppressWarnings("unchecked")
+  private static <A, B> Outcome<B> tryStep(Validator<A, B> validator, String fieldName, A value) {
+    if (validator instanceof TryValidator) {
+      return ((TryValidator<A, B>)validator).tryValidate(fieldName, value);
+    }
+    try {
+      return Outcome.success(validator.validate(fieldName, value));
+    } catch (ValidationException e) {
+      return Outcome.failure(e.getError());
+    }
+  }
+
+  private static final class NamedField extends Field<String> {
+
+    private final String name;
+
+    NamedField(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String validate(String value) {
+      return value;
+    }
+
+    @Override
+    public Outcome<String> tryValidate(String value) {
+      return Outcome.success(value);
+    }
+
+    @Override
+    boolean isPure() {
+      return true;
+    }
+
+  }
+
+  private static final class ValidatedField<A, B> extends Field<B> {
+
+    private final Field<A> parent;
+    private final Validator<A, B> validator;
+
+    ValidatedField(Field<A> parent, Validator<A, B> validator) {
+      this.parent = parent;
+      this.validator = validator;
+    }
+
+    @Override
+    public String getName() {
+      return parent.getName();
+    }
+
+    @Override
+    public B validate(String value) throws ValidationException {
+      return validator.validate(getName(), parent.validate(value));
+    }
+
+    @Override
+    public Outcome<B> tryValidate(String value) {
+      Outcome<A> parsed = parent.tryValidate(value);
+      if (!parsed.isSuccess()) {
+        return parsed.asFailure();
+      }
+      return tryStep(validator, getName(), parsed.getValue());
+    }
+
+    @Override
+    public ListenableFuture<B> validateAsync(String value, Executor executor) {
+      if (!parent.isAsync()) {
+        return super.validateAsync(value, executor);
+      }
+      return then(parent.validateAsync(value, executor), executor);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object validateNested(RawInput raw, int slot) throws ValidationException {
+      // this cast is safe because the parent is a Field<A>
+      return validator.validate(getName(), (A)parent.validateNested(raw, slot));
+    }
+
+    @Override
+    ListenableFuture<B> validateNestedAsync(RawInput raw, int slot, Executor executor) {
+      if (!parent.isAsync()) {
+        return super.validateNestedAsync(raw, slot, executor);
+      }
+      return then(parent.validateNestedAsync(raw, slot, executor), executor);
+    }
+
+    private ListenableFuture<B> then(ListenableFuture<A> parent, Executor executor) {
+      return Futures.transform(parent, new AsyncFunction<A, B>() {
+        @Override
+        public ListenableFuture<B> apply(A parsed) {
+          try {
+            return Futures.immediateFuture(validator.validate(getName(), parsed));
+          } catch (ValidationException e) {
+            return Futures.immediateFailedFuture(e);
+          }
+        }
+      }, executor);
+    }
+
+    @Override
+    boolean isAsync() {
+      return parent.isAsync();
+    }
+
+    @Override
+    Field<?> group() {
+      return parent.group();
+    }
+
+    @Override
+    boolean isPure() {
+      return validator instanceof PureValidator && parent.isPure();
+    }
+
+    @Override
+    public Field<B> compile() {
+      Deque<Validator> steps = new ArrayDeque<>();
+      Field<?> root = this;
+      while (root instanceof ValidatedField || root instanceof StringField) {
+        if (root instanceof StringField) {
+          // a string field just wraps a chain, which is flattened like any other
+          root = ((StringField)root).field;
+        } else {
+          ValidatedField<?, ?> field = (ValidatedField<?, ?>)root;
+          steps.addFirst(field.validator);
+          root = field.parent;
+        }
+      }
+      if (root instanceof CompiledField) {
+        CompiledField<?> compiled = (CompiledField<?>)root;
+        for (int i = compiled.steps.length - 1; i >= 0; --i) {
+          steps.addFirst(compiled.steps[i]);
+        }
+        root = compiled.root;
+      }
+      return new CompiledField<>(getName(), root, steps.toArray(new Validator[steps.size()]));
+    }
+
+  }
+
+  private static final class CompiledField<T> extends Field<T> {
+
+    private final String name;
+    private final Field<?> root; // null when the root is a NamedField (i.e. it does nothing)
+    private final Validator[] steps;
+
+    CompiledField(String name, Field<?> root, Validator[] steps) {
+      this.name = name;
+      this.root = root instanceof NamedField ? null : root;
+      this.steps = steps;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public T validate(String value) throws ValidationException {
+      return applySteps(root == null ? value : root.validate(value));
+    }
+
+    @Override
+    Object validateNested(RawInput raw, int slot) throws ValidationException {
+      return applySteps(root == null ? raw.values[slot] : root.validateNested(raw, slot));
+    }
+
+    @SuppressWarnings("unchecked")
+    private T applySteps(Object result) throws ValidationException {
+      for (Validator step : steps) {
+        result = step.validate(name, result);
+      }
+      // this cast is safe because the steps were taken from a well-typed chain ending in a Field<T>
+      return (T)result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Outcome<T> tryValidate(String value) {
+      Outcome<?> result = root == null ? Outcome.success(value) : root.tryValidate(value);
+      for (Validator step : steps) {
+        if (!result.isSuccess()) {
+          break;
+        }
+        result = tryStep(step, name, result.getValue());
+      }
+      // this cast is safe for the same reason as in applySteps
+      return (Outcome<T>)result;
+    }
+
+    @Override
+    public ListenableFuture<T> validateAsync(String value, Executor executor) {
+      if (!isAsync()) {
+        return super.validateAsync(value, executor);
+      }
+      return then(root.validateAsync(value, executor), executor);
+    }
+
+    @Override
+    ListenableFuture<T> validateNestedAsync(RawInput raw, int slot, Executor executor) {
+      if (!isAsync()) {
+        return super.validateNestedAsync(raw, slot, executor);
+      }
+      return then(root.validateNestedAsync(raw, slot, executor), executor);
+    }
+
+    private ListenableFuture<T> then(ListenableFuture<?> root, Executor executor) {
+      return Futures.transform(root, new AsyncFunction<Object, T>() {
+        @Override
+        public ListenableFuture<T> apply(Object result) {
+          try {
+            return Futures.immediateFuture(applySteps(result));
+          } catch (ValidationException e) {
+            return Futures.immediateFailedFuture(e);
+          }
+        }
+      }, executor);
+    }
+
+    @Override
+    boolean isAsync() {
+      return root != null && root.isAsync();
+    }
+
+    @Override
+    Field<?> group() {
+      return root == null ? null : root.group();
+    }
+
+    @Override
+    boolean isPure() {
+      if (root != null && !root.isPure()) {
+        return false;
+      }
+      for (Validator step : steps) {
+        if (!(step instanceof PureValidator)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+  private static final class AsyncValidatedField<A, B> extends Field<B> {
+
+    private final Field<A> parent;
+    private final AsyncValidator<A, B> validator;
+
+    AsyncValidatedField(Field<A> parent, AsyncValidator<A, B> validator) {
+      this.parent = parent;
+      this.validator = validator;
+    }
+
+    @Override
+    public String getName() {
+      return parent.getName();
+    }
+
+    @Override
+    public B validate(String value) throws ValidationException {
+      return await(validateAsync(value, MoreExecutors.sameThreadExecutor()));
+    }
+
+    @Override
+    Object validateNested(RawInput raw, int slot) throws ValidationException {
+      return await(validateNestedAsync(raw, slot, MoreExecutors.sameThreadExecutor()));
+    }
+
+    private static <V> V await(ListenableFuture<V> future) throws ValidationException {
+      try {
+        return Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof ValidationException) {
+          throw (ValidationException)cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error)cause;
+        }
+        throw new UncheckedExecutionException(cause);
+      }
+    }
+
+    @Override
+    public ListenableFuture<B> validateAsync(String value, Executor executor) {
+      return then(parent.validateAsync(value, executor), executor);
+    }
+
+    @Override
+    ListenableFuture<B> validateNestedAsync(RawInput raw, int slot, Executor executor) {
+      return then(parent.validateNestedAsync(raw, slot, executor), executor);
+    }
+
+    private ListenableFuture<B> then(ListenableFuture<A> parent, Executor executor) {
+      return Futures.transform(parent, new AsyncFunction<A, B>() {
+        @Override
+        public ListenableFuture<B> apply(A parsed) {
+          return validator.validateAsync(getName(), parsed);
+        }
+      }, executor);
+    }
+
+    @Override
+    boolean isAsync() {
+      return true;
+    }
+
+    @Override
+    Field<?> group() {
+      return parent.group();
+    }
+
+  }
+
 }
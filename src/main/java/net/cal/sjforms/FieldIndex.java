@@ -0,0 +1,176 @@
+package net.cal.sjforms;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps field names to their positions in a {@link Form}. Names are stored as UTF-8 bytes
+ * in a small open-addressing hash table, so a name can be looked up straight out of an
+ * input buffer, without first materializing it as a String. A second table is keyed by
+ * {@link String#hashCode()}, which Strings cache, so that names which are already
+ * Strings (such as the keys of an input map) can be looked up without hashing them.
+ */
+final class FieldIndex {
+
+  private static final int EMPTY = -1;
+
+  private final byte[][] names;
+  private final int[] hashes;
+  private final int[] table;
+  private final String[] stringNames;
+  private final int[] stringTable;
+  private final int mask;
+
+  FieldIndex(List<Field> fields) {
+    int n = fields.size();
+    names = new byte[n][];
+    hashes = new int[n];
+    int capacity = Integer.highestOneBit(Math.max(2 * n, 2) - 1) << 1;
+    table = new int[capacity];
+    stringNames = new String[n];
+    stringTable = new int[capacity];
+    mask = capacity - 1;
+    Arrays.fill(table, EMPTY);
+    Arrays.fill(stringTable, EMPTY);
+    for (int i = 0; i < n; ++i) {
+      stringNames[i] = fields.get(i).getName();
+      int stringBucket = spread(stringNames[i].hashCode()) & mask;
+      while (stringTable[stringBucket] != EMPTY) {
+        stringBucket = (stringBucket + 1) & mask;
+      }
+      stringTable[stringBucket] = i;
+
+      if (hasUnpairedSurrogate(stringNames[i])) {
+        // such a name has no UTF-8 encoding (getBytes would turn the surrogate into '?'),
+        // so it can only be found by find(String)
+        names[i] = new byte[0];
+        continue;
+      }
+      byte[] name = stringNames[i].getBytes(StandardCharsets.UTF_8);
+      names[i] = name;
+      hashes[i] = hash(name, 0, name.length);
+      int bucket = spread(hashes[i]) & mask;
+      while (table[bucket] != EMPTY) {
+        bucket = (bucket + 1) & mask;
+      }
+      table[bucket] = i;
+    }
+  }
+
+  private static boolean hasUnpairedSurrogate(String name) {
+    for (int i = 0; i < name.length(); ++i) {
+      char c = name.charAt(i);
+      if (Character.isHighSurrogate(c) && i + 1 < name.length() && Character.isLowSurrogate(name.charAt(i + 1))) {
+        ++i;
+      } else if (Character.isSurrogate(c)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static int hash(byte[] bytes, int from, int to) {
+    int h = 0;
+    for (int i = from; i < to; ++i) {
+      h = 31 * h + (bytes[i] & 0xFF);
+    }
+    return h;
+  }
+
+  private static int spread(int h) {
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Find the position of the field with the given name.
+   * @return the position, or -1 if there is no such field
+   */
+  int find(String name) {
+    for (int bucket = spread(name.hashCode()) & mask; stringTable[bucket] != EMPTY; bucket = (bucket + 1) & mask) {
+      int slot = stringTable[bucket];
+      if (stringNames[slot].equals(name)) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Find the position of the field whose name is <code>key.substring(from, to)</code>,
+   * without creating the substring.
+   * @return the position, or -1 if there is no such field
+   */
+  int find(String key, int from, int to) {
+    int h = 0;
+    for (int i = from; i < to; ++i) {
+      h = 31 * h + key.charAt(i);
+    }
+    int length = to - from;
+    for (int bucket = spread(h) & mask; stringTable[bucket] != EMPTY; bucket = (bucket + 1) & mask) {
+      int slot = stringTable[bucket];
+      String name = stringNames[slot];
+      if (name.length() == length && key.regionMatches(from, name, 0, length)) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Find the position of the field whose UTF-8 encoded name is <code>bytes[from..to)</code>.
+   * @return the position, or -1 if there is no such field
+   */
+  int find(byte[] bytes, int from, int to) {
+    int h = hash(bytes, from, to);
+    for (int bucket = spread(h) & mask; table[bucket] != EMPTY; bucket = (bucket + 1) & mask) {
+      int slot = table[bucket];
+      if (hashes[slot] == h && equal(names[slot], bytes, from, to)) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Find the position of the field whose UTF-8 encoded name is spelled out by the code
+   * units <code>input[from..to)</code>. (The caller must ensure those units are bytes of
+   * UTF-8, e.g. by only passing ASCII characters.)
+   * @param h the hash of the code units, computed as by {@link #hash(byte[], int, int)}
+   * @return the position, or -1 if there is no such field
+   */
+  int find(UrlEncodedDecoder.Input input, int from, int to, int h) {
+    for (int bucket = spread(h) & mask; table[bucket] != EMPTY; bucket = (bucket + 1) & mask) {
+      int slot = table[bucket];
+      if (hashes[slot] == h && equal(names[slot], input, from, to)) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean equal(byte[] name, byte[] bytes, int from, int to) {
+    if (name.length != to - from) {
+      return false;
+    }
+    for (int i = 0; i < name.length; ++i) {
+      if (name[i] != bytes[from + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean equal(byte[] name, UrlEncodedDecoder.Input input, int from, int to) {
+    if (name.length != to - from) {
+      return false;
+    }
+    for (int i = 0; i < name.length; ++i) {
+      if ((name[i] & 0xFF) != input.unitAt(from + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
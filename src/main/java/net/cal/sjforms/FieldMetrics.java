@@ -0,0 +1,182 @@
+package net.cal.sjforms;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the outcomes of validating one field of a form created with
+ * {@link Form#withMetrics()}, and how long validation took.
+ *
+ * <p>Every validation is either parsed (it succeeded) or failed. Independently of that,
+ * it is missing if the raw input was null, and defaulted if the raw input was null but
+ * validation produced a value anyway. Failures are also counted by reason: the message
+ * of the failed check, without the field name, value or detail (see
+ * {@link ValidationError#getReason()}), which identifies the validator that failed.
+ * A custom validator may put parts of the input in its message, so at most
+ * {@link #MAX_REASONS} reasons are counted separately; failures with any other reason
+ * are counted together under {@link #OTHER_REASON}.</p>
+ */
+public final class FieldMetrics {
+
+  /** the greatest number of failure reasons counted separately */
+  public static final int MAX_REASONS = 64;
+  /** the reason under which failures are counted once {@link #MAX_REASONS} reasons have been seen */
+  public static final String OTHER_REASON = "(other)";
+
+  private final String name;
+  private final StripedCounter parsed = new StripedCounter();
+  private final StripedCounter failed = new StripedCounter();
+  private final StripedCounter missing = new StripedCounter();
+  private final StripedCounter defaulted = new StripedCounter();
+  private final ConcurrentMap<String, AtomicLong> failuresByReason = new ConcurrentHashMap<>();
+  private final AtomicInteger reasonCount = new AtomicInteger();
+  private final AtomicLong otherFailures = new AtomicLong();
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  FieldMetrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return the name of the measured field
+   */
+  public String getName() {
+    return name;
+  }
+
+  void recordSuccess(String raw, boolean hasValue, long nanos) {
+    parsed.increment();
+    if (raw == null) {
+      missing.increment();
+      if (hasValue) {
+        defaulted.increment();
+      }
+    }
+    latency.record(nanos);
+  }
+
+  void recordFailure(String raw, ValidationError error, long nanos) {
+    failed.increment();
+    if (raw == null) {
+      missing.increment();
+    }
+    String reason = error.getReason();
+    AtomicLong count = failuresByReason.get(reason);
+    if (count == null) {
+      count = addReason(reason);
+    }
+    count.incrementAndGet();
+    latency.record(nanos);
+  }
+
+  /**
+   * @return the counter for a reason that was not counted before, or the counter for
+   *         {@link #OTHER_REASON} if there are already {@link #MAX_REASONS} reasons
+   */
+  private AtomicLong addReason(String reason) {
+    int n;
+    do {
+      n = reasonCount.get();
+      if (n >= MAX_REASONS) {
+        return otherFailures;
+      }
+    } while (!reasonCount.compareAndSet(n, n + 1));
+    AtomicLong fresh = new AtomicLong();
+    AtomicLong count = failuresByReason.putIfAbsent(reason, fresh);
+    if (count != null) {
+      // another thread added this reason first, so give back the place reserved for it
+      reasonCount.decrementAndGet();
+      return count;
+    }
+    return fresh;
+  }
+
+  /**
+   * @return a copy of the current counts
+   */
+  public Snapshot snapshot() {
+    Map<String, Long> reasons = new TreeMap<>();
+    for (Map.Entry<String, AtomicLong> entry : failuresByReason.entrySet()) {
+      reasons.put(entry.getKey(), entry.getValue().get());
+    }
+    long other = otherFailures.get();
+    if (other > 0) {
+      Long counted = reasons.get(OTHER_REASON);
+      reasons.put(OTHER_REASON, counted == null ? other : counted + other);
+    }
+    return new Snapshot(name, parsed.sum(), failed.sum(), missing.sum(), defaulted.sum(),
+        Collections.unmodifiableMap(reasons), latency.snapshot());
+  }
+
+  /**
+   * The state of a {@link FieldMetrics} at some point in time.
+   */
+  public static final class Snapshot {
+
+    private final String name;
+    private final long parsed;
+    private final long failed;
+    private final long missing;
+    private final long defaulted;
+    private final Map<String, Long> failuresByReason;
+    private final LatencyHistogram.Snapshot latency;
+
+    Snapshot(String name, long parsed, long failed, long missing, long defaulted,
+             Map<String, Long> failuresByReason, LatencyHistogram.Snapshot latency) {
+      this.name = name;
+      this.parsed = parsed;
+      this.failed = failed;
+      this.missing = missing;
+      this.defaulted = defaulted;
+      this.failuresByReason = failuresByReason;
+      this.latency = latency;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getParsed() {
+      return parsed;
+    }
+
+    public long getFailed() {
+      return failed;
+    }
+
+    public long getMissing() {
+      return missing;
+    }
+
+    public long getDefaulted() {
+      return defaulted;
+    }
+
+    /**
+     * @return a map from failure reason to the number of failures with that reason. Once
+     *         {@link FieldMetrics#MAX_REASONS} reasons have been seen, failures with any
+     *         new reason are counted under {@link FieldMetrics#OTHER_REASON}.
+     */
+    public Map<String, Long> getFailuresByReason() {
+      return failuresByReason;
+    }
+
+    public LatencyHistogram.Snapshot getLatency() {
+      return latency;
+    }
+
+    @Override
+    public String toString() {
+      return name + ": parsed=" + parsed + " failed=" + failed + " missing=" + missing
+          + " defaulted=" + defaulted + " failuresByReason=" + failuresByReason
+          + " meanNanos=" + latency.getMeanNanos();
+    }
+
+  }
+
+}
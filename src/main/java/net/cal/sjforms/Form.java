@@ -1,9 +1,19 @@
 package net.cal.sjforms;
 
+import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.cal.sjforms.validators.FieldAtLeastValidator;
 
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A form is constructed out of {@link net.cal.sjforms.Field}s and implements
@@ -34,7 +44,25 @@ import java.util.*;
  */
 public class Form {
 
+  /**
+   * Inputs with fewer than one entry per this many fields are scanned entry by entry
+   * instead of looking up each field's name (if {@link #hasPlainKeys(java.util.Map)}).
+   */
+  private static final int SCAN_RATIO = 4;
+
   private final List<Field> fields;
+  private final FieldIndex index;
+  private final SlotLayout layout;
+  private final boolean strict;
+  /**
+   * The order in which a {@link #cheapFirst()} form validates the fields that have input,
+   * or null to validate in declaration order.
+   */
+  private final int[] order;
+  /**
+   * The cross-field validators, in the order they were added.
+   */
+  private final CrossFieldCheck[] checks;
 
   /**
    * Array form of {@link #Form(Iterable)}.
@@ -68,6 +96,145 @@ public class Form {
       names.add(field.getName());
     }
     this.fields = Lists.newArrayList(fields);
+    this.index = new FieldIndex(this.fields);
+    this.layout = new SlotLayout(this.fields);
+    this.strict = false;
+    this.order = null;
+    this.checks = new CrossFieldCheck[0];
+  }
+
+  private Form(Form form, SlotLayout layout, boolean strict, int[] order, CrossFieldCheck[] checks) {
+    this.fields = form.fields;
+    this.index = form.index;
+    this.layout = layout;
+    this.strict = strict;
+    this.order = order;
+    this.checks = checks;
+  }
+
+  /**
+   * Construct a copy of this form that records {@link FieldMetrics} for each of its
+   * fields whenever it parses anything. Measuring costs a little time for every field
+   * parsed, so it is opt-in; forms that are not measured pay only one check per field.
+   * Forms made from the returned one with {@link #extend(Iterable)} are not measured.
+   * @return a new, measured form with the same fields as this one
+   * @see #getMetrics()
+   */
+  public Form withMetrics() {
+    return new Form(this, new SlotLayout(fields, true), strict, order, checks);
+  }
+
+  /**
+   * @return the metrics of this form, or null if it was not created with {@link #withMetrics()}
+   */
+  public FormMetrics getMetrics() {
+    return layout.metrics == null ? null : new FormMetrics(layout);
+  }
+
+  /**
+   * Construct a copy of this form that rejects input parameters it does not declare, and
+   * parameters given more than once (which can only happen in urlencoded input). Such
+   * parameters make parsing fail with a {@link ValidationException} naming the parameter,
+   * as if a field had failed to validate. The returned form shares this form's metrics,
+   * if any.
+   * @return a new, strict form with the same fields as this one
+   */
+  public Form strict() {
+    return new Form(this, layout, true, order, checks);
+  }
+
+  /**
+   * Construct a copy of this form that validates the cheapest checks first, so that bad
+   * input is rejected before expensive validators run. The fail-fast parse methods
+   * ({@link #parse(java.util.Map)}, {@link #tryParse(java.util.Map)} and the other
+   * overloads of <code>parse</code>) validate, stopping at the first failure:
+   * <ol>
+   *   <li>the fields whose input is missing, which is nearly free and catches absent
+   *       required fields;</li>
+   *   <li>then int, long, double and list fields;</li>
+   *   <li>then other fields made only of {@link net.cal.sjforms.PureValidator}s (such as
+   *       the builtin validators);</li>
+   *   <li>and last, fields with custom validators, sub-forms or asynchronous steps.</li>
+   * </ol>
+   * Within each group, fields are validated in the order of {@link #getFields()}.
+   *
+   * <p>The error reported is the first failure in this order. Like the error of an
+   * ordinary form, it only depends on the form and the input, never on timing or on
+   * previous inputs; it is the same as the ordinary form's error whenever only one field
+   * fails, but when several fields fail, the cheapest one is reported rather than the
+   * first declared one. (Reporting the first declared failure would mean validating
+   * every field before it, expensive or not, which is exactly what declaration order
+   * already does.)</p>
+   *
+   * <p>The same order is used by {@link BatchMode#FAIL_FAST} batches and by
+   * {@link #parseAll(java.util.Map, ErrorSink)}, which stops once its sink is full (so
+   * that it collects the cheapest failures, listed in this order). The methods that
+   * validate every field, {@link #parseAll(java.util.Map)} (and so
+   * {@link BatchMode#COLLECT_ALL} batches and {@link ValidationSession}s), are
+   * unaffected, since order does not change their results; so are
+   * {@link #parseLazy(java.util.Map)}, which validates fields when they are read, and
+   * {@link #parseAsync(java.util.Map, java.util.concurrent.Executor)}.</p>
+   *
+   * <p>The returned form shares this form's metrics, if any, and forms made from it with
+   * {@link #withMetrics()} and {@link #strict()} validate cheap checks first too.</p>
+   * @return a new form with the same fields as this one
+   */
+  public Form cheapFirst() {
+    return new Form(this, layout, strict, cheapFirstOrder(layout), checks);
+  }
+
+  /**
+   * @return the slots of the given layout ordered by the groups of {@link #cheapFirst()}
+   */
+  private static int[] cheapFirstOrder(SlotLayout layout) {
+    Field[] fields = layout.fields;
+    int[] order = new int[fields.length];
+    int n = 0;
+    for (int group = 0; group < 3; ++group) {
+      for (int slot = 0; slot < fields.length; ++slot) {
+        Field field = fields[slot];
+        boolean cheap = field.isPure() && field.group() == null;
+        boolean primitive = layout.kinds[slot] != SlotLayout.OBJECT || field instanceof ListField;
+        int fieldGroup = !cheap ? 2 : primitive ? 0 : 1;
+        if (fieldGroup == group) {
+          order[n++] = slot;
+        }
+      }
+    }
+    return order;
+  }
+
+  /**
+   * Construct a copy of this form with an extra {@link CrossFieldValidator}. After every
+   * field has been validated, the validators are run in the order they were added, on
+   * those values that are valid; a failure is reported as a failure of the target field.
+   * The returned form shares this form's metrics, if any, which do not count cross-field
+   * failures.
+   * @param target the field to report failures for
+   * @param validator the validator
+   * @return a new form with the same fields as this one
+   * @throws IllegalArgumentException if the target or one of the validator's dependencies
+   *         is not a field of this form
+   */
+  public Form withCrossFieldValidator(Field<?> target, CrossFieldValidator validator) {
+    CrossFieldCheck[] checks = Arrays.copyOf(this.checks, this.checks.length + 1);
+    checks[this.checks.length] = new CrossFieldCheck(layout, target, validator);
+    return new Form(this, layout, strict, order, checks);
+  }
+
+  /**
+   * Construct a copy of this form that requires the value of one field to be at least the
+   * value of another, whenever both have values (e.g. that an end date is not before a
+   * start date). Failures are reported for <code>field</code>.
+   * @param field the field whose value must be at least the other's
+   * @param other the field whose value is the minimum
+   * @param <T> the type of the values
+   * @return a new form with the same fields as this one
+   * @throws IllegalArgumentException if either field is not a field of this form
+   * @see #withCrossFieldValidator(Field, CrossFieldValidator)
+   */
+  public <T extends Comparable<? super T>> Form requireAtLeast(Field<T> field, Field<T> other) {
+    return withCrossFieldValidator(field, new FieldAtLeastValidator<>(field, other));
   }
 
   /**
@@ -78,6 +245,22 @@ public class Form {
     return Collections.unmodifiableList(fields);
   }
 
+  SlotLayout layout() {
+    return layout;
+  }
+
+  FieldIndex index() {
+    return index;
+  }
+
+  CrossFieldCheck[] checks() {
+    return checks;
+  }
+
+  boolean isStrict() {
+    return strict;
+  }
+
   /**
    * Array form of {@link #extend(Iterable)}.
    * @param fields the extra fields
@@ -90,14 +273,17 @@ public class Form {
   }
 
   /**
-   * Construct a new form with additional fields.
+   * Construct a new form with additional fields. The new form keeps this form's
+   * cross-field validators.
    * @param fields the extra fields
    * @return a new form with all the fields from this one plus the ones given
    * @throws java.lang.NullPointerException if any field is null or if any field has a null name
    * @throws java.lang.IllegalArgumentException if any field names are duplicated
    */
   public Form extend(Iterable<Field> fields) {
-    return new Form(Iterables.concat(this.fields, fields));
+    Form form = new Form(Iterables.concat(this.fields, fields));
+    // this form's fields keep their slots, so its checks carry over unchanged
+    return checks.length == 0 ? form : new Form(form, form.layout, false, null, checks);
   }
 
   /**
@@ -106,22 +292,675 @@ public class Form {
    * @return a {@link net.cal.sjforms.ParseResult} with parsed values. Each entry in the
    *         map is parsed by the corresponding field. (If there are multiple fields with
    *         the same name on this form, only the first one is used.) Any entries which do
-   *         not have corresponding fields will not be included in the final result.
+   *         not have corresponding fields will not be included in the final result
+   *         (unless this form is {@link #strict()}, in which case they are failures).
    * @throws ValidationException if any validator on any field fails. Note that fields are
    *         checked in the same order that they were provided during construction of this
-   *         form (i.e. the same order returned by {@link #getFields()}).
+   *         form (i.e. the same order returned by {@link #getFields()}). If every field is
+   *         valid, the {@link CrossFieldValidator}s are run in the order they were added.
    * @see #parseAll(java.util.Map)
    */
   public ParseResult parse(Map<String, String> values) throws ValidationException {
-    Map<Field, Object> results = new HashMap<>();
-    for (Field field : fields) {
-      String value = values.get(field.getName());
-      Object result = field.validate(value);
-      if (result != null) {
-        results.put(field, result);
+    return parseRaw(gather(values));
+  }
+
+  /**
+   * Create a buffer for {@link #parseInto(java.util.Map, ParseBuffer)}.
+   * @return a new, empty buffer sized for this form
+   */
+  public ParseBuffer newBuffer() {
+    return new ParseBuffer(layout);
+  }
+
+  /**
+   * Parse some form inputs exactly like {@link #parse(java.util.Map)}, but into a buffer
+   * that is reused from call to call instead of a new {@link ParseResult}. Once the buffer
+   * exists, parsing allocates nothing itself for forms of int, long, double and string
+   * fields (without sub-forms, list fields or {@link #strict()} checking), apart from
+   * what custom validators allocate, so valid requests can be handled without any
+   * garbage.
+   * @param values the raw values to parse
+   * @param buffer a buffer made by this form's {@link #newBuffer()}. Its previous contents
+   *               are discarded. If parsing fails, it holds partial results, which must
+   *               not be used.
+   * @return the buffer, now holding the parsed values
+   * @throws ValidationException in the same cases as {@link #parse(java.util.Map)}
+   * @throws IllegalArgumentException if the buffer was made by a different form
+   */
+  public ParseBuffer parseInto(Map<String, String> values, ParseBuffer buffer) throws ValidationException {
+    if (buffer.layout != layout) {
+      throw new IllegalArgumentException("The buffer was not made by this form");
+    }
+    buffer.reset();
+    return parseRaw(gather(values, buffer.raw), buffer);
+  }
+
+  /**
+   * Start a {@link ValidationSession} with no input.
+   * @return a new session
+   * @throws IllegalArgumentException if this form has sub-form fields
+   */
+  public ValidationSession newSession() {
+    return new ValidationSession(this, Collections.<String, String>emptyMap());
+  }
+
+  /**
+   * Start a {@link ValidationSession} with some input, which is validated in full.
+   * @param values the initial raw values; keys that do not name a field are ignored
+   * @return a new session
+   * @throws IllegalArgumentException if this form has sub-form fields
+   */
+  public ValidationSession newSession(Map<String, String> values) {
+    return new ValidationSession(this, values);
+  }
+
+  /**
+   * Parse some form inputs, deferring as much validation as possible until the values are
+   * used. Required fields (and fields with validators that are not
+   * {@link net.cal.sjforms.PureValidator}s) are validated immediately, exactly as by
+   * {@link #parse(java.util.Map)}; all other fields are validated by
+   * {@link LazyParseResult#getParsedValue(Field)} the first time they are read. This
+   * pays off for wide forms of which each caller only reads a few fields, but it means
+   * that invalid optional values are only reported when (and if) they are read, which is
+   * why it is a separate method rather than a mode of {@link #parse(java.util.Map)}.
+   * @param values the raw values to parse
+   * @return a lazily-validated result
+   * @throws ValidationException if any eagerly-validated field fails, or if this form is
+   *         {@link #strict()} and the input has an unknown key
+   */
+  public LazyParseResult parseLazy(Map<String, String> values) throws ValidationException {
+    return new LazyParseResult(layout, gather(values), checks);
+  }
+
+  /**
+   * Collect the raw value for each field, by position. When the input is a plain hash map
+   * with far fewer entries than this form has fields (or when this form is
+   * {@link #strict()}), this walks the input once, finding each key's position in the
+   * form's index, instead of looking up every field's name in the input.
+   * @throws ValidationException if this form is strict and the input has an unknown key
+   */
+  RawInput gather(Map<String, String> values) throws ValidationException {
+    return gather(values, new RawInput(layout.names.length));
+  }
+
+  /**
+   * Same as {@link #gather(java.util.Map)}, but into the given (empty) input.
+   */
+  private RawInput gather(Map<String, String> values, RawInput raw) throws ValidationException {
+    if (!strict) {
+      return gather(values, null, 0, raw);
+    }
+    List<ValidationException> inputFailures = new ArrayList<>(1);
+    gather(values, inputFailures, 1, raw);
+    if (!inputFailures.isEmpty()) {
+      throw inputFailures.get(0);
+    }
+    return raw;
+  }
+
+  /**
+   * Like {@link #gather(java.util.Map)}, but unknown keys are added to
+   * <code>inputFailures</code> (which must not be null if this form is strict) instead of
+   * being thrown. Keys of sub-form fields are split into groups in the same pass.
+   * @param maxInputFailures the number of unknown keys to record. Once that many have
+   *                         been recorded, gathering stops and the rest of the input is
+   *                         ignored, since the input is rejected anyway.
+   * @throws ValidationException if a sub-form list index is out of range
+   */
+  private RawInput gather(Map<String, String> values, List<ValidationException> inputFailures, int maxInputFailures) throws ValidationException {
+    return gather(values, inputFailures, maxInputFailures, new RawInput(layout.names.length));
+  }
+
+  private RawInput gather(Map<String, String> values, List<ValidationException> inputFailures, int maxInputFailures, RawInput raw) throws ValidationException {
+    if (layout.hasGroups) {
+      for (Map.Entry<String, String> entry : values.entrySet()) {
+        String key = entry.getKey();
+        if ((key == null || !put(raw, key, 0, entry.getValue(), strict)) && strict) {
+          inputFailures.add(new ValidationException(key, "unknown parameter"));
+          if (inputFailures.size() == maxInputFailures) {
+            break;
+          }
+        }
+      }
+    } else if (strict || (values.size() * SCAN_RATIO < raw.values.length && hasPlainKeys(values))) {
+      for (Map.Entry<String, String> entry : values.entrySet()) {
+        String key = entry.getKey();
+        int slot = key == null ? -1 : index.find(key);
+        if (slot >= 0) {
+          raw.values[slot] = entry.getValue();
+        } else if (strict) {
+          inputFailures.add(new ValidationException(key, "unknown parameter"));
+          if (inputFailures.size() == maxInputFailures) {
+            break;
+          }
+        }
+      }
+    } else {
+      String[] names = layout.names;
+      for (int slot = 0; slot < names.length; ++slot) {
+        raw.values[slot] = values.get(names[slot]);
+      }
+    }
+    return raw;
+  }
+
+  /**
+   * Whether looking up a key in a map finds the same entry as comparing the key with
+   * every entry's key with {@link String#equals(Object)}, so that the map can be scanned
+   * instead. This is not so for maps with their own key semantics, such as a
+   * {@link TreeMap} with {@link String#CASE_INSENSITIVE_ORDER}, so only maps of the
+   * classes known to use <code>equals</code> are scanned.
+   */
+  private static boolean hasPlainKeys(Map<?, ?> values) {
+    Class<?> type = values.getClass();
+    return type == HashMap.class || type == LinkedHashMap.class;
+  }
+
+  /**
+   * Store one input value under <code>key.substring(from)</code>, which may name a field
+   * of this form or (for forms with sub-form fields) a field of a sub-form, in which case
+   * the value goes into the sub-form's group of the input.
+   * @param strict whether a repeated key is a failure (otherwise the first value is kept)
+   * @return false if the key does not name anything on this form
+   * @throws ValidationException if this is a repeated key and <code>strict</code> is set,
+   *         if a list field has too many values, or if a sub-form list index is out of range
+   */
+  boolean put(RawInput raw, String key, int from, String value, boolean strict) throws ValidationException {
+    return put(raw, key, from, value, null, strict);
+  }
+
+  /**
+   * An input value that is only decoded once it is known to name a field and to be kept.
+   */
+  interface PendingValue {
+    /**
+     * @param fieldName the name of the field the value is for, for errors
+     * @return the decoded value
+     * @throws ValidationException if the value cannot be decoded
+     */
+    String decode(String fieldName) throws ValidationException;
+  }
+
+  /**
+   * Like {@link #put(RawInput, String, int, String, boolean)}, but if <code>pending</code>
+   * is not null, the value is decoded from it (instead of being given), and only if the
+   * key names a field and the value is stored. Input with keys that name nothing then
+   * costs nothing to decode, and cannot fail to decode.
+   */
+  boolean put(RawInput raw, String key, int from, String value, PendingValue pending, boolean strict) throws ValidationException {
+    Field[] fields = layout.fields;
+    int slot = from == 0 ? index.find(key) : index.find(key, from, key.length());
+    if (slot >= 0) {
+      Field field = fields[slot];
+      if (field instanceof ListField) {
+        ListField<?> list = (ListField<?>)field;
+        if (raw.count(slot) == list.maxCount) {
+          throw list.tooMany();
+        }
+        raw.addValue(slot, pending == null ? value : pending.decode(field.getName()));
+      } else if (raw.values[slot] == null) {
+        raw.values[slot] = pending == null ? value : pending.decode(field.getName());
+      } else if (strict) {
+        throw new ValidationException(field.getName(), "duplicate parameter");
+      }
+      return true;
+    }
+    if (!layout.hasGroups) {
+      return false;
+    }
+    int end = groupEnd(key, from);
+    if (end == key.length() || (slot = index.find(key, from, end)) < 0) {
+      return false;
+    }
+    return putInGroup(raw, key, from, end, slot, value, pending, strict);
+  }
+
+  /**
+   * @return the position of the first '.' or '[' in the key after <code>from</code>, which
+   *         ends the name of a sub-form field, or the length of the key if there is none
+   */
+  static int groupEnd(String key, int from) {
+    int end = from;
+    while (end < key.length() && key.charAt(end) != '.' && key.charAt(end) != '[') {
+      ++end;
+    }
+    return end;
+  }
+
+  /**
+   * The rest of {@link #put(RawInput, String, int, String, PendingValue, boolean)} once the
+   * part of the key before the first '.' or '[' is known to name a field.
+   * @param end the position of the first '.' or '[' in the key
+   * @param slot the position of the field named by <code>key.substring(from, end)</code>
+   */
+  boolean putInGroup(RawInput raw, String key, int from, int end, int slot, String value, PendingValue pending, boolean strict) throws ValidationException {
+    Field<?> field = layout.fields[slot].group();
+    if (field instanceof SubFormField && key.charAt(end) == '.') {
+      Form form = ((SubFormField)field).form;
+      try {
+        return form.put(raw.group(slot, form.layout.fields.length), key, end + 1, value, pending, strict);
+      } catch (ValidationException e) {
+        throw e.getError().withPrefix(key.substring(from, end + 1)).toException();
+      }
+    }
+    if (field instanceof SubFormListField && key.charAt(end) == '[') {
+      SubFormListField list = (SubFormListField)field;
+      int close = key.indexOf(']', end + 1);
+      if (close < 0 || close + 1 == key.length() || key.charAt(close + 1) != '.') {
+        return false;
+      }
+      int i = SubFormListField.parseIndex(key, end + 1, close);
+      if (i < 0) {
+        return false;
+      }
+      if (i >= list.maxCount) {
+        throw new ValidationError(list.getName(), i, "index must be less than ", list.maxCount).toException();
+      }
+      Form form = list.form;
+      try {
+        return form.put(raw.element(slot, i, form.layout.fields.length), key, close + 2, value, pending, strict);
+      } catch (ValidationException e) {
+        throw e.getError().withPrefix(key.substring(from, close + 2)).toException();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Parse <code>application/x-www-form-urlencoded</code> input, such as a query string
+   * (without the leading '?') or a form-encoded request body. This is equivalent to
+   * decoding the input into a map (keeping the first value for repeated keys, or every
+   * value for {@link ListField}s) and calling {@link #parseValues(java.util.Map)}, but
+   * much cheaper: the input is decoded in a single pass, keys are matched against this
+   * form's field names without creating Strings, and values are only decoded for
+   * parameters that name a field. Parameters this form does not declare are skipped
+   * without allocating anything. A list field with too many values fails as soon as the
+   * extra value is seen, before the rest of the input is decoded.
+   * @param input the encoded input; <code>+</code> and <code>%XX</code> escapes are
+   *              decoded as by {@link java.net.URLDecoder} with UTF-8
+   * @return a {@link net.cal.sjforms.ParseResult} with parsed values
+   * @throws ValidationException if any validator on any field fails, or if the value for
+   *         a field contains a malformed escape
+   * @see #parse(java.util.Map)
+   */
+  public ParseResult parseUrlEncoded(CharSequence input) throws ValidationException {
+    return parseRaw(UrlEncodedDecoder.decode(this, input, strict));
+  }
+
+  /**
+   * Parse <code>application/x-www-form-urlencoded</code> input held as UTF-8 bytes (e.g.
+   * a request body straight off the wire). The bytes between the buffer's position and
+   * limit are read; the buffer's position is not changed. Otherwise this behaves
+   * exactly like {@link #parseUrlEncoded(CharSequence)}.
+   * @param input the encoded input
+   * @return a {@link net.cal.sjforms.ParseResult} with parsed values
+   * @throws ValidationException if any validator on any field fails, or if the value for
+   *         a field contains a malformed escape
+   */
+  public ParseResult parseUrlEncodedBytes(ByteBuffer input) throws ValidationException {
+    return parseRaw(UrlEncodedDecoder.decode(this, input, strict));
+  }
+
+  /**
+   * Parse raw values given by field position, stopping at the first failure.
+   */
+  private ParseResult parseRaw(RawInput raw) throws ValidationException {
+    return parseRaw(raw, new ParseResult(layout));
+  }
+
+  /**
+   * Same as {@link #parseRaw(RawInput)}, but into the given (empty) result.
+   */
+  private <R extends ParseResult> R parseRaw(RawInput raw, R result) throws ValidationException {
+    return parseRaw(raw, result, null);
+  }
+
+  /**
+   * Same as {@link #parseRaw(RawInput, ParseResult)}, but if a field fails, its slot (or
+   * the target slot of the cross-field check that failed) is stored in
+   * <code>failedSlot[0]</code>, unless <code>failedSlot</code> is null.
+   */
+  <R extends ParseResult> R parseRaw(RawInput raw, R result, int[] failedSlot) throws ValidationException {
+    if (order != null) {
+      parseCheapFirst(raw, result, failedSlot);
+    } else {
+      for (int slot = 0; slot < raw.values.length; ++slot) {
+        try {
+          result.validate(slot, raw);
+        } catch (ValidationException e) {
+          throw failed(failedSlot, slot, e);
+        }
+      }
+    }
+    for (CrossFieldCheck check : checks) {
+      ValidationError error = check.check(layout, result);
+      if (error != null) {
+        throw failed(failedSlot, check.target, error.toException());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Validate every field as by {@link #parseRaw(RawInput, ParseResult, int[])}, but in
+   * the order of {@link #cheapFirst()}, and without running cross-field checks.
+   */
+  private void parseCheapFirst(RawInput raw, ParseResult result, int[] failedSlot) throws ValidationException {
+    String[] values = raw.values;
+    for (int slot = 0; slot < values.length; ++slot) {
+      if (values[slot] == null && raw.nested(slot) == null) {
+        try {
+          result.validate(slot, (String)null);
+        } catch (ValidationException e) {
+          throw failed(failedSlot, slot, e);
+        }
+      }
+    }
+    for (int slot : order) {
+      if (values[slot] != null || raw.nested(slot) != null) {
+        try {
+          result.validate(slot, raw);
+        } catch (ValidationException e) {
+          throw failed(failedSlot, slot, e);
+        }
+      }
+    }
+  }
+
+  private static ValidationException failed(int[] failedSlot, int slot, ValidationException e) {
+    if (failedSlot != null) {
+      failedSlot[0] = slot;
+    }
+    return e;
+  }
+
+  /**
+   * Run the cross-field checks on a result whose fields are all valid.
+   * @return the first failure, or null if every check passes
+   */
+  private ValidationError checkCrossFields(ParseResult result) {
+    for (CrossFieldCheck check : checks) {
+      ValidationError error = check.check(layout, result);
+      if (error != null) {
+        return error;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Run the cross-field checks whose slots all validated, adding the first failure for
+   * each target field that has not failed itself to <code>failures</code> (which holds
+   * the failures of single fields, and may be null).
+   * @return the failures, or null if there are none
+   */
+  private Map<Field, ValidationException> checkCrossFields(ParseResult result, Map<Field, ValidationException> failures) {
+    Map<Field, ValidationException> checkFailures = null;
+    for (CrossFieldCheck check : checks) {
+      Field target = layout.fields[check.target];
+      if ((failures != null && anyFailed(check, failures)) || (checkFailures != null && checkFailures.containsKey(target))) {
+        continue;
+      }
+      ValidationError error = check.check(layout, result);
+      if (error != null) {
+        if (checkFailures == null) {
+          checkFailures = new HashMap<>();
+        }
+        checkFailures.put(target, error.toException());
+      }
+    }
+    if (checkFailures == null) {
+      return failures;
+    }
+    if (failures == null) {
+      return checkFailures;
+    }
+    failures.putAll(checkFailures);
+    return failures;
+  }
+
+  private boolean anyFailed(CrossFieldCheck check, Map<Field, ValidationException> failures) {
+    for (int slot : check.slots) {
+      if (failures.containsKey(layout.fields[slot])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Parse the group of input for a sub-form field (with this form as the sub-form),
+   * stopping at the first failure.
+   * @param name the name of the sub-form field
+   * @param index the index of the group, for sub-form list fields, or -1
+   * @throws ValidationException if any field fails, naming the field by its full key
+   */
+  ParseResult parseGroup(RawInput raw, String name, int index) throws ValidationException {
+    try {
+      return parseRaw(raw);
+    } catch (ValidationException e) {
+      String prefix = index < 0 ? name + '.' : name + '[' + index + "].";
+      throw e.getError().withPrefix(prefix).toException();
+    }
+  }
+
+  /**
+   * Parse multi-valued form inputs, such as a servlet request's parameter map. Each
+   * {@link ListField} is given every value of its parameter (with the number of values
+   * checked before any is parsed); other fields are given the first value. Stops
+   * immediately if any field fails to validate.
+   * @param values the raw values to parse, by parameter name; null or empty arrays are
+   *               treated as absent parameters
+   * @return a {@link net.cal.sjforms.ParseResult} with parsed values, as described in
+   *         {@link #parse(java.util.Map)}
+   * @throws ValidationException if any validator on any field fails, or if this form is
+   *         {@link #strict()} and the input has an unknown parameter or more than one value
+   *         for a field that is not a list field
+   * @see #parseLists(java.util.Map)
+   */
+  public ParseResult parseValues(Map<String, String[]> values) throws ValidationException {
+    return parseMulti(values);
+  }
+
+  /**
+   * Same as {@link #parseValues(java.util.Map)}, but with the values for each parameter
+   * given as a list.
+   * @param values the raw values to parse, by parameter name; null or empty lists are
+   *               treated as absent parameters
+   * @return a {@link net.cal.sjforms.ParseResult} with parsed values
+   * @throws ValidationException as for {@link #parseValues(java.util.Map)}
+   */
+  public ParseResult parseLists(Map<String, ? extends List<String>> values) throws ValidationException {
+    return parseMulti(values);
+  }
+
+  /**
+   * Shared implementation of {@link #parseValues(java.util.Map)} and
+   * {@link #parseLists(java.util.Map)}: every value in the map is a String[] or a List.
+   */
+  private ParseResult parseMulti(Map<String, ?> values) throws ValidationException {
+    RawInput raw = new RawInput(layout.names.length);
+    if (layout.hasGroups) {
+      for (Map.Entry<String, ?> entry : values.entrySet()) {
+        String key = entry.getKey();
+        Object value = entry.getValue();
+        int count = count(value);
+        for (int i = 0; i < count; ++i) {
+          if (key == null || !put(raw, key, 0, get(value, i), strict)) {
+            if (strict) {
+              throw new ValidationException(key, "unknown parameter");
+            }
+            break;
+          }
+        }
+      }
+      return parseRaw(raw);
+    }
+    if (strict) {
+      for (String key : values.keySet()) {
+        if (key == null || index.find(key) < 0) {
+          throw new ValidationException(key, "unknown parameter");
+        }
+      }
+    }
+    Field[] fields = layout.fields;
+    String[] names = layout.names;
+    for (int slot = 0; slot < fields.length; ++slot) {
+      Object value = values.get(names[slot]);
+      int count = count(value);
+      if (count == 0) {
+        continue;
+      }
+      if (fields[slot] instanceof ListField) {
+        if (!(value instanceof String[])) {
+          // check the count first so that oversized lists are never copied
+          ((ListField<?>)fields[slot]).checkCount(count);
+        }
+        raw.setValues(slot, value instanceof String[] ? (String[])value : ((List<?>)value).toArray(new String[count]));
+      } else {
+        if (strict && count > 1) {
+          throw new ValidationException(names[slot], "duplicate parameter");
+        }
+        raw.values[slot] = get(value, 0);
+      }
+    }
+    return parseRaw(raw);
+  }
+
+  /**
+   * @return the number of values in a String[] or List (or 0 for null)
+   */
+  private static int count(Object values) {
+    return values == null ? 0 : values instanceof String[] ? ((String[])values).length : ((List<?>)values).size();
+  }
+
+  private static String get(Object values, int i) {
+    return values instanceof String[] ? ((String[])values)[i] : (String)((List<?>)values).get(i);
+  }
+
+  /**
+   * Parse some form inputs without blocking on {@link net.cal.sjforms.AsyncValidator}s.
+   * Steps that follow an asynchronous validator run on whichever thread completes it.
+   * @param values the raw values to parse
+   * @return a future for the parsed values
+   * @see #parseAsync(java.util.Map, java.util.concurrent.Executor)
+   */
+  public ListenableFuture<ParseResult> parseAsync(Map<String, String> values) {
+    return parseAsync(values, MoreExecutors.sameThreadExecutor());
+  }
+
+  /**
+   * Parse some form inputs without blocking on {@link net.cal.sjforms.AsyncValidator}s.
+   * Fields without asynchronous validators are validated immediately, on the calling
+   * thread, and if any of them fails, no asynchronous validators are started at all.
+   * Otherwise the asynchronous fields are all started at once and run concurrently, so
+   * the returned future completes about as soon as the slowest of them does.
+   * @param values the raw values to parse
+   * @param executor the executor that runs asynchronous validators and every step after them
+   * @return a future for the parsed values (as described in {@link #parse(java.util.Map)}).
+   *         If any field fails to validate, the future fails with its
+   *         {@link net.cal.sjforms.ValidationException}: the first failing synchronous field
+   *         (in the order of {@link #getFields()}) if there is one, or else the first
+   *         asynchronous field to fail.
+   */
+  public ListenableFuture<ParseResult> parseAsync(Map<String, String> values, Executor executor) {
+    final ParseResult result = new ParseResult(layout);
+    Field[] fields = layout.fields;
+    final RawInput input;
+    try {
+      input = gather(values);
+    } catch (ValidationException e) {
+      return Futures.immediateFailedFuture(e);
+    }
+    final String[] raw = input.values;
+    int asyncCount = 0;
+    for (int slot = 0; slot < fields.length; ++slot) {
+      if (fields[slot].isAsync()) {
+        ++asyncCount;
+        continue;
+      }
+      try {
+        result.validate(slot, input);
+      } catch (ValidationException e) {
+        return Futures.immediateFailedFuture(e);
+      }
+    }
+    if (asyncCount == 0) {
+      ValidationError error = checkCrossFields(result);
+      return error == null ? Futures.immediateFuture(result) : Futures.<ParseResult>immediateFailedFuture(error.toException());
+    }
+    List<ListenableFuture<Object>> pending = new ArrayList<>(asyncCount);
+    for (int slot = 0; slot < fields.length; ++slot) {
+      if (fields[slot].isAsync()) {
+        final int target = slot;
+        final long start = layout.metrics != null ? System.nanoTime() : 0;
+        @SuppressWarnings("unchecked")
+        ListenableFuture<Object> value = fields[slot].validateNestedAsync(input, slot, executor);
+        if (layout.metrics != null) {
+          Futures.addCallback(value, new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(Object parsed) {
+              result.record(target, raw[target], Outcome.success(parsed), System.nanoTime() - start);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              if (t instanceof ValidationException) {
+                result.record(target, raw[target], Outcome.failure(((ValidationException)t).getError()), System.nanoTime() - start);
+              }
+            }
+          });
+        }
+        pending.add(Futures.transform(value, new Function<Object, Object>() {
+          @Override
+          public Object apply(Object parsed) {
+            result.set(target, parsed);
+            return null;
+          }
+        }));
       }
     }
-    return new ParseResult(results);
+    return Futures.transform(Futures.allAsList(pending), new AsyncFunction<List<Object>, ParseResult>() {
+      @Override
+      public ListenableFuture<ParseResult> apply(List<Object> ignored) {
+        ValidationError error = checkCrossFields(result);
+        return error == null ? Futures.immediateFuture(result) : Futures.<ParseResult>immediateFailedFuture(error.toException());
+      }
+    });
+  }
+
+  /**
+   * Parse some form inputs without throwing. This behaves exactly like
+   * {@link #parse(java.util.Map)}, but reports the first failure (as determined by the
+   * order of {@link #getFields()}) as a {@link ValidationError} instead of throwing.
+   * Since fields made from the builtin validators do not create exceptions when
+   * validated this way, this is the cheapest way to reject junk input.
+   * @param values the raw values to parse
+   * @return an outcome holding either the parsed values (as described in
+   *         {@link #parse(java.util.Map)}) or the first validation failure
+   * @see Field#tryValidate(String)
+   */
+  public Outcome<ParseResult> tryParse(Map<String, String> values) {
+    ParseResult result = new ParseResult(layout);
+    RawInput raw;
+    try {
+      raw = gather(values);
+      if (order != null) {
+        parseCheapFirst(raw, result, null);
+      }
+    } catch (ValidationException e) {
+      return Outcome.failure(e.getError());
+    }
+    if (order == null) {
+      for (int slot = 0; slot < raw.values.length; ++slot) {
+        ValidationError error = result.tryValidate(slot, raw);
+        if (error != null) {
+          return Outcome.failure(error);
+        }
+      }
+    }
+    ValidationError error = checkCrossFields(result);
+    return error == null ? Outcome.success(result) : Outcome.<ParseResult>failure(error);
   }
 
   /**
@@ -132,28 +971,221 @@ public class Form {
    *         the same name on this form, only the first one is used.) Any entries which do
    *         not have corresponding fields will not be included in the final result.
    * @throws FormValidationException if any validator on any field fails. The thrown
-   *         exception contains all of the individual validation failures.
+   *         exception contains all of the individual validation failures, plus the first
+   *         failing {@link CrossFieldValidator} for each field that is valid on its own
+   *         (validators that read an invalid field are skipped).
    * @see #parse(java.util.Map)
    */
   public ParseResult parseAll(Map<String, String> values) throws FormValidationException {
-    Map<Field, Object> results = new HashMap<>(fields.size());
-    Map<Field, ValidationException> failures = new HashMap<>(fields.size());
-    for (Field field : fields) {
-      String value = values.get(field.getName());
-      Object result = null;
+    List<ValidationException> inputFailures = strict ? new ArrayList<ValidationException>() : null;
+    RawInput raw;
+    try {
+      raw = gather(values, inputFailures, Integer.MAX_VALUE);
+    } catch (ValidationException e) {
+      // an out-of-range index stops gathering, so it is the only input failure reported
+      throw new FormValidationException(Collections.<Field, ValidationException>emptyMap(), Collections.singletonList(e));
+    }
+    return parseAllRaw(raw, inputFailures);
+  }
+
+  /**
+   * Like {@link #parseAll(java.util.Map)}, but collect failures in the given sink instead
+   * of throwing, and stop validating as soon as the sink is full. Fields are validated
+   * without exceptions where possible (as by {@link #tryParse(java.util.Map)}), so
+   * rejecting junk input costs little more than validating
+   * {@link ErrorSink#getMaxErrors()} failing fields, however wide the form.
+   * @param values the raw values to parse
+   * @param errors the sink to collect failures in; it is cleared first
+   * @return the parsed values, or null if there were any failures (in which case they
+   *         are in the sink)
+   */
+  public ParseResult parseAll(Map<String, String> values, ErrorSink errors) {
+    errors.clear();
+    List<ValidationException> inputFailures = strict ? new ArrayList<ValidationException>() : null;
+    RawInput raw;
+    try {
+      // one more than fits, so that the sink knows when unknown keys were left out
+      raw = gather(values, inputFailures, errors.getMaxErrors() + 1);
+    } catch (ValidationException e) {
+      // an out-of-range index stops gathering, so it is the only input failure reported
+      errors.add(null, e.getError());
+      return null;
+    }
+    if (inputFailures != null) {
+      for (ValidationException e : inputFailures) {
+        errors.add(null, e.getError());
+      }
+    }
+    ParseResult result = new ParseResult(layout);
+    if (order != null) {
+      collectCheapFirst(raw, result, errors);
+    } else {
+      for (int slot = 0; slot < raw.values.length; ++slot) {
+        if (!collect(raw, result, slot, errors)) {
+          break;
+        }
+      }
+    }
+    if (!errors.isTruncated()) {
+      int fieldFailures = errors.size();
+      for (CrossFieldCheck check : checks) {
+        if (errors.isFull()) {
+          errors.truncate();
+          break;
+        }
+        if (!anyFailed(check, errors, fieldFailures) && errors.indexOf(layout.fields[check.target]) < 0) {
+          ValidationError error = check.check(layout, result);
+          if (error != null) {
+            errors.add(layout.fields[check.target], error);
+          }
+        }
+      }
+    }
+    return errors.isEmpty() ? result : null;
+  }
+
+  /**
+   * Validate every field as by {@link #parseAll(java.util.Map, ErrorSink)}, but in the
+   * order of {@link #cheapFirst()}.
+   */
+  private void collectCheapFirst(RawInput raw, ParseResult result, ErrorSink errors) {
+    String[] values = raw.values;
+    for (int slot = 0; slot < values.length; ++slot) {
+      if (values[slot] == null && raw.nested(slot) == null && !collect(raw, result, slot, errors)) {
+        return;
+      }
+    }
+    for (int slot : order) {
+      if ((values[slot] != null || raw.nested(slot) != null) && !collect(raw, result, slot, errors)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Validate one field, adding its failure (if any) to the sink.
+   * @return false if the sink was already full, so that validation must stop
+   */
+  private boolean collect(RawInput raw, ParseResult result, int slot, ErrorSink errors) {
+    if (errors.isFull()) {
+      errors.truncate();
+      return false;
+    }
+    ValidationError error = result.tryValidate(slot, raw);
+    if (error != null) {
+      errors.add(layout.fields[slot], error);
+    }
+    return true;
+  }
+
+  /**
+   * @return true if any slot of the check is among the first <code>fieldFailures</code>
+   *         failures in the sink, which are failures of single fields
+   */
+  private boolean anyFailed(CrossFieldCheck check, ErrorSink errors, int fieldFailures) {
+    for (int slot : check.slots) {
+      int i = errors.indexOf(layout.fields[slot]);
+      if (i >= 0 && i < fieldFailures) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Same as {@link #parseAll(java.util.Map)}, but with raw values given by field position.
+   */
+  ParseResult parseAllRaw(String[] raw) throws FormValidationException {
+    return parseAllRaw(new RawInput(raw), null);
+  }
+
+  /**
+   * Same as {@link #parseAllRaw(String[])}, but also fails if <code>inputFailures</code>
+   * is not empty.
+   */
+  private ParseResult parseAllRaw(RawInput raw, List<ValidationException> inputFailures) throws FormValidationException {
+    ParseResult result = new ParseResult(layout);
+    Map<Field, ValidationException> failures = null;
+    for (int slot = 0; slot < raw.values.length; ++slot) {
       try {
-        result = field.validate(value);
+        result.validate(slot, raw);
       } catch (ValidationException e) {
-        failures.put(field, e);
-      }
-      if (result != null) {
-        results.put(field, result);
+        if (failures == null) {
+          failures = new HashMap<>();
+        }
+        failures.put(layout.fields[slot], e);
       }
     }
-    if (!failures.isEmpty()) {
-      throw new FormValidationException(failures);
+    failures = checkCrossFields(result, failures);
+    if (failures != null || (inputFailures != null && !inputFailures.isEmpty())) {
+      // both collections are private to this call, so the exception can keep them
+      throw new FormValidationException(
+          failures == null ? Collections.<Field, ValidationException>emptyMap() : failures,
+          inputFailures == null ? Collections.<ValidationException>emptyList() : inputFailures,
+          false);
     }
-    return new ParseResult(results);
+    return result;
+  }
+
+  /**
+   * Validate many records in parallel, using a shared default
+   * {@link java.util.concurrent.ForkJoinPool} and an automatically chosen chunk size.
+   * @param records the records to parse
+   * @param mode whether to stop at the first failure or to report every failure
+   * @return the results and failures, by index in <code>records</code>
+   * @see #parseBatch(java.util.List, BatchMode, java.util.concurrent.ForkJoinPool, int)
+   */
+  public BatchResult parseBatch(List<? extends Map<String, String>> records, BatchMode mode) {
+    return parseBatch(records, mode, BatchParser.defaultPool(), 0);
+  }
+
+  /**
+   * Validate many records in parallel. The records are split into chunks, and each chunk
+   * is validated (in order) by a single task on the given pool. Each record is validated
+   * exactly as by {@link #parse(java.util.Map)} (in {@link BatchMode#FAIL_FAST} mode) or
+   * {@link #parseAll(java.util.Map)} (in {@link BatchMode#COLLECT_ALL} mode), and the
+   * outcome is the same no matter how the work is scheduled.
+   * @param records the records to parse; the list must support fast random access and
+   *                must not be modified during the call
+   * @param mode whether to stop at the first failure or to report every failure
+   * @param pool the pool to run on
+   * @param chunkSize the number of records per task, or 0 to choose automatically.
+   *                  Larger chunks have less overhead; smaller chunks balance better.
+   * @return the results and failures, by index in <code>records</code>
+   */
+  public BatchResult parseBatch(List<? extends Map<String, String>> records, BatchMode mode, ForkJoinPool pool, int chunkSize) {
+    return BatchParser.parse(this, records, mode, pool, chunkSize);
+  }
+
+  /**
+   * Validate a sequence of records of unknown length in parallel, using a shared default
+   * {@link java.util.concurrent.ForkJoinPool} and an automatically chosen chunk size.
+   * @param records the records to parse
+   * @param mode whether to stop at the first failure or to report every failure
+   * @return the results and failures, by position in <code>records</code>
+   * @see #parseBatch(Iterable, BatchMode, java.util.concurrent.ForkJoinPool, int)
+   */
+  public BatchResult parseBatch(Iterable<? extends Map<String, String>> records, BatchMode mode) {
+    return parseBatch(records, mode, BatchParser.defaultPool(), 0);
+  }
+
+  /**
+   * Validate a sequence of records of unknown length in parallel. The calling thread
+   * reads records from the iterator a chunk at a time and submits each chunk to the pool
+   * as soon as it is full, so validation overlaps with reading (e.g. when the iterator
+   * is deserializing records lazily). In {@link BatchMode#FAIL_FAST} mode, reading stops
+   * once a failure has been found. Otherwise this behaves like
+   * {@link #parseBatch(java.util.List, BatchMode, java.util.concurrent.ForkJoinPool, int)}.
+   * @param records the records to parse
+   * @param mode whether to stop at the first failure or to report every failure
+   * @param pool the pool to run on
+   * @param chunkSize the number of records per task, or 0 to choose automatically
+   * @return the results and failures, by position in <code>records</code>. In
+   *         {@link BatchMode#FAIL_FAST} mode, {@link BatchResult#size()} may be less than
+   *         the number of records since reading may stop early.
+   */
+  public BatchResult parseBatch(Iterable<? extends Map<String, String>> records, BatchMode mode, ForkJoinPool pool, int chunkSize) {
+    return BatchParser.parse(this, records, mode, pool, chunkSize);
   }
 
 }
@@ -0,0 +1,24 @@
+package net.cal.sjforms;
+
+/**
+ * Copies the values of a {@link ParseResult} into a typed object. Implementations are
+ * generated from {@link FormField} annotations by the annotation processor in the
+ * <code>processor</code> module, but nothing stops you from writing one by hand.
+ *
+ * @param <T> the type of object this binder creates
+ */
+public interface FormBinder<T> {
+
+  /**
+   * @return the form whose results this binder accepts
+   */
+  Form getForm();
+
+  /**
+   * Create an object from the results of parsing with {@link #getForm()}.
+   * @param result the parse result
+   * @return a new object
+   */
+  T bind(ParseResult result);
+
+}
@@ -0,0 +1,89 @@
+package net.cal.sjforms;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a member variable of a class as a form field, for the annotation processor in
+ * the <code>processor</code> module. For each class with annotated members, the processor
+ * generates a class named after it with the suffix <code>Binder</code> (in the same
+ * package) which declares a {@link Field} for each annotated member, a {@link Form} of
+ * those fields, and a {@link FormBinder} that copies a {@link ParseResult} straight into
+ * a new instance of the class, without reflection or boxing.
+ *
+ * <p>Example:
+ * <pre>
+ *   public class Query {
+ *     &#64;FormField(required = true) String input;
+ *     &#64;FormField(name = "limit", min = 0, max = 100, defaultValue = "10") int limit;
+ *   }
+ *   // ...
+ *   Query query = QueryBinder.parse(inputMap);
+ * </pre></p>
+ *
+ * <p>The class must have a non-private constructor without arguments, and each annotated
+ * member must be non-private or have a non-private setter. Supported types are
+ * <code>int</code>, <code>long</code>, <code>double</code>, <code>boolean</code>, their
+ * boxed forms, {@link String}, enums, and (for repeated parameters, see
+ * {@link ListField}) <code>int[]</code> and <code>long[]</code>. The generated fields are
+ * built with the usual factories ({@link Field#intField(String)},
+ * {@link Field#enumField(String, Class)}, etc.), so they behave exactly like fields
+ * written by hand. Steps are applied in the order default, required, min, max, one-of.</p>
+ *
+ * <p>When a parameter is absent and the field has no default, the generated binder
+ * leaves the member with the value the constructor gave it.</p>
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface FormField {
+
+  /** The value of {@link #defaultValue()} that means "no default". */
+  String NO_DEFAULT = "\u0000";
+
+  /**
+   * @return the parameter name, or "" to use the name of the member
+   */
+  String name() default "";
+
+  /**
+   * @return whether the parameter must be present (see {@link Field#required()})
+   */
+  boolean required() default false;
+
+  /**
+   * @return the value to use when the parameter is absent, written as it would be in the
+   *         input (e.g. "10" or an enum constant's name); checked at compile time
+   */
+  String defaultValue() default NO_DEFAULT;
+
+  /**
+   * @return the least legal value of a numeric field (or of each element of a list)
+   */
+  long min() default Long.MIN_VALUE;
+
+  /**
+   * @return the greatest legal value of a numeric field (or of each element of a list)
+   */
+  long max() default Long.MAX_VALUE;
+
+  /**
+   * @return the legal values of a String field, or none to allow any value
+   */
+  String[] oneOf() default {};
+
+  /**
+   * @return whether {@link #oneOf()} and enum constant names are matched ignoring case
+   */
+  boolean ignoreCase() default false;
+
+  /**
+   * @return the greatest number of values of an <code>int[]</code> or
+   *         <code>long[]</code> field (see {@link ListField#getMaxCount()})
+   */
+  int maxCount() default Integer.MAX_VALUE;
+
+}
@@ -0,0 +1,43 @@
+package net.cal.sjforms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@link FieldMetrics} of every field of a form created with {@link Form#withMetrics()}.
+ */
+public final class FormMetrics {
+
+  private final SlotLayout layout;
+
+  FormMetrics(SlotLayout layout) {
+    this.layout = layout;
+  }
+
+  /**
+   * @param field a field of the measured form
+   * @return the metrics for that field
+   * @throws java.lang.IllegalArgumentException if the field is not part of the measured form
+   */
+  public FieldMetrics get(Field<?> field) {
+    int slot = layout.slotOf(field);
+    if (slot < 0) {
+      throw new IllegalArgumentException("Field " + field.getName() + " is not part of the measured form");
+    }
+    return layout.metrics[slot];
+  }
+
+  /**
+   * @return a copy of the current metrics of every field, in the order of
+   *         {@link Form#getFields()}
+   */
+  public List<FieldMetrics.Snapshot> snapshot() {
+    List<FieldMetrics.Snapshot> snapshots = new ArrayList<>(layout.metrics.length);
+    for (FieldMetrics metrics : layout.metrics) {
+      snapshots.add(metrics.snapshot());
+    }
+    return Collections.unmodifiableList(snapshots);
+  }
+
+}
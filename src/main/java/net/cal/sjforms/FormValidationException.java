@@ -1,7 +1,9 @@
 package net.cal.sjforms;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -12,10 +14,28 @@ import java.util.Map;
 public class FormValidationException extends Exception {
 
   private final Map<Field, ValidationException> failures;
+  private final List<ValidationException> inputFailures;
 
   public FormValidationException(Map<Field, ValidationException> failures) {
-    super("Form failed validation with " + failures.size() + " problems");
-    this.failures = new HashMap<>(failures);
+    this(failures, Collections.<ValidationException>emptyList());
+  }
+
+  /**
+   * @param failures failures of individual fields
+   * @param inputFailures failures of the input as a whole, such as unknown parameters
+   */
+  public FormValidationException(Map<Field, ValidationException> failures, List<ValidationException> inputFailures) {
+    this(failures, inputFailures, true);
+  }
+
+  /**
+   * @param copy false if the caller hands over the given collections, which it must not
+   *             modify afterwards, so that they need not be copied
+   */
+  FormValidationException(Map<Field, ValidationException> failures, List<ValidationException> inputFailures, boolean copy) {
+    super("Form failed validation with " + (failures.size() + inputFailures.size()) + " problems");
+    this.failures = copy ? new HashMap<>(failures) : failures;
+    this.inputFailures = copy ? new ArrayList<>(inputFailures) : inputFailures;
   }
 
   /**
@@ -27,4 +47,13 @@ public class FormValidationException extends Exception {
     return Collections.unmodifiableMap(failures);
   }
 
+  /**
+   * Get the failures that do not belong to any field, such as unknown parameters
+   * rejected by a {@link Form#strict()} form.
+   * @return the failures of the input as a whole, in input order
+   */
+  public List<ValidationException> getInputFailures() {
+    return Collections.unmodifiableList(inputFailures);
+  }
+
 }
@@ -0,0 +1,164 @@
+package net.cal.sjforms;
+
+import net.cal.sjforms.validators.NumberParsing;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Field} for int values. In addition to the usual {@link #validate(String)}
+ * method, int fields offer {@link #validateInt(String)} and
+ * {@link #validateInt(String, int)}, which parse, check and clamp the value without
+ * ever boxing it. The range, clamp and default steps on this class take primitive
+ * arguments and compare primitives.
+ *
+ * <p>Example: create a field for an optional int parameter called "limit" that
+ * defaults to 10 and is clamped to [0, 100]:
+ * <pre>
+ *   IntField LIMIT_FIELD = Field.intField("limit").withDefault(10).clampMin(0).clampMax(100);
+ *   // ...
+ *   int limit = LIMIT_FIELD.validateInt(input);
+ * </pre></p>
+ *
+ * Instances are obtained with {@link Field#intField(String)}.
+ */
+public final class IntField extends PrimitiveField<Integer> {
+
+  private final int[] operands;
+
+  IntField(String name) {
+    this(name, new byte[0], new int[0]);
+  }
+
+  private IntField(String name, byte[] ops, int[] operands) {
+    super(name, ops);
+    this.operands = operands;
+  }
+
+  private IntField then(byte op, int operand) {
+    int[] newOperands = Arrays.copyOf(operands, operands.length + 1);
+    newOperands[operands.length] = operand;
+    return new IntField(getName(), append(ops, op), newOperands);
+  }
+
+  @Override
+  public IntField required() {
+    return then(REQUIRED, 0);
+  }
+
+  public IntField withDefault(int defaultValue) {
+    return then(DEFAULT, defaultValue);
+  }
+
+  public IntField atLeast(int min) {
+    return then(AT_LEAST, min);
+  }
+
+  public IntField greaterThan(int min) {
+    return then(GREATER_THAN, min);
+  }
+
+  public IntField clampMin(int min) {
+    return then(CLAMP_MIN, min);
+  }
+
+  public IntField atMost(int max) {
+    return then(AT_MOST, max);
+  }
+
+  public IntField lessThan(int max) {
+    return then(LESS_THAN, max);
+  }
+
+  public IntField clampMax(int max) {
+    return then(CLAMP_MAX, max);
+  }
+
+  /**
+   * Validate an input that must produce a value.
+   * @param value the raw input
+   * @return the validated value
+   * @throws ValidationException if the input is malformed, fails any check, or
+   *         is missing (see {@link #hasValue(String)})
+   */
+  public int validateInt(String value) throws ValidationException {
+    if (!hasValue(value)) {
+      throw missing();
+    }
+    return validateInt(value, 0);
+  }
+
+  /**
+   * Validate an input that may be missing.
+   * @param value the raw input
+   * @param missingValue the value to return if the input does not produce a value
+   *                     (see {@link #hasValue(String)})
+   * @return the validated value, or <code>missingValue</code>
+   * @throws ValidationException if the input is malformed or fails any check
+   */
+  public int validateInt(String value, int missingValue) throws ValidationException {
+    boolean present = value != null;
+    int result = missingValue;
+    if (present) {
+      long parsed = NumberParsing.parseInt(value);
+      if (parsed == NumberParsing.FAILED) {
+        throw new ValidationException(getName(), value, "not a valid int");
+      }
+      result = (int)parsed;
+    }
+    for (int i = 0; i < ops.length; ++i) {
+      int operand = operands[i];
+      switch (ops[i]) {
+        case DEFAULT:
+          if (!present) {
+            result = operand;
+            present = true;
+          }
+          break;
+        case REQUIRED:
+          if (!present) {
+            throw missing();
+          }
+          break;
+        case AT_LEAST:
+          if (present && result < operand) {
+            throw new ValidationError(getName(), result, "must be at least ", operand).toException();
+          }
+          break;
+        case GREATER_THAN:
+          if (present && result <= operand) {
+            throw new ValidationError(getName(), result, "must be greater than ", operand).toException();
+          }
+          break;
+        case AT_MOST:
+          if (present && result > operand) {
+            throw new ValidationError(getName(), result, "must be at most ", operand).toException();
+          }
+          break;
+        case LESS_THAN:
+          if (present && result >= operand) {
+            throw new ValidationError(getName(), result, "must be less than ", operand).toException();
+          }
+          break;
+        case CLAMP_MIN:
+          if (present && result < operand) {
+            result = operand;
+          }
+          break;
+        case CLAMP_MAX:
+          if (present && result > operand) {
+            result = operand;
+          }
+          break;
+        default:
+          throw new AssertionError(ops[i]);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Integer validate(String value) throws ValidationException {
+    return hasValue(value) ? validateInt(value, 0) : null;
+  }
+
+}
@@ -0,0 +1,90 @@
+package net.cal.sjforms;
+
+/**
+ * A {@link ListField} for lists of int values, which are parsed straight into an
+ * <code>int[]</code> without boxing. Each value is parsed and checked like an
+ * {@link IntField}; the range and clamp steps on this class apply to every element.
+ *
+ * <p>Example: create a field for between 1 and 100 positive ids:
+ * <pre>
+ *   IntListField IDS_FIELD = Field.intList("id").required().maxCount(100).atLeast(1);
+ *   // ...
+ *   int[] ids = parseResult.getParsedValue(IDS_FIELD);
+ * </pre></p>
+ *
+ * Instances are obtained with {@link Field#intList(String)}.
+ */
+public final class IntListField extends ListField<int[]> {
+
+  private final IntField element;
+
+  IntListField(String name) {
+    this(name, new IntField(name), 0, Integer.MAX_VALUE, false);
+  }
+
+  private IntListField(String name, IntField element, int minCount, int maxCount, boolean required) {
+    super(name, minCount, maxCount, required);
+    this.element = element;
+  }
+
+  private IntListField with(IntField element) {
+    return new IntListField(getName(), element, minCount, maxCount, required);
+  }
+
+  @Override
+  public IntListField required() {
+    return new IntListField(getName(), element, minCount, maxCount, true);
+  }
+
+  /**
+   * @param min the least number of values to accept when there are any
+   * @return a new field that fails if given fewer values
+   * @throws IllegalArgumentException if <code>min</code> is negative or more than the max count
+   */
+  public IntListField minCount(int min) {
+    return new IntListField(getName(), element, min, maxCount, required);
+  }
+
+  /**
+   * @param max the greatest number of values to accept
+   * @return a new field that fails if given more values, without parsing any of them
+   * @throws IllegalArgumentException if <code>max</code> is less than the min count
+   */
+  public IntListField maxCount(int max) {
+    return new IntListField(getName(), element, minCount, max, required);
+  }
+
+  public IntListField atLeast(int min) {
+    return with(element.atLeast(min));
+  }
+
+  public IntListField greaterThan(int min) {
+    return with(element.greaterThan(min));
+  }
+
+  public IntListField clampMin(int min) {
+    return with(element.clampMin(min));
+  }
+
+  public IntListField atMost(int max) {
+    return with(element.atMost(max));
+  }
+
+  public IntListField lessThan(int max) {
+    return with(element.lessThan(max));
+  }
+
+  public IntListField clampMax(int max) {
+    return with(element.clampMax(max));
+  }
+
+  @Override
+  int[] validateElements(String[] values, int count) throws ValidationException {
+    int[] result = new int[count];
+    for (int i = 0; i < count; ++i) {
+      result[i] = element.validateInt(values[i]);
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,136 @@
+package net.cal.sjforms;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds. Each power of two is split into
+ * four buckets, so recorded durations are accurate to within 25%.
+ */
+public final class LatencyHistogram {
+
+  private static final int BUCKETS = 248; // enough for Long.MAX_VALUE
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final StripedCounter totalNanos = new StripedCounter();
+
+  LatencyHistogram() {
+  }
+
+  void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    counts.getAndIncrement(bucketOf(nanos));
+    totalNanos.add(nanos);
+  }
+
+  static int bucketOf(long nanos) {
+    if (nanos < 4) {
+      return (int)nanos;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    return (exponent - 1) * 4 + (int)((nanos >>> (exponent - 2)) & 3);
+  }
+
+  static long lowerBound(int bucket) {
+    if (bucket < 4) {
+      return bucket;
+    }
+    int exponent = bucket / 4 + 1;
+    return (long)(4 + bucket % 4) << (exponent - 2);
+  }
+
+  /**
+   * @return a copy of the current state of this histogram
+   */
+  public Snapshot snapshot() {
+    long[] copy = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; ++i) {
+      copy[i] = counts.get(i);
+    }
+    return new Snapshot(copy, totalNanos.sum());
+  }
+
+  /**
+   * The state of a {@link LatencyHistogram} at some point in time. Since recording is
+   * not atomic across buckets, a snapshot taken while durations are being recorded may
+   * be very slightly inconsistent.
+   */
+  public static final class Snapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long totalNanos;
+
+    Snapshot(long[] counts, long totalNanos) {
+      long count = 0;
+      for (long c : counts) {
+        count += c;
+      }
+      this.counts = counts;
+      this.count = count;
+      this.totalNanos = totalNanos;
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return the sum of all recorded durations
+     */
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    /**
+     * @return the mean recorded duration, or 0 if nothing was recorded
+     */
+    public double getMeanNanos() {
+      return count == 0 ? 0 : (double)totalNanos / count;
+    }
+
+    /**
+     * Estimate a percentile.
+     * @param percentile the percentile, between 0 and 100
+     * @return an upper bound for the given percentile of recorded durations, or 0 if
+     *         nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("Illegal percentile " + percentile);
+      }
+      long rank = (long)Math.ceil(count * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < counts.length; ++i) {
+        seen += counts[i];
+        if (seen >= rank && counts[i] > 0) {
+          return i + 1 < counts.length ? lowerBound(i + 1) - 1 : Long.MAX_VALUE;
+        }
+      }
+      return 0;
+    }
+
+    /**
+     * @return a map from the lower bound of each non-empty bucket (in nanoseconds) to
+     *         the number of durations recorded in it
+     */
+    public SortedMap<Long, Long> getBuckets() {
+      SortedMap<Long, Long> buckets = new TreeMap<>();
+      for (int i = 0; i < counts.length; ++i) {
+        if (counts[i] > 0) {
+          buckets.put(lowerBound(i), counts[i]);
+        }
+      }
+      return Collections.unmodifiableSortedMap(buckets);
+    }
+
+  }
+
+}
@@ -0,0 +1,147 @@
+package net.cal.sjforms;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The result of using {@link Form#parseLazy(java.util.Map)} to parse some inputs. Only
+ * required fields (and fields whose validators might not be pure, see
+ * {@link PureValidator}) are validated when the result is created; every other field is
+ * validated the first time its value is asked for, and the outcome is remembered. This
+ * is much cheaper than {@link Form#parse(java.util.Map)} for wide forms of which each
+ * caller reads only a few fields.
+ *
+ * <p>Since most fields are validated late, most validation failures surface late too:
+ * {@link #getParsedValue(Field)} throws a {@link ValidationException} if the field's
+ * value is invalid, and keeps throwing it on every later call. Use
+ * {@link #toParseResult()} to validate everything that is left, which is also the only
+ * method that runs the form's {@link CrossFieldValidator}s.</p>
+ *
+ * <p>Instances are safe to share between threads. If two threads ask for the same
+ * unvalidated field at once, both may validate it (validation is pure, so they get the
+ * same outcome), but only one outcome is kept and measured.</p>
+ */
+public final class LazyParseResult {
+
+  private final SlotLayout layout;
+  private final String[] raw;
+  private final AtomicReferenceArray<Outcome<?>> outcomes;
+  private final CrossFieldCheck[] checks;
+
+  /**
+   * Validate the fields that must be validated up front.
+   * @param input the raw input for each field, by position
+   * @throws ValidationException for the first of those fields to fail, in form order
+   */
+  LazyParseResult(SlotLayout layout, RawInput input, CrossFieldCheck[] checks) throws ValidationException {
+    this.layout = layout;
+    this.checks = checks;
+    this.raw = input.values;
+    this.outcomes = new AtomicReferenceArray<>(raw.length);
+    for (int slot = 0; slot < raw.length; ++slot) {
+      Outcome<?> missing = layout.missing[slot];
+      Outcome<?> outcome;
+      if (input.nested(slot) != null) {
+        // structured input (lists and sub-forms) is validated now, since only the raw
+        // values are kept
+        long start = layout.metrics != null ? System.nanoTime() : 0;
+        try {
+          outcome = Outcome.success(layout.fields[slot].validateNested(input, slot));
+        } catch (ValidationException e) {
+          outcome = Outcome.failure(e.getError());
+        }
+        outcomes.set(slot, outcome);
+        record(slot, "", outcome, layout.metrics != null ? System.nanoTime() - start : 0);
+      } else if (raw[slot] == null && missing != null) {
+        outcome = missing;
+        outcomes.set(slot, outcome);
+        record(slot, null, outcome, 0);
+      } else if (missing == null || !missing.isSuccess()) {
+        // impure or required: validate now
+        outcome = outcome(slot);
+      } else {
+        continue;
+      }
+      if (!outcome.isSuccess()) {
+        throw outcome.getError().toException();
+      }
+    }
+  }
+
+  /**
+   * @return the remembered outcome for the given slot, validating it first if necessary
+   */
+  private Outcome<?> outcome(int slot) {
+    Outcome<?> outcome = outcomes.get(slot);
+    if (outcome != null) {
+      return outcome;
+    }
+    long start = layout.metrics != null ? System.nanoTime() : 0;
+    outcome = layout.fields[slot].tryValidate(raw[slot]);
+    if (!outcomes.compareAndSet(slot, null, outcome)) {
+      return outcomes.get(slot);
+    }
+    if (layout.metrics != null) {
+      record(slot, raw[slot], outcome, System.nanoTime() - start);
+    }
+    return outcome;
+  }
+
+  private void record(int slot, String raw, Outcome<?> outcome, long nanos) {
+    if (layout.metrics == null) {
+      return;
+    }
+    if (outcome.isSuccess()) {
+      layout.metrics[slot].recordSuccess(raw, outcome.getValue() != null, nanos);
+    } else {
+      layout.metrics[slot].recordFailure(raw, outcome.getError(), nanos);
+    }
+  }
+
+  /**
+   * Get a parsed value, validating it if this is the first time it has been asked for.
+   * @param field the field to get a value for
+   * @param <T> the type of value
+   * @return the parsed value, or null in the same cases as
+   *         {@link ParseResult#getParsedValue(Field)}
+   * @throws ValidationException if the field's value is not valid
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T getParsedValue(Field<T> field) throws ValidationException {
+    int slot = layout.slotOf(field);
+    if (slot < 0) {
+      return null;
+    }
+    Outcome<?> outcome = outcome(slot);
+    if (!outcome.isSuccess()) {
+      throw outcome.getError().toException();
+    }
+    // this cast is safe provided that the values were produced by the field
+    return (T)outcome.getValue();
+  }
+
+  /**
+   * Validate every field that has not been validated yet and collect all the values.
+   * @return a {@link ParseResult} with every parsed value
+   * @throws ValidationException for the first field (in the order of
+   *         {@link Form#getFields()}) whose value is not valid, or else for the first
+   *         failing cross-field validator
+   */
+  public ParseResult toParseResult() throws ValidationException {
+    ParseResult result = new ParseResult(layout);
+    for (int slot = 0; slot < raw.length; ++slot) {
+      Outcome<?> outcome = outcome(slot);
+      if (!outcome.isSuccess()) {
+        throw outcome.getError().toException();
+      }
+      result.set(slot, outcome.getValue());
+    }
+    for (CrossFieldCheck check : checks) {
+      ValidationError error = check.check(layout, result);
+      if (error != null) {
+        throw error.toException();
+      }
+    }
+    return result;
+  }
+
+}
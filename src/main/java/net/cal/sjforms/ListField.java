@@ -0,0 +1,128 @@
+package net.cal.sjforms;
+
+/**
+ * Common base for fields that take every value given for a parameter (such as all the
+ * ids in <code>?id=1&amp;id=2&amp;id=3</code>) rather than just the first. Forms pass
+ * all of a list field's values to {@link #validateValues(String...)} when parsing
+ * multi-valued input ({@link Form#parseValues(java.util.Map)}) or urlencoded input
+ * ({@link Form#parseUrlEncoded(CharSequence)}); single-valued input is treated as a list of one.
+ *
+ * <p>The number of values is checked against {@link #getMinCount()} and
+ * {@link #getMaxCount()} before any of them is parsed, and urlencoded input stops being
+ * decoded as soon as a list field has too many values, so oversized requests are
+ * rejected cheaply.</p>
+ *
+ * <p>If there are no values at all, the result is null (or a failure, for required
+ * fields); the count limits only apply when there is at least one value.</p>
+ *
+ * @param <T> the type of list (usually a primitive array) this field returns
+ * @see Field#intList(String)
+ * @see Field#longList(String)
+ */
+public abstract class ListField<T> extends Field<T> {
+
+  private final String name;
+  final int minCount;
+  final int maxCount;
+  final boolean required;
+
+  ListField(String name, int minCount, int maxCount, boolean required) {
+    if (minCount < 0 || maxCount < minCount) {
+      throw new IllegalArgumentException("Illegal value count range [" + minCount + ", " + maxCount + ']');
+    }
+    this.name = name;
+    this.minCount = minCount;
+    this.maxCount = maxCount;
+    this.required = required;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the least number of values this field accepts (when it has any)
+   */
+  public int getMinCount() {
+    return minCount;
+  }
+
+  /**
+   * @return the greatest number of values this field accepts
+   */
+  public int getMaxCount() {
+    return maxCount;
+  }
+
+  /**
+   * Validate a single value, as a list of one.
+   * @param value the raw input
+   * @return the validated list, or null if the input is null and the field is not required
+   * @throws ValidationException if the value is malformed or fails any check
+   */
+  @Override
+  public final T validate(String value) throws ValidationException {
+    return validateValues(value == null ? null : new String[] { value });
+  }
+
+  /**
+   * Validate every value given for this field's parameter.
+   * @param values the raw inputs, in order (null or empty if the parameter is absent)
+   * @return the validated list, or null if there are no values and the field is not required
+   * @throws ValidationException if there are too few or too many values (checked before
+   *         any value is parsed), or if any value is null, malformed or fails any check
+   */
+  public final T validateValues(String... values) throws ValidationException {
+    return validateValues(values, values == null ? 0 : values.length);
+  }
+
+  /**
+   * Same as {@link #validateValues(String...)}, but only the first <code>count</code>
+   * values are used.
+   */
+  final T validateValues(String[] values, int count) throws ValidationException {
+    if (count == 0) {
+      if (required) {
+        throw new ValidationException(name, "missing value");
+      }
+      return null;
+    }
+    checkCount(count);
+    return validateElements(values, count);
+  }
+
+  /**
+   * @throws ValidationException if a non-empty list of the given length is too short or too long
+   */
+  void checkCount(int count) throws ValidationException {
+    if (count > maxCount) {
+      throw tooMany();
+    }
+    if (count < minCount) {
+      throw new ValidationException(name, "must have at least " + minCount + " values");
+    }
+  }
+
+  ValidationException tooMany() {
+    return new ValidationException(name, "must have at most " + maxCount + " values");
+  }
+
+  /**
+   * Parse and check each of the first <code>count</code> values, where the count is
+   * positive and has been checked.
+   */
+  abstract T validateElements(String[] values, int count) throws ValidationException;
+
+  @Override
+  Object validateNested(RawInput raw, int slot) throws ValidationException {
+    String[] values = (String[])raw.nested(slot);
+    return values == null ? validate(raw.values[slot]) : validateValues(values, raw.count(slot));
+  }
+
+  @Override
+  boolean isPure() {
+    return true;
+  }
+
+}
@@ -0,0 +1,163 @@
+package net.cal.sjforms;
+
+import net.cal.sjforms.validators.NumberParsing;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Field} for long values. In addition to the usual {@link #validate(String)}
+ * method, long fields offer {@link #validateLong(String)} and
+ * {@link #validateLong(String, long)}, which parse, check and clamp the value without
+ * ever boxing it. The range, clamp and default steps on this class take primitive
+ * arguments and compare primitives.
+ *
+ * <p>Example: create a field for an optional long parameter called "limit" that
+ * defaults to 10 and is clamped to [0, 100]:
+ * <pre>
+ *   LongField LIMIT_FIELD = Field.longField("limit").withDefault(10).clampMin(0).clampMax(100);
+ *   // ...
+ *   long limit = LIMIT_FIELD.validateLong(input);
+ * </pre></p>
+ *
+ * Instances are obtained with {@link Field#longField(String)}.
+ */
+public final class LongField extends PrimitiveField<Long> {
+
+  private final long[] operands;
+
+  LongField(String name) {
+    this(name, new byte[0], new long[0]);
+  }
+
+  private LongField(String name, byte[] ops, long[] operands) {
+    super(name, ops);
+    this.operands = operands;
+  }
+
+  private LongField then(byte op, long operand) {
+    long[] newOperands = Arrays.copyOf(operands, operands.length + 1);
+    newOperands[operands.length] = operand;
+    return new LongField(getName(), append(ops, op), newOperands);
+  }
+
+  @Override
+  public LongField required() {
+    return then(REQUIRED, 0);
+  }
+
+  public LongField withDefault(long defaultValue) {
+    return then(DEFAULT, defaultValue);
+  }
+
+  public LongField atLeast(long min) {
+    return then(AT_LEAST, min);
+  }
+
+  public LongField greaterThan(long min) {
+    return then(GREATER_THAN, min);
+  }
+
+  public LongField clampMin(long min) {
+    return then(CLAMP_MIN, min);
+  }
+
+  public LongField atMost(long max) {
+    return then(AT_MOST, max);
+  }
+
+  public LongField lessThan(long max) {
+    return then(LESS_THAN, max);
+  }
+
+  public LongField clampMax(long max) {
+    return then(CLAMP_MAX, max);
+  }
+
+  /**
+   * Validate an input that must produce a value.
+   * @param value the raw input
+   * @return the validated value
+   * @throws ValidationException if the input is malformed, fails any check, or
+   *         is missing (see {@link #hasValue(String)})
+   */
+  public long validateLong(String value) throws ValidationException {
+    if (!hasValue(value)) {
+      throw missing();
+    }
+    return validateLong(value, 0);
+  }
+
+  /**
+   * Validate an input that may be missing.
+   * @param value the raw input
+   * @param missingValue the value to return if the input does not produce a value
+   *                     (see {@link #hasValue(String)})
+   * @return the validated value, or <code>missingValue</code>
+   * @throws ValidationException if the input is malformed or fails any check
+   */
+  public long validateLong(String value, long missingValue) throws ValidationException {
+    boolean present = value != null;
+    long result = missingValue;
+    if (present) {
+      result = NumberParsing.parseLong(value);
+      if (result == NumberParsing.FAILED && !NumberParsing.isLong(value)) {
+        throw new ValidationException(getName(), value, "not a valid long");
+      }
+    }
+    for (int i = 0; i < ops.length; ++i) {
+      long operand = operands[i];
+      switch (ops[i]) {
+        case DEFAULT:
+          if (!present) {
+            result = operand;
+            present = true;
+          }
+          break;
+        case REQUIRED:
+          if (!present) {
+            throw missing();
+          }
+          break;
+        case AT_LEAST:
+          if (present && result < operand) {
+            throw new ValidationError(getName(), result, "must be at least ", operand).toException();
+          }
+          break;
+        case GREATER_THAN:
+          if (present && result <= operand) {
+            throw new ValidationError(getName(), result, "must be greater than ", operand).toException();
+          }
+          break;
+        case AT_MOST:
+          if (present && result > operand) {
+            throw new ValidationError(getName(), result, "must be at most ", operand).toException();
+          }
+          break;
+        case LESS_THAN:
+          if (present && result >= operand) {
+            throw new ValidationError(getName(), result, "must be less than ", operand).toException();
+          }
+          break;
+        case CLAMP_MIN:
+          if (present && result < operand) {
+            result = operand;
+          }
+          break;
+        case CLAMP_MAX:
+          if (present && result > operand) {
+            result = operand;
+          }
+          break;
+        default:
+          throw new AssertionError(ops[i]);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Long validate(String value) throws ValidationException {
+    return hasValue(value) ? validateLong(value, 0) : null;
+  }
+
+}
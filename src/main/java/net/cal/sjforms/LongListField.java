@@ -0,0 +1,90 @@
+package net.cal.sjforms;
+
+/**
+ * A {@link ListField} for lists of long values, which are parsed straight into a
+ * <code>long[]</code> without boxing. Each value is parsed and checked like a
+ * {@link LongField}; the range and clamp steps on this class apply to every element.
+ *
+ * <p>Example: create a field for between 1 and 100 positive ids:
+ * <pre>
+ *   LongListField IDS_FIELD = Field.longList("id").required().maxCount(100).atLeast(1);
+ *   // ...
+ *   long[] ids = parseResult.getParsedValue(IDS_FIELD);
+ * </pre></p>
+ *
+ * Instances are obtained with {@link Field#longList(String)}.
+ */
+public final class LongListField extends ListField<long[]> {
+
+  private final LongField element;
+
+  LongListField(String name) {
+    this(name, new LongField(name), 0, Integer.MAX_VALUE, false);
+  }
+
+  private LongListField(String name, LongField element, int minCount, int maxCount, boolean required) {
+    super(name, minCount, maxCount, required);
+    this.element = element;
+  }
+
+  private LongListField with(LongField element) {
+    return new LongListField(getName(), element, minCount, maxCount, required);
+  }
+
+  @Override
+  public LongListField required() {
+    return new LongListField(getName(), element, minCount, maxCount, true);
+  }
+
+  /**
+   * @param min the least number of values to accept when there are any
+   * @return a new field that fails if given fewer values
+   * @throws IllegalArgumentException if <code>min</code> is negative or more than the max count
+   */
+  public LongListField minCount(int min) {
+    return new LongListField(getName(), element, min, maxCount, required);
+  }
+
+  /**
+   * @param max the greatest number of values to accept
+   * @return a new field that fails if given more values, without parsing any of them
+   * @throws IllegalArgumentException if <code>max</code> is less than the min count
+   */
+  public LongListField maxCount(int max) {
+    return new LongListField(getName(), element, minCount, max, required);
+  }
+
+  public LongListField atLeast(long min) {
+    return with(element.atLeast(min));
+  }
+
+  public LongListField greaterThan(long min) {
+    return with(element.greaterThan(min));
+  }
+
+  public LongListField clampMin(long min) {
+    return with(element.clampMin(min));
+  }
+
+  public LongListField atMost(long max) {
+    return with(element.atMost(max));
+  }
+
+  public LongListField lessThan(long max) {
+    return with(element.lessThan(max));
+  }
+
+  public LongListField clampMax(long max) {
+    return with(element.clampMax(max));
+  }
+
+  @Override
+  long[] validateElements(String[] values, int count) throws ValidationException {
+    long[] result = new long[count];
+    for (int i = 0; i < count; ++i) {
+      result[i] = element.validateLong(values[i]);
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,87 @@
+package net.cal.sjforms;
+
+/**
+ * The outcome of a validation that does not throw: either a validated value or a
+ * {@link net.cal.sjforms.ValidationError}. See {@link Field#tryValidate(String)},
+ * {@link TryValidator#tryValidate(String, Object)} and {@link Form#tryParse(java.util.Map)}.
+ *
+ * @param <T> the type of validated value
+ */
+public final class Outcome<T> {
+
+  private static final Outcome<Object> NULL_SUCCESS = new Outcome<>(null, null);
+
+  private final T value;
+  private final ValidationError error;
+
+  private Outcome(T value, ValidationError error) {
+    this.value = value;
+    this.error = error;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> Outcome<T> success(T value) {
+    // the shared null outcome holds no T, so it is safe to use for any T
+    return value == null ? (Outcome<T>)NULL_SUCCESS : new Outcome<>(value, null);
+  }
+
+  public static <T> Outcome<T> failure(ValidationError error) {
+    if (error == null) {
+      throw new NullPointerException("A failed outcome requires an error");
+    }
+    return new Outcome<>(null, error);
+  }
+
+  /**
+   * Determine whether validation succeeded.
+   * @return true if validation succeeded
+   */
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  /**
+   * Get the validated value.
+   * @return the validated value (which may be null, e.g. for optional fields), or null
+   *         if validation failed
+   */
+  public T getValue() {
+    return value;
+  }
+
+  /**
+   * Get the reason validation failed.
+   * @return the error, or null if validation succeeded
+   */
+  public ValidationError getError() {
+    return error;
+  }
+
+  /**
+   * Get the validated value, throwing if validation failed.
+   * @return the validated value
+   * @throws ValidationException wrapping {@link #getError()} if validation failed
+   */
+  public T getOrThrow() throws ValidationException {
+    if (error != null) {
+      throw error.toException();
+    }
+    return value;
+  }
+
+  /**
+   * Reinterpret a failed outcome as an outcome of a different type.
+   * @param <U> the new type
+   * @return this outcome
+   * @throws java.lang.IllegalStateException if this outcome is a success
+   */
+  @SuppressWarnings("unchecked")
+  public <U> Outcome<U> asFailure() {
+    if (error == null) {
+      throw new IllegalStateException("Cannot reinterpret a successful outcome");
+    }
+    // a failed outcome holds no value, so it is safe to use for any type
+    return (Outcome<U>)this;
+  }
+
+}
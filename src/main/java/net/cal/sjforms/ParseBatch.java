@@ -0,0 +1,348 @@
+package net.cal.sjforms;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The results of parsing many records with one {@link Form}, stored by column rather
+ * than as one {@link ParseResult} per record. Each {@link IntField}, {@link LongField}
+ * and {@link DoubleField} gets a single primitive array plus a bitmap of which rows have
+ * a value, and every other field gets a single array of references. A row of such a
+ * batch costs only the bytes of its values (e.g. 4 bytes and 1 bit for an int field),
+ * where a retained {@link ParseResult} costs several objects with their own headers and
+ * boxed or padded storage, so batches are much cheaper to keep for downstream
+ * processing.
+ *
+ * <p>Batches are filled incrementally, by {@link #add(ParseResult)}ing each record as it
+ * is validated (e.g. from {@link RecordHandler#onRecord(long, ParseResult)}),
+ * after which the ParseResult is garbage. Rows are read back with accessors that mirror
+ * those of {@link ParseResult}, given the row number:</p>
+ * <pre>
+ *   ParseBatch batch = new ParseBatch(FORM);
+ *   // for each record: batch.add(FORM.parse(record));
+ *   for (int row = 0; row &lt; batch.size(); ++row) {
+ *     int limit = batch.getInt(row, LIMIT_FIELD, 10);
+ *     String input = batch.getParsedValue(row, INPUT_FIELD);
+ *   }
+ * </pre>
+ *
+ * <p>Instances of this class are not threadsafe.</p>
+ */
+public final class ParseBatch {
+
+  private static final int DEFAULT_CAPACITY = 64;
+
+  private final SlotLayout layout;
+  private final int[][] ints;
+  private final long[][] longs;
+  private final double[][] doubles;
+  private final Object[][] objects; // by slot; null for primitive slots
+  private final long[][] present; // by slot; null for object slots
+  private int capacity;
+  private int size;
+
+  /**
+   * Create an empty batch for the results of the given form.
+   * @param form the form whose results will be added
+   */
+  public ParseBatch(Form form) {
+    this(form, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create an empty batch for the results of the given form.
+   * @param form the form whose results will be added
+   * @param initialCapacity the number of rows to allocate room for up front
+   */
+  public ParseBatch(Form form, int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+    }
+    layout = form.layout();
+    capacity = initialCapacity;
+    int n = layout.fields.length;
+    ints = new int[layout.intCount][];
+    longs = new long[layout.longCount][];
+    doubles = new double[layout.doubleCount][];
+    objects = new Object[n][];
+    present = new long[n][];
+    for (int slot = 0; slot < n; ++slot) {
+      int index = layout.primitiveSlots[slot];
+      switch (layout.kinds[slot]) {
+        case SlotLayout.INT:
+          ints[index] = new int[capacity];
+          break;
+        case SlotLayout.LONG:
+          longs[index] = new long[capacity];
+          break;
+        case SlotLayout.DOUBLE:
+          doubles[index] = new double[capacity];
+          break;
+        default:
+          objects[slot] = new Object[capacity];
+          continue;
+      }
+      present[slot] = new long[words(capacity)];
+    }
+  }
+
+  private static int words(int rows) {
+    return (rows + 63) >>> 6;
+  }
+
+  /**
+   * @return the number of rows in this batch
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Append the values of a record as a new row.
+   * @param result the parsed record, which must come from this batch's form (or a copy
+   *               of it, such as one made with {@link Form#withMetrics()})
+   * @return the number of the new row
+   * @throws IllegalArgumentException if the result has different fields than this
+   *         batch's form
+   */
+  public int add(ParseResult result) {
+    SlotLayout from = result.layout;
+    if (from != layout && !Arrays.equals(from.fields, layout.fields)) {
+      throw new IllegalArgumentException("The result does not come from this batch's form");
+    }
+    if (size == capacity) {
+      grow();
+    }
+    int row = size;
+    Object[] values = result.values;
+    for (int slot = 0; slot < values.length; ++slot) {
+      Object value = values[slot];
+      if (layout.kinds[slot] == SlotLayout.OBJECT) {
+        objects[slot][row] = value;
+        continue;
+      }
+      if (value == null) {
+        continue;
+      }
+      int index = layout.primitiveSlots[slot];
+      switch (layout.kinds[slot]) {
+        case SlotLayout.INT:
+          ints[index][row] = result.ints[index];
+          break;
+        case SlotLayout.LONG:
+          longs[index][row] = result.longs[index];
+          break;
+        default:
+          doubles[index][row] = result.doubles[index];
+          break;
+      }
+      present[slot][row >>> 6] |= 1L << row;
+    }
+    return size++;
+  }
+
+  private void grow() {
+    capacity = Math.max(DEFAULT_CAPACITY, capacity + (capacity >> 1));
+    for (int i = 0; i < ints.length; ++i) {
+      ints[i] = Arrays.copyOf(ints[i], capacity);
+    }
+    for (int i = 0; i < longs.length; ++i) {
+      longs[i] = Arrays.copyOf(longs[i], capacity);
+    }
+    for (int i = 0; i < doubles.length; ++i) {
+      doubles[i] = Arrays.copyOf(doubles[i], capacity);
+    }
+    for (int slot = 0; slot < objects.length; ++slot) {
+      if (objects[slot] != null) {
+        objects[slot] = Arrays.copyOf(objects[slot], capacity);
+      } else {
+        present[slot] = Arrays.copyOf(present[slot], words(capacity));
+      }
+    }
+  }
+
+  /**
+   * Get a parsed value from a row, as by {@link ParseResult#getParsedValue(Field)}.
+   * @param row the row number
+   * @param field the field to get a value for
+   * @param <T> the type of value
+   * @return the parsed value, or null if the row has no value for the field or the
+   *         field is not part of this batch's form
+   * @throws IndexOutOfBoundsException if there is no such row
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T getParsedValue(int row, Field<T> field) {
+    checkRow(row);
+    int slot = layout.slotOf(field);
+    if (slot < 0) {
+      return null;
+    }
+    if (layout.kinds[slot] == SlotLayout.OBJECT) {
+      // this cast is safe provided that the values were produced by the field
+      return (T)objects[slot][row];
+    }
+    if (!isPresent(slot, row)) {
+      return null;
+    }
+    int index = layout.primitiveSlots[slot];
+    switch (layout.kinds[slot]) {
+      case SlotLayout.INT:
+        return (T)Integer.valueOf(ints[index][row]);
+      case SlotLayout.LONG:
+        return (T)Long.valueOf(longs[index][row]);
+      default:
+        return (T)Double.valueOf(doubles[index][row]);
+    }
+  }
+
+  /**
+   * Determine whether a row has a value for a field, without boxing it.
+   * @param row the row number
+   * @param field the field
+   * @return true if {@link #getParsedValue(int, Field)} would return a non-null value
+   * @throws IndexOutOfBoundsException if there is no such row
+   */
+  public boolean hasValue(int row, Field<?> field) {
+    checkRow(row);
+    int slot = layout.slotOf(field);
+    if (slot < 0) {
+      return false;
+    }
+    return layout.kinds[slot] == SlotLayout.OBJECT ? objects[slot][row] != null : isPresent(slot, row);
+  }
+
+  /**
+   * Get a parsed int value from a row, as by {@link ParseResult#getInt(IntField)}.
+   * @param row the row number
+   * @param field the field to get a value for
+   * @return the parsed value
+   * @throws java.util.NoSuchElementException if the row has no value for the field
+   * @throws IndexOutOfBoundsException if there is no such row
+   */
+  public int getInt(int row, IntField field) {
+    return ints[presentPrimitiveSlot(row, field)][row];
+  }
+
+  /**
+   * Get a parsed int value from a row, as by {@link ParseResult#getInt(IntField, int)}.
+   * @param row the row number
+   * @param field the field to get a value for
+   * @param missingValue the value to return if the row has no value for the field
+   * @return the parsed value, or <code>missingValue</code>
+   * @throws IndexOutOfBoundsException if there is no such row
+   */
+  public int getInt(int row, IntField field, int missingValue) {
+    int index = primitiveSlot(row, field);
+    return index < 0 ? missingValue : ints[index][row];
+  }
+
+  /**
+   * Get a parsed long value from a row, as by {@link ParseResult#getLong(LongField)}.
+   * @param row the row number
+   * @param field the field to get a value for
+   * @return the parsed value
+   * @throws java.util.NoSuchElementException if the row has no value for the field
+   * @throws IndexOutOfBoundsException if there is no such row
+   */
+  public long getLong(int row, LongField field) {
+    return longs[presentPrimitiveSlot(row, field)][row];
+  }
+
+  /**
+   * Get a parsed long value from a row, as by {@link ParseResult#getLong(LongField, long)}.
+   * @param row the row number
+   * @param field the field to get a value for
+   * @param missingValue the value to return if the row has no value for the field
+   * @return the parsed value, or <code>missingValue</code>
+   * @throws IndexOutOfBoundsException if there is no such row
+   */
+  public long getLong(int row, LongField field, long missingValue) {
+    int index = primitiveSlot(row, field);
+    return index < 0 ? missingValue : longs[index][row];
+  }
+
+  /**
+   * Get a parsed double value from a row, as by {@link ParseResult#getDouble(DoubleField)}.
+   * @param row the row number
+   * @param field the field to get a value for
+   * @return the parsed value
+   * @throws java.util.NoSuchElementException if the row has no value for the field
+   * @throws IndexOutOfBoundsException if there is no such row
+   */
+  public double getDouble(int row, DoubleField field) {
+    return doubles[presentPrimitiveSlot(row, field)][row];
+  }
+
+  /**
+   * Get a parsed double value from a row, as by
+   * {@link ParseResult#getDouble(DoubleField, double)}.
+   * @param row the row number
+   * @param field the field to get a value for
+   * @param missingValue the value to return if the row has no value for the field
+   * @return the parsed value, or <code>missingValue</code>
+   * @throws IndexOutOfBoundsException if there is no such row
+   */
+  public double getDouble(int row, DoubleField field, double missingValue) {
+    int index = primitiveSlot(row, field);
+    return index < 0 ? missingValue : doubles[index][row];
+  }
+
+  /**
+   * Copy a row back out into a {@link ParseResult} of its own.
+   * @param row the row number
+   * @return a new ParseResult with the row's values
+   * @throws IndexOutOfBoundsException if there is no such row
+   */
+  public ParseResult getRow(int row) {
+    checkRow(row);
+    ParseResult result = new ParseResult(layout);
+    for (int slot = 0; slot < objects.length; ++slot) {
+      if (layout.kinds[slot] == SlotLayout.OBJECT) {
+        result.set(slot, objects[slot][row]);
+      } else if (isPresent(slot, row)) {
+        int index = layout.primitiveSlots[slot];
+        switch (layout.kinds[slot]) {
+          case SlotLayout.INT:
+            result.setInt(slot, ints[index][row]);
+            break;
+          case SlotLayout.LONG:
+            result.setLong(slot, longs[index][row]);
+            break;
+          default:
+            result.setDouble(slot, doubles[index][row]);
+            break;
+        }
+      }
+    }
+    return result;
+  }
+
+  private boolean isPresent(int slot, int row) {
+    return (present[slot][row >>> 6] & (1L << row)) != 0;
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+    }
+  }
+
+  /**
+   * @return the index of the field's column in its primitive array, or -1 if the row has
+   *         no value for it
+   */
+  private int primitiveSlot(int row, PrimitiveField<?> field) {
+    checkRow(row);
+    int slot = layout.slotOf(field);
+    return slot < 0 || !isPresent(slot, row) ? -1 : layout.primitiveSlots[slot];
+  }
+
+  private int presentPrimitiveSlot(int row, PrimitiveField<?> field) {
+    int index = primitiveSlot(row, field);
+    if (index < 0) {
+      throw new NoSuchElementException("No value for field '" + field.getName() + "' in row " + row);
+    }
+    return index;
+  }
+
+}
@@ -0,0 +1,31 @@
+package net.cal.sjforms;
+
+/**
+ * A {@link ParseResult} that can be filled over and over by
+ * {@link Form#parseInto(java.util.Map, ParseBuffer)}, so that a handler can parse every
+ * request into the same buffer instead of allocating a new result each time. Create one
+ * with {@link Form#newBuffer()}. Its values can be read like those of any other
+ * ParseResult, but only until the next call to <code>parseInto</code>.
+ *
+ * <p>Instances of this class are not threadsafe: keep one per thread (e.g. in a
+ * {@link ThreadLocal}) or per event loop.</p>
+ */
+public final class ParseBuffer extends ParseResult {
+
+  /** the raw input, reused by each parse */
+  final RawInput raw;
+
+  ParseBuffer(SlotLayout layout) {
+    super(layout);
+    raw = new RawInput(layout.fields.length);
+  }
+
+  /**
+   * Forget the values and input of the previous parse.
+   */
+  void reset() {
+    clear();
+    raw.clear();
+  }
+
+}
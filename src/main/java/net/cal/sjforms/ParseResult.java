@@ -1,14 +1,28 @@
 package net.cal.sjforms;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
- * The result of using a {@link net.cal.sjforms.ValidationException} to parse some inputs.
+ * The result of using a {@link net.cal.sjforms.Form} to parse some inputs.
+ *
+ * <p>Values are stored in plain arrays indexed by each field's position in the form
+ * (see {@link SlotLayout}), and values of {@link IntField}s, {@link LongField}s and
+ * {@link DoubleField}s are stored unboxed, so the primitive getters such as
+ * {@link #getInt(IntField)} never box.</p>
  */
 public class ParseResult {
 
-  private final Map<Field, Object> values;
+  /** Marks a primitive slot as holding a value. */
+  private static final Object PRESENT = new Object();
+
+  final SlotLayout layout;
+  /** the value in each slot, or {@link #PRESENT} for primitive slots that have a value */
+  final Object[] values;
+  final int[] ints;
+  final long[] longs;
+  final double[] doubles;
 
   /**
    * Construct a ParseResult.
@@ -17,7 +31,213 @@ public class ParseResult {
    *               correct types.
    */
   public ParseResult(Map<Field, Object> values) {
-    this.values = new HashMap<>(values);
+    this(new SlotLayout(values.keySet()));
+    for (int slot = 0; slot < layout.fields.length; ++slot) {
+      set(slot, values.get(layout.fields[slot]));
+    }
+  }
+
+  ParseResult(SlotLayout layout) {
+    this.layout = layout;
+    this.values = new Object[layout.fields.length];
+    this.ints = new int[layout.intCount];
+    this.longs = new long[layout.longCount];
+    this.doubles = new double[layout.doubleCount];
+  }
+
+  /**
+   * @return a new ParseResult with the same values as this one
+   */
+  ParseResult copy() {
+    ParseResult copy = new ParseResult(layout);
+    System.arraycopy(values, 0, copy.values, 0, values.length);
+    System.arraycopy(ints, 0, copy.ints, 0, ints.length);
+    System.arraycopy(longs, 0, copy.longs, 0, longs.length);
+    System.arraycopy(doubles, 0, copy.doubles, 0, doubles.length);
+    return copy;
+  }
+
+  /**
+   * Forget all values, so that this can be filled again.
+   */
+  void clear() {
+    Arrays.fill(values, null);
+  }
+
+  /**
+   * Validate a raw value with the field in the given slot and store the result. Primitive
+   * fields are validated and stored without boxing.
+   */
+  void validate(int slot, String raw) throws ValidationException {
+    if (layout.metrics != null) {
+      validateMeasured(slot, raw, layout.metrics[slot]);
+      return;
+    }
+    validateUnmeasured(slot, raw);
+  }
+
+  private void validateMeasured(int slot, String raw, FieldMetrics metrics) throws ValidationException {
+    long start = System.nanoTime();
+    try {
+      validateUnmeasured(slot, raw);
+    } catch (ValidationException e) {
+      metrics.recordFailure(raw, e.getError(), System.nanoTime() - start);
+      throw e;
+    }
+    metrics.recordSuccess(raw, values[slot] != null, System.nanoTime() - start);
+  }
+
+  private void validateUnmeasured(int slot, String raw) throws ValidationException {
+    if (raw == null && layout.missing[slot] != null) {
+      Outcome<?> outcome = layout.missing[slot];
+      if (!outcome.isSuccess()) {
+        throw outcome.getError().toException();
+      }
+      set(slot, outcome.getValue());
+      return;
+    }
+    switch (layout.kinds[slot]) {
+      case SlotLayout.INT: {
+        IntField field = (IntField)layout.fields[slot];
+        if (field.hasValue(raw)) {
+          ints[layout.primitiveSlots[slot]] = field.validateInt(raw, 0);
+          values[slot] = PRESENT;
+        }
+        break;
+      }
+      case SlotLayout.LONG: {
+        LongField field = (LongField)layout.fields[slot];
+        if (field.hasValue(raw)) {
+          longs[layout.primitiveSlots[slot]] = field.validateLong(raw, 0);
+          values[slot] = PRESENT;
+        }
+        break;
+      }
+      case SlotLayout.DOUBLE: {
+        DoubleField field = (DoubleField)layout.fields[slot];
+        if (field.hasValue(raw)) {
+          doubles[layout.primitiveSlots[slot]] = field.validateDouble(raw, 0);
+          values[slot] = PRESENT;
+        }
+        break;
+      }
+      default:
+        values[slot] = layout.fields[slot].validate(raw);
+        break;
+    }
+  }
+
+  /**
+   * Validate the input for the given slot, which may be structured (see
+   * {@link RawInput}), and store the result.
+   */
+  void validate(int slot, RawInput raw) throws ValidationException {
+    if (raw.nested(slot) == null) {
+      validate(slot, raw.values[slot]);
+      return;
+    }
+    Field<?> field = layout.fields[slot];
+    if (layout.metrics == null) {
+      values[slot] = field.validateNested(raw, slot);
+      return;
+    }
+    // structured input is never missing, so measure it as the empty string
+    FieldMetrics metrics = layout.metrics[slot];
+    long start = System.nanoTime();
+    try {
+      values[slot] = field.validateNested(raw, slot);
+    } catch (ValidationException e) {
+      metrics.recordFailure("", e.getError(), System.nanoTime() - start);
+      throw e;
+    }
+    metrics.recordSuccess("", true, System.nanoTime() - start);
+  }
+
+  /**
+   * Like {@link #validate(int, RawInput)}, but without throwing.
+   * @return null if the value was valid and has been stored, or the reason it is not valid
+   */
+  ValidationError tryValidate(int slot, RawInput raw) {
+    if (raw.nested(slot) == null) {
+      return tryValidate(slot, raw.values[slot]);
+    }
+    try {
+      validate(slot, raw);
+      return null;
+    } catch (ValidationException e) {
+      return e.getError();
+    }
+  }
+
+  /**
+   * Like {@link #validate(int, String)}, but without throwing.
+   * @return null if the value was valid and has been stored, or the reason it is not valid
+   */
+  ValidationError tryValidate(int slot, String raw) {
+    long start = layout.metrics != null ? System.nanoTime() : 0;
+    Outcome<?> outcome = raw == null && layout.missing[slot] != null ?
+        layout.missing[slot] :
+        layout.fields[slot].tryValidate(raw);
+    if (outcome.isSuccess()) {
+      set(slot, outcome.getValue());
+    }
+    if (layout.metrics != null) {
+      record(slot, raw, outcome, System.nanoTime() - start);
+    }
+    return outcome.getError();
+  }
+
+  /**
+   * Record the outcome of validating the given slot, if the form is measured.
+   */
+  void record(int slot, String raw, Outcome<?> outcome, long nanos) {
+    if (layout.metrics == null) {
+      return;
+    }
+    if (outcome.isSuccess()) {
+      layout.metrics[slot].recordSuccess(raw, outcome.getValue() != null, nanos);
+    } else {
+      layout.metrics[slot].recordFailure(raw, outcome.getError(), nanos);
+    }
+  }
+
+  /**
+   * Store an already-validated (possibly boxed) value in the given slot.
+   * @param value the value, or null for no value
+   */
+  void set(int slot, Object value) {
+    if (value == null || layout.kinds[slot] == SlotLayout.OBJECT) {
+      values[slot] = value;
+      return;
+    }
+    int index = layout.primitiveSlots[slot];
+    switch (layout.kinds[slot]) {
+      case SlotLayout.INT:
+        ints[index] = (Integer)value;
+        break;
+      case SlotLayout.LONG:
+        longs[index] = (Long)value;
+        break;
+      default:
+        doubles[index] = (Double)value;
+        break;
+    }
+    values[slot] = PRESENT;
+  }
+
+  void setInt(int slot, int value) {
+    ints[layout.primitiveSlots[slot]] = value;
+    values[slot] = PRESENT;
+  }
+
+  void setLong(int slot, long value) {
+    longs[layout.primitiveSlots[slot]] = value;
+    values[slot] = PRESENT;
+  }
+
+  void setDouble(int slot, double value) {
+    doubles[layout.primitiveSlots[slot]] = value;
+    values[slot] = PRESENT;
   }
 
   /**
@@ -31,8 +251,116 @@ public class ParseResult {
    */
   @SuppressWarnings("unchecked")
   public <T> T getParsedValue(Field<T> field) {
-    // this cast is safe provided that the constructor's condition was met
-    return (T)values.get(field);
+    int slot = layout.slotOf(field);
+    if (slot < 0) {
+      return null;
+    }
+    Object value = values[slot];
+    if (value != PRESENT) {
+      // this cast is safe provided that the values were produced by the field
+      return (T)value;
+    }
+    int index = layout.primitiveSlots[slot];
+    switch (layout.kinds[slot]) {
+      case SlotLayout.INT:
+        return (T)Integer.valueOf(ints[index]);
+      case SlotLayout.LONG:
+        return (T)Long.valueOf(longs[index]);
+      default:
+        return (T)Double.valueOf(doubles[index]);
+    }
+  }
+
+  /**
+   * Determine whether this result has a value for a field, without boxing it.
+   * @param field the field
+   * @return true if {@link #getParsedValue(Field)} would return a non-null value
+   */
+  public boolean hasValue(Field<?> field) {
+    int slot = layout.slotOf(field);
+    return slot >= 0 && values[slot] != null;
+  }
+
+  /**
+   * Get a parsed int value from this ParseResult.
+   * @param field the field to get a value for
+   * @return the parsed value
+   * @throws java.util.NoSuchElementException if there is no value for the field (see
+   *         {@link #getParsedValue(Field)} for when that happens)
+   */
+  public int getInt(IntField field) {
+    return ints[presentPrimitiveSlot(field)];
+  }
+
+  /**
+   * Get a parsed int value from this ParseResult.
+   * @param field the field to get a value for
+   * @param missingValue the value to return if there is no value for the field
+   * @return the parsed value, or <code>missingValue</code>
+   */
+  public int getInt(IntField field, int missingValue) {
+    int index = primitiveSlot(field);
+    return index < 0 ? missingValue : ints[index];
+  }
+
+  /**
+   * Get a parsed long value from this ParseResult.
+   * @param field the field to get a value for
+   * @return the parsed value
+   * @throws java.util.NoSuchElementException if there is no value for the field (see
+   *         {@link #getParsedValue(Field)} for when that happens)
+   */
+  public long getLong(LongField field) {
+    return longs[presentPrimitiveSlot(field)];
+  }
+
+  /**
+   * Get a parsed long value from this ParseResult.
+   * @param field the field to get a value for
+   * @param missingValue the value to return if there is no value for the field
+   * @return the parsed value, or <code>missingValue</code>
+   */
+  public long getLong(LongField field, long missingValue) {
+    int index = primitiveSlot(field);
+    return index < 0 ? missingValue : longs[index];
+  }
+
+  /**
+   * Get a parsed double value from this ParseResult.
+   * @param field the field to get a value for
+   * @return the parsed value
+   * @throws java.util.NoSuchElementException if there is no value for the field (see
+   *         {@link #getParsedValue(Field)} for when that happens)
+   */
+  public double getDouble(DoubleField field) {
+    return doubles[presentPrimitiveSlot(field)];
+  }
+
+  /**
+   * Get a parsed double value from this ParseResult.
+   * @param field the field to get a value for
+   * @param missingValue the value to return if there is no value for the field
+   * @return the parsed value, or <code>missingValue</code>
+   */
+  public double getDouble(DoubleField field, double missingValue) {
+    int index = primitiveSlot(field);
+    return index < 0 ? missingValue : doubles[index];
+  }
+
+  /**
+   * @return the index of the field's value in its primitive array, or -1 if there is no value
+   */
+  private int primitiveSlot(PrimitiveField<?> field) {
+    int slot = layout.slotOf(field);
+    return slot < 0 || values[slot] != PRESENT ? -1 : layout.primitiveSlots[slot];
+  }
+
+  private int presentPrimitiveSlot(PrimitiveField<?> field) {
+    int index = primitiveSlot(field);
+    if (index < 0) {
+      throw new NoSuchElementException("No value for field '" + field.getName() + '\'');
+    }
+    return index;
   }
 
 }
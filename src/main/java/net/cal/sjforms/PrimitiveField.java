@@ -0,0 +1,74 @@
+package net.cal.sjforms;
+
+import java.util.Arrays;
+
+/**
+ * Common base for the primitive-specialized fields ({@link IntField}, {@link LongField}
+ * and {@link DoubleField}). Rather than wrapping one {@link Validator} around another,
+ * a primitive field keeps its validation steps as a flat list of opcodes (and, in each
+ * subclass, a parallel array of primitive operands) which are applied in order to the
+ * parsed value. This way no step ever needs to box the value.
+ *
+ * @param <T> the boxed type of value this field returns
+ */
+abstract class PrimitiveField<T> extends Field<T> {
+
+  static final byte DEFAULT = 0;
+  static final byte REQUIRED = 1;
+  static final byte AT_LEAST = 2;
+  static final byte GREATER_THAN = 3;
+  static final byte AT_MOST = 4;
+  static final byte LESS_THAN = 5;
+  static final byte CLAMP_MIN = 6;
+  static final byte CLAMP_MAX = 7;
+
+  private final String name;
+  final byte[] ops;
+  private final boolean alwaysPresent;
+
+  PrimitiveField(String name, byte[] ops) {
+    this.name = name;
+    this.ops = ops;
+    boolean alwaysPresent = false;
+    for (byte op : ops) {
+      if (op == DEFAULT || op == REQUIRED) {
+        alwaysPresent = true;
+      }
+    }
+    this.alwaysPresent = alwaysPresent;
+  }
+
+  static byte[] append(byte[] ops, byte op) {
+    byte[] result = Arrays.copyOf(ops, ops.length + 1);
+    result[ops.length] = op;
+    return result;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Determine whether validating the given input will produce a value. This is true
+   * when the input is not null or when the field supplies a default. (It is also true
+   * for required fields, although in that case validating a null input will throw a
+   * {@link ValidationException} instead.)
+   * @param value the raw input
+   * @return false if the field's primitive validation method would return its
+   *         <code>missingValue</code> argument for this input
+   */
+  public final boolean hasValue(String value) {
+    return value != null || alwaysPresent;
+  }
+
+  @Override
+  boolean isPure() {
+    return true;
+  }
+
+  ValidationException missing() {
+    return new ValidationException(name, "missing value");
+  }
+
+}
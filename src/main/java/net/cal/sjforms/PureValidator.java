@@ -0,0 +1,15 @@
+package net.cal.sjforms;
+
+/**
+ * A {@link net.cal.sjforms.Validator} whose result depends only on its input: it has no
+ * side effects and always produces an equal result (or fails the same way) for equal
+ * inputs. All of the builtin validators are pure. Only fields made entirely of pure
+ * validators can be {@link Field#cached(int) cached}.
+ *
+ * <p>This interface has no methods of its own; implementing it is a promise.</p>
+ *
+ * @param <In> the input type
+ * @param <Out> the output type
+ */
+public interface PureValidator<In, Out> extends Validator<In, Out> {
+}
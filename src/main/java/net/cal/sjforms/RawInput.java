@@ -0,0 +1,127 @@
+package net.cal.sjforms;
+
+import java.util.Arrays;
+
+/**
+ * The raw input for each field of a form, by position, as gathered from a map or from
+ * urlencoded input. Most fields have a single raw String; {@link ListField}s and
+ * sub-form fields ({@link SubFormField}, {@link SubFormListField}) instead have
+ * structured input, which is only allocated when a form has such fields and the input
+ * uses them:
+ * <ul>
+ *   <li>a list field has the array of its values (of which the first
+ *       {@link #count(int)} are used);</li>
+ *   <li>a sub-form field has the RawInput of its sub-form;</li>
+ *   <li>a sub-form list field has an array of RawInputs by index (of which the first
+ *       {@link #count(int)} are used, with nulls for indexes that were not given).</li>
+ * </ul>
+ */
+final class RawInput {
+
+  final String[] values;
+  private Object[] nested;
+  private int[] counts;
+
+  RawInput(int size) {
+    this(new String[size]);
+  }
+
+  RawInput(String[] values) {
+    this.values = values;
+  }
+
+  /**
+   * Forget all input, so that this can be filled again.
+   */
+  void clear() {
+    Arrays.fill(values, null);
+    nested = null;
+    counts = null;
+  }
+
+  /**
+   * @return the structured input for the given slot, or null if there is none
+   */
+  Object nested(int slot) {
+    return nested == null ? null : nested[slot];
+  }
+
+  /**
+   * @return the number of values or indexes in the structured input for the given slot
+   */
+  int count(int slot) {
+    return counts == null ? 0 : counts[slot];
+  }
+
+  /**
+   * Append a value for the list field in the given slot.
+   */
+  void addValue(int slot, String value) {
+    int count = count(slot);
+    String[] values = (String[])ensureCapacity(slot, count + 1, String[].class);
+    values[count] = value;
+    counts[slot] = count + 1;
+  }
+
+  /**
+   * Set all the values for the list field in the given slot.
+   */
+  void setValues(int slot, String[] values) {
+    ensureCapacity(slot, 0, String[].class);
+    nested[slot] = values;
+    counts[slot] = values.length;
+  }
+
+  /**
+   * @return the input for the sub-form field in the given slot, creating it if necessary
+   */
+  RawInput group(int slot, int size) {
+    ensureCapacity(slot, 0, RawInput[].class);
+    RawInput group = (RawInput)nested[slot];
+    if (group == null) {
+      group = new RawInput(size);
+      nested[slot] = group;
+    }
+    return group;
+  }
+
+  /**
+   * @return the input at the given index of the sub-form list field in the given slot,
+   *         creating it if necessary
+   */
+  RawInput element(int slot, int index, int size) {
+    RawInput[] elements = (RawInput[])ensureCapacity(slot, index + 1, RawInput[].class);
+    RawInput element = elements[index];
+    if (element == null) {
+      element = new RawInput(size);
+      elements[index] = element;
+    }
+    counts[slot] = Math.max(counts[slot], index + 1);
+    return element;
+  }
+
+  /**
+   * Make sure the structured input arrays exist and, for a <code>capacity</code> greater
+   * than zero, that the array in the given slot is at least that long.
+   * @return the (possibly new) array in the given slot
+   */
+  private Object[] ensureCapacity(int slot, int capacity, Class<? extends Object[]> type) {
+    if (nested == null) {
+      nested = new Object[values.length];
+      counts = new int[values.length];
+    }
+    if (capacity == 0) {
+      return null;
+    }
+    Object[] array = (Object[])nested[slot];
+    if (array == null) {
+      array = Arrays.copyOf(new Object[0], Math.max(4, capacity), type);
+      nested[slot] = array;
+    } else if (array.length < capacity) {
+      array = Arrays.copyOf(array, Math.max(2 * array.length, capacity), type);
+      nested[slot] = array;
+    }
+    return array;
+  }
+
+}
@@ -0,0 +1,24 @@
+package net.cal.sjforms;
+
+/**
+ * Receives the outcome of validating each record read by a
+ * {@link net.cal.sjforms.DelimitedRecordReader}. Exactly one method is called per
+ * record, in input order.
+ */
+public interface RecordHandler {
+
+  /**
+   * Called for each record that validated successfully.
+   * @param row the 1-based number of the record (not counting the header)
+   * @param result the parsed values
+   */
+  void onRecord(long row, ParseResult result);
+
+  /**
+   * Called for each record that failed to validate.
+   * @param row the 1-based number of the record (not counting the header)
+   * @param failure all of the record's validation failures
+   */
+  void onFailure(long row, FormValidationException failure);
+
+}
@@ -0,0 +1,126 @@
+package net.cal.sjforms;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Assigns each field of a {@link Form} a slot (its position in the form) and, for
+ * primitive fields, a position in the {@link ParseResult} array for that primitive type.
+ *
+ * <p>Looking up a field's slot does not hash: each field remembers the slot it was
+ * given by the first layout it joined ({@link Field#slotHint}, which is set atomically
+ * and only once, so layouts built concurrently agree on it), and a layout only has to
+ * check that the field really is at that position. Fields that sit at a different
+ * position in this layout than in the first one (which is rare, since
+ * {@link Form#extend(Iterable)} keeps existing positions) fall back to an identity
+ * map.</p>
+ */
+final class SlotLayout {
+
+  static final byte OBJECT = 0;
+  static final byte INT = 1;
+  static final byte LONG = 2;
+  static final byte DOUBLE = 3;
+
+  private static final AtomicIntegerFieldUpdater<Field> SLOT_HINT = AtomicIntegerFieldUpdater.newUpdater(Field.class, "slotHint");
+
+  final Field[] fields;
+  final String[] names;
+  final byte[] kinds;
+  /** position in the int, long or double array; unused for OBJECT slots */
+  final int[] primitiveSlots;
+  final int intCount;
+  final int longCount;
+  final int doubleCount;
+  /**
+   * The outcome of validating a missing (null) value in each slot, computed up front for
+   * fields made of {@link PureValidator}s (null for other fields). This makes missing
+   * fields almost free to parse, which matters for wide forms with sparse input.
+   */
+  final Outcome<?>[] missing;
+  /** true if any field is (or adds validators to) a {@link SubFormField} or {@link SubFormListField} */
+  final boolean hasGroups;
+  /** per-slot metrics, or null if the form is not measured */
+  final FieldMetrics[] metrics;
+  private final Map<Field, Integer> misplaced;
+
+  SlotLayout(Collection<Field> fields) {
+    this(fields, false);
+  }
+
+  SlotLayout(Collection<Field> fields, boolean measured) {
+    int n = fields.size();
+    this.fields = fields.toArray(new Field[n]);
+    names = new String[n];
+    kinds = new byte[n];
+    primitiveSlots = new int[n];
+    missing = new Outcome<?>[n];
+    int ints = 0;
+    int longs = 0;
+    int doubles = 0;
+    boolean groups = false;
+    Map<Field, Integer> misplaced = null;
+    for (int i = 0; i < n; ++i) {
+      Field field = this.fields[i];
+      names[i] = field.getName();
+      if (field instanceof IntField) {
+        kinds[i] = INT;
+        primitiveSlots[i] = ints++;
+      } else if (field instanceof LongField) {
+        kinds[i] = LONG;
+        primitiveSlots[i] = longs++;
+      } else if (field instanceof DoubleField) {
+        kinds[i] = DOUBLE;
+        primitiveSlots[i] = doubles++;
+      } else {
+        kinds[i] = OBJECT;
+        groups |= field.group() != null;
+      }
+      if (field.isPure()) {
+        missing[i] = field.tryValidate(null);
+      }
+      // layouts may be built concurrently on several threads: only one of them sets the
+      // hint, and every other one sees its final value and records the field as
+      // misplaced if it differs
+      if (!SLOT_HINT.compareAndSet(field, -1, i) && field.slotHint != i) {
+        if (misplaced == null) {
+          misplaced = new IdentityHashMap<>();
+        }
+        misplaced.put(field, i);
+      }
+    }
+    intCount = ints;
+    longCount = longs;
+    doubleCount = doubles;
+    hasGroups = groups;
+    this.misplaced = misplaced;
+    if (measured) {
+      metrics = new FieldMetrics[n];
+      for (int i = 0; i < n; ++i) {
+        metrics[i] = new FieldMetrics(names[i]);
+      }
+    } else {
+      metrics = null;
+    }
+  }
+
+  /**
+   * @return the slot of the given field, or -1 if it is not part of this layout
+   */
+  int slotOf(Field<?> field) {
+    int hint = field.slotHint;
+    if (hint >= 0 && hint < fields.length && fields[hint] == field) {
+      return hint;
+    }
+    if (misplaced != null) {
+      Integer slot = misplaced.get(field);
+      if (slot != null) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+}
@@ -0,0 +1,198 @@
+package net.cal.sjforms;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import net.cal.sjforms.validators.CharsetValidator;
+import net.cal.sjforms.validators.EnumValidator;
+import net.cal.sjforms.validators.LengthValidator;
+import net.cal.sjforms.validators.LinearPattern;
+import net.cal.sjforms.validators.NoReplacementCharValidator;
+import net.cal.sjforms.validators.PatternValidator;
+import net.cal.sjforms.validators.Utf8Validator;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link Field} for string values. In addition to the steps every field has, string
+ * fields offer steps that only make sense for strings, such as
+ * {@link #oneOfIgnoreCase(String...)}, {@link #maxLength(int)} and
+ * {@link #onlyChars(String)}. Each step returns a new string field, so they can be
+ * chained:
+ * <pre>
+ *   StringField SORT_FIELD = Field.stringField("sort").withDefault("asc").oneOfIgnoreCase("asc", "desc");
+ * </pre>
+ *
+ * Instances are obtained with {@link Field#stringField(String)}.
+ */
+public final class StringField extends Field<String> {
+
+  private static final Validator<String, String> UTF8_VALIDATOR = new Utf8Validator();
+  private static final Validator<String, String> NO_REPLACEMENT_CHAR_VALIDATOR = new NoReplacementCharValidator();
+
+  /** the chain of validators this field applies, which starts with a plain named field */
+  final Field<String> field;
+
+  StringField(Field<String> field) {
+    this.field = field;
+  }
+
+  private StringField then(Validator<String, String> validator) {
+    return new StringField(field.withValidator(validator));
+  }
+
+  @Override
+  public StringField required() {
+    return new StringField(field.required());
+  }
+
+  @Override
+  public StringField withDefault(String defaultValue) {
+    return new StringField(field.withDefault(defaultValue));
+  }
+
+  @Override
+  public StringField oneOf(String... values) {
+    return oneOf(Arrays.asList(values));
+  }
+
+  @Override
+  public StringField oneOf(Iterable<String> values) {
+    return new StringField(field.oneOf(values));
+  }
+
+  /**
+   * Like {@link #oneOf(Object[])}, but ignoring case. Matching values are passed on as
+   * given, not converted to the spelling of the legal value.
+   * @param values the legal values
+   * @return a new field
+   */
+  public StringField oneOfIgnoreCase(String... values) {
+    return then(new EnumValidator<>(Arrays.asList(values), true));
+  }
+
+  /**
+   * Check that values are at most <code>maxLength</code> characters long. Only the length
+   * is read, so put this before validators that scan the value (such as
+   * {@link #onlyChars(String)}) to reject oversized values cheaply.
+   * @param maxLength the greatest length to accept
+   * @return a new field
+   */
+  public StringField maxLength(int maxLength) {
+    return lengthBetween(0, maxLength);
+  }
+
+  /**
+   * Check that the length of values is between the given bounds (inclusive). See
+   * {@link #maxLength(int)}.
+   * @param minLength the least length to accept
+   * @param maxLength the greatest length to accept
+   * @return a new field
+   */
+  public StringField lengthBetween(int minLength, int maxLength) {
+    return then(new LengthValidator(minLength, maxLength));
+  }
+
+  /**
+   * Check that every character of each value is allowed. The allowed characters are
+   * given like the body of a regular expression character class, e.g.
+   * <code>onlyChars("a-zA-Z0-9_\\-")</code>; see {@link CharsetValidator}.
+   * @param characterClass the allowed characters
+   * @return a new field
+   * @throws IllegalArgumentException if the character class is malformed
+   */
+  public StringField onlyChars(String characterClass) {
+    return then(new CharsetValidator(characterClass));
+  }
+
+  /**
+   * Check that each value is printable ASCII (U+0020 to U+007E).
+   * @return a new field
+   */
+  public StringField printableAscii() {
+    return then(CharsetValidator.printableAscii());
+  }
+
+  /**
+   * Check that each value can be encoded as valid UTF-8: that it has no unpaired
+   * surrogates. See {@link Utf8Validator}.
+   * @return a new field
+   */
+  public StringField validUtf8() {
+    return then(UTF8_VALIDATOR);
+  }
+
+  /**
+   * Check that no value contains U+FFFD, which decoders put in place of malformed UTF-8,
+   * so that input which was not valid UTF-8 before it was decoded is rejected. U+FFFD is
+   * a valid character, so only use this where it cannot legitimately occur. See
+   * {@link NoReplacementCharValidator}.
+   * @return a new field
+   */
+  public StringField noReplacementChars() {
+    return then(NO_REPLACEMENT_CHAR_VALIDATOR);
+  }
+
+  /**
+   * Like {@link #matches(String, int)}, but with no limit on the length of values.
+   * Matching still takes time linear in the length of the value.
+   * @param regex the pattern the whole of each value must match
+   * @return a new field
+   * @throws IllegalArgumentException if the pattern is not supported by {@link LinearPattern}
+   */
+  public StringField matches(String regex) {
+    return matches(regex, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Check that values are at most <code>maxLength</code> characters long and match a
+   * regular expression as a whole. The expression is compiled once, here, by
+   * {@link LinearPattern}, which supports most of the syntax of
+   * {@link java.util.regex.Pattern} but never backtracks, so crafted values cannot make
+   * validation slow: it takes time linear in the length of the value, and longer values
+   * are rejected without being read.
+   * @param regex the pattern the whole of each value must match
+   * @param maxLength the greatest length of value to accept
+   * @return a new field
+   * @throws IllegalArgumentException if the pattern is not supported by {@link LinearPattern}
+   */
+  public StringField matches(String regex, int maxLength) {
+    return then(new PatternValidator(LinearPattern.compile(regex), maxLength));
+  }
+
+  @Override
+  public String getName() {
+    return field.getName();
+  }
+
+  @Override
+  public String validate(String value) throws ValidationException {
+    return field.validate(value);
+  }
+
+  @Override
+  public Outcome<String> tryValidate(String value) {
+    return field.tryValidate(value);
+  }
+
+  @Override
+  public ListenableFuture<String> validateAsync(String value, Executor executor) {
+    return field.validateAsync(value, executor);
+  }
+
+  @Override
+  boolean isAsync() {
+    return field.isAsync();
+  }
+
+  @Override
+  boolean isPure() {
+    return field.isPure();
+  }
+
+  @Override
+  public Field<String> compile() {
+    Field<String> compiled = field.compile();
+    return compiled == field ? this : compiled;
+  }
+
+}
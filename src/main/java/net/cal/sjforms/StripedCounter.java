@@ -0,0 +1,33 @@
+package net.cal.sjforms;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that many threads can add to without contending: each thread adds to one of
+ * several cells (chosen by thread id, and spaced a cache line apart), and reading the
+ * counter sums the cells.
+ */
+final class StripedCounter {
+
+  private static final int STRIPES = Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+  private static final int SPACING = 8; // longs per 64-byte cache line
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * SPACING);
+
+  void add(long amount) {
+    cells.getAndAdd((int)(Thread.currentThread().getId() & (STRIPES - 1)) * SPACING, amount);
+  }
+
+  void increment() {
+    add(1);
+  }
+
+  long sum() {
+    long sum = 0;
+    for (int i = 0; i < cells.length(); i += SPACING) {
+      sum += cells.get(i);
+    }
+    return sum;
+  }
+
+}
@@ -0,0 +1,88 @@
+package net.cal.sjforms;
+
+/**
+ * A field for a group of parameters whose keys share a prefix, such as
+ * <code>address.street</code> and <code>address.zip</code>. The part of each key after
+ * the prefix and '.' names a field of a sub-form, which parses the group into its own
+ * {@link ParseResult}. Sub-forms may themselves contain sub-form fields, so keys such as
+ * <code>order.address.zip</code> work too.
+ *
+ * <p>The input is split into groups in the same single pass that matches ordinary
+ * keys, and the sub-form (with its field index and slot layout) is shared by every parse,
+ * so a group costs no more to parse than the same fields on the outer form would.
+ * Failures within a group name the failing field by its full key, e.g.
+ * <code>address.zip</code>.</p>
+ *
+ * <p>If no key has the prefix, the result is null (or a failure, for required fields).
+ * Giving the prefix itself as a key (<code>address=...</code>) is a failure.</p>
+ *
+ * <p>Example:
+ * <pre>
+ *   Field&lt;String&gt; ZIP_FIELD = Field.stringField("zip").required();
+ *   SubFormField ADDRESS_FIELD = Field.subForm("address", new Form(ZIP_FIELD)).required();
+ *   // ...
+ *   String zip = parseResult.getParsedValue(ADDRESS_FIELD).getParsedValue(ZIP_FIELD);
+ * </pre></p>
+ *
+ * Instances are obtained with {@link Field#subForm(String, Form)}.
+ */
+public final class SubFormField extends Field<ParseResult> {
+
+  private final String name;
+  final Form form;
+  private final boolean required;
+
+  SubFormField(String name, Form form, boolean required) {
+    this.name = name;
+    this.form = form;
+    this.required = required;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the sub-form that parses this field's group
+   */
+  public Form getForm() {
+    return form;
+  }
+
+  @Override
+  public SubFormField required() {
+    return new SubFormField(name, form, true);
+  }
+
+  /**
+   * Validate the value of a key that is exactly this field's prefix. Such values are
+   * never valid, so this only returns (null) if the value is absent and the field is not
+   * required.
+   */
+  @Override
+  public ParseResult validate(String value) throws ValidationException {
+    if (value != null) {
+      throw new ValidationException(name, value, "must be given as nested parameters");
+    }
+    if (required) {
+      throw new ValidationException(name, "missing value");
+    }
+    return null;
+  }
+
+  @Override
+  Field<?> group() {
+    return this;
+  }
+
+  @Override
+  Object validateNested(RawInput raw, int slot) throws ValidationException {
+    RawInput group = (RawInput)raw.nested(slot);
+    if (group == null || raw.values[slot] != null) {
+      return validate(raw.values[slot]);
+    }
+    return form.parseGroup(group, name, -1);
+  }
+
+}
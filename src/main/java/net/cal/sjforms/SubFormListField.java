@@ -0,0 +1,122 @@
+package net.cal.sjforms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A field for a list of parameter groups whose keys share a prefix and an index, such as
+ * <code>items[0].sku</code>, <code>items[0].qty</code> and <code>items[1].sku</code>.
+ * Each group is parsed by the same sub-form (as for a {@link SubFormField}), and the
+ * result is a list of the groups' {@link ParseResult}s by index. Indexes that no key
+ * mentions (such as 1 when only <code>items[0]</code> and <code>items[2]</code> are
+ * given) are null in the list.
+ *
+ * <p>Indexes must be written in decimal without leading zeros, and must be less than
+ * {@link #getMaxCount()}. An index that is too large fails the parse as soon as it is
+ * seen, so the work an attacker can cause with huge or numerous indexes is bounded by
+ * the cap rather than by the input. Keys with malformed indexes do not name this field
+ * (and so are ignored, unless the form is {@link Form#strict()}).</p>
+ *
+ * <p>If no key has the prefix, the result is null (or a failure, for required fields).
+ * Failures within a group name the failing field by its full key, e.g.
+ * <code>items[3].qty</code>.</p>
+ *
+ * Instances are obtained with {@link Field#subFormList(String, Form, int)}.
+ */
+public final class SubFormListField extends Field<List<ParseResult>> {
+
+  private final String name;
+  final Form form;
+  final int maxCount;
+  private final boolean required;
+
+  SubFormListField(String name, Form form, int maxCount, boolean required) {
+    if (maxCount < 0) {
+      throw new IllegalArgumentException("Illegal max count " + maxCount);
+    }
+    this.name = name;
+    this.form = form;
+    this.maxCount = maxCount;
+    this.required = required;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the sub-form that parses each group
+   */
+  public Form getForm() {
+    return form;
+  }
+
+  /**
+   * @return the number of indexes this field accepts (indexes must be less than this)
+   */
+  public int getMaxCount() {
+    return maxCount;
+  }
+
+  @Override
+  public SubFormListField required() {
+    return new SubFormListField(name, form, maxCount, true);
+  }
+
+  /**
+   * Validate the value of a key that is exactly this field's prefix. Such values are
+   * never valid, so this only returns (null) if the value is absent and the field is not
+   * required.
+   */
+  @Override
+  public List<ParseResult> validate(String value) throws ValidationException {
+    if (value != null) {
+      throw new ValidationException(name, value, "must be given as indexed parameters");
+    }
+    if (required) {
+      throw new ValidationException(name, "missing value");
+    }
+    return null;
+  }
+
+  @Override
+  Field<?> group() {
+    return this;
+  }
+
+  @Override
+  Object validateNested(RawInput raw, int slot) throws ValidationException {
+    RawInput[] groups = (RawInput[])raw.nested(slot);
+    if (groups == null || raw.values[slot] != null) {
+      return validate(raw.values[slot]);
+    }
+    int count = raw.count(slot);
+    List<ParseResult> result = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      result.add(groups[i] == null ? null : form.parseGroup(groups[i], name, i));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * @return the index written in <code>key[from..to)</code>, {@link Integer#MAX_VALUE} if
+   *         it is too large for an int, or -1 if it is not a well-formed index
+   */
+  static int parseIndex(String key, int from, int to) {
+    if (from == to || (key.charAt(from) == '0' && to - from > 1)) {
+      return -1;
+    }
+    long index = 0;
+    for (int i = from; i < to; ++i) {
+      char c = key.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      index = Math.min(10 * index + (c - '0'), Integer.MAX_VALUE);
+    }
+    return (int)index;
+  }
+
+}
@@ -0,0 +1,24 @@
+package net.cal.sjforms;
+
+/**
+ * A {@link net.cal.sjforms.Validator} that can also report failures without throwing
+ * an exception. All of the builtin validators implement this interface. Fields built
+ * from these validators use {@link #tryValidate(String, Object)} when validated with
+ * {@link Field#tryValidate(String)}; other validators are still supported there, but
+ * their exceptions must be caught and unwrapped.
+ *
+ * @param <In> the input type
+ * @param <Out> the output type
+ */
+public interface TryValidator<In, Out> extends Validator<In, Out> {
+
+  /**
+   * Parse the given input value. This must behave exactly like
+   * {@link #validate(String, Object)}, except that failures are returned instead of thrown.
+   * @param fieldName the name of the field being parsed
+   * @param value the value to parse
+   * @return the parsed object, or the reason the value is malformed
+   */
+  Outcome<Out> tryValidate(String fieldName, In value);
+
+}
@@ -0,0 +1,437 @@
+package net.cal.sjforms;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes <code>application/x-www-form-urlencoded</code> input (a query string or a
+ * request body) directly into the raw values for a form's fields.
+ *
+ * <p>The input is scanned once. Each key is matched against the form's field names
+ * without materializing it; keys that need no decoding are hashed and compared in
+ * place, and only keys containing escapes are decoded (into a scratch buffer that is
+ * reused for the rest of the input). Values are only decoded into Strings for keys
+ * that name a field. If a key appears more than once, its first value is used, except
+ * for {@link ListField}s, which collect every value. As soon as a list field has more
+ * values than its {@link ListField#getMaxCount()}, decoding stops with a validation
+ * failure, so huge lists cost no more than the input scan.</p>
+ *
+ * <p>For forms with sub-form fields, keys that do not name a field but contain '.' or
+ * '[' (or escapes) are decoded and split into groups by {@link Form#put}, which only
+ * decodes the value once the key turns out to name a field of a sub-form. Keys without
+ * escapes whose part before the first '.' or '[' does not name a sub-form field are
+ * skipped without being decoded.</p>
+ *
+ * <p>In strict mode, keys that do not name a field and keys (other than those of list
+ * fields) that appear more than once are validation failures instead.</p>
+ *
+ * <p>Decoding follows {@link java.net.URLDecoder} with UTF-8: <code>+</code> is a space,
+ * <code>%XX</code> is a byte, each run of escaped bytes is decoded as UTF-8 (with
+ * malformed sequences replaced by U+FFFD), and other characters are kept as they are,
+ * including unpaired surrogates. A malformed escape in the value of a field is a
+ * validation failure for that field; keys with malformed escapes never match any
+ * field.</p>
+ */
+final class UrlEncodedDecoder implements Form.PendingValue {
+
+  /**
+   * The input being decoded, viewed as a sequence of code units (chars or unsigned bytes).
+   */
+  abstract static class Input {
+    abstract int length();
+    abstract int unitAt(int i);
+    /** true if code units are bytes of UTF-8 rather than chars */
+    abstract boolean isBytes();
+  }
+
+  private static final class CharInput extends Input {
+    private final CharSequence chars;
+
+    CharInput(CharSequence chars) {
+      this.chars = chars;
+    }
+
+    @Override
+    int length() {
+      return chars.length();
+    }
+
+    @Override
+    int unitAt(int i) {
+      return chars.charAt(i);
+    }
+
+    @Override
+    boolean isBytes() {
+      return false;
+    }
+  }
+
+  private static final class ByteInput extends Input {
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    ByteInput(ByteBuffer bytes) {
+      this.bytes = bytes;
+      this.offset = bytes.position();
+      this.length = bytes.remaining();
+    }
+
+    @Override
+    int length() {
+      return length;
+    }
+
+    @Override
+    int unitAt(int i) {
+      return bytes.get(offset + i) & 0xFF;
+    }
+
+    @Override
+    boolean isBytes() {
+      return true;
+    }
+  }
+
+  /** returned by {@link #decodeToScratch(int, int)} for char input with unpaired surrogates */
+  private static final int UNPAIRED_SURROGATE = -2;
+
+  private final FieldIndex index;
+  private final Input input;
+  private final boolean strict;
+  private byte[] scratch;
+  /** the parameter whose value {@link #decode(String)} decodes: see {@link #decodeValue(String, int, int, boolean)} */
+  private int pendingEquals;
+  private int pendingEnd;
+  private boolean pendingPlain;
+
+  private UrlEncodedDecoder(FieldIndex index, Input input, boolean strict) {
+    this.index = index;
+    this.input = input;
+    this.strict = strict;
+  }
+
+  static RawInput decode(Form form, CharSequence input, boolean strict) throws ValidationException {
+    return new UrlEncodedDecoder(form.index(), new CharInput(input), strict).decode(form);
+  }
+
+  static RawInput decode(Form form, ByteBuffer input, boolean strict) throws ValidationException {
+    return new UrlEncodedDecoder(form.index(), new ByteInput(input), strict).decode(form);
+  }
+
+  /**
+   * @return the raw input for each field of the form, by position
+   */
+  private RawInput decode(Form form) throws ValidationException {
+    Field[] fields = form.layout().fields;
+    boolean groups = form.layout().hasGroups;
+    RawInput raw = new RawInput(fields.length);
+    boolean bytes = input.isBytes();
+    int length = input.length();
+    int start = 0;
+    while (start < length) {
+      // one pass over the parameter: find its end and the '=', hash the key, and
+      // note whether the key and value can be used without decoding
+      int end = start;
+      int equals = -1;
+      int keyHash = 0;
+      boolean keyPlain = true;
+      boolean keyNested = false;
+      // the end and hash of the part of the key before the first '.' or '['
+      int prefixEnd = -1;
+      int prefixHash = 0;
+      boolean valuePlain = true;
+      for (; end < length; ++end) {
+        int c = input.unitAt(end);
+        if (c == '&') {
+          break;
+        }
+        if (equals >= 0) {
+          if (c == '%' || c == '+') {
+            valuePlain = false;
+          }
+        } else if (c == '=') {
+          equals = end;
+        } else {
+          if (c == '%' || c == '+' || (c >= 0x80 && !bytes)) {
+            keyPlain = false;
+          } else if ((c == '.' || c == '[') && !keyNested) {
+            keyNested = true;
+            prefixEnd = end;
+            prefixHash = keyHash;
+          }
+          keyHash = 31 * keyHash + c;
+        }
+      }
+      int keyEnd = equals < 0 ? end : equals;
+      if (keyEnd > start) {
+        int slot = findKey(start, keyEnd, keyPlain, keyHash);
+        if (slot < 0 && groups && (keyNested || !keyPlain)) {
+          // the key may name a field of a sub-form
+          int group = keyPlain ? index.find(input, start, prefixEnd, prefixHash) : -1;
+          pendingEquals = equals;
+          pendingEnd = end;
+          pendingPlain = valuePlain;
+          if (keyPlain && !isGroup(fields, group)) {
+            if (strict) {
+              throw new ValidationException(decodeKey(start, keyEnd), "unknown parameter");
+            }
+          } else {
+            String key = decodeKey(start, keyEnd);
+            boolean found = keyPlain ?
+                form.putInGroup(raw, key, 0, Form.groupEnd(key, 0), group, null, this, strict) :
+                form.put(raw, key, 0, null, this, strict);
+            if (!found && strict) {
+              throw new ValidationException(key, "unknown parameter");
+            }
+          }
+        } else {
+          if (strict) {
+            if (slot < 0) {
+              throw new ValidationException(decodeKey(start, keyEnd), "unknown parameter");
+            }
+            if (raw.values[slot] != null) {
+              throw new ValidationException(fields[slot].getName(), "duplicate parameter");
+            }
+          }
+          if (slot >= 0 && fields[slot] instanceof ListField) {
+            ListField<?> field = (ListField<?>)fields[slot];
+            if (raw.count(slot) == field.maxCount) {
+              throw field.tooMany();
+            }
+            raw.addValue(slot, decodeValue(field.getName(), equals, end, valuePlain));
+          } else if (slot >= 0 && raw.values[slot] == null) {
+            raw.values[slot] = decodeValue(fields[slot].getName(), equals, end, valuePlain);
+          }
+        }
+      }
+      start = end + 1;
+    }
+    return raw;
+  }
+
+  /**
+   * @return true if the slot is that of a sub-form field (or a field that adds validators
+   *         to one), whose keys are split into groups
+   */
+  private static boolean isGroup(Field[] fields, int slot) {
+    return slot >= 0 && fields[slot].group() != null;
+  }
+
+  /**
+   * Decode the value of the parameter being put into a sub-form by {@link Form#put}.
+   */
+  @Override
+  public String decode(String fieldName) throws ValidationException {
+    return decodeValue(fieldName, pendingEquals, pendingEnd, pendingPlain);
+  }
+
+  /**
+   * Decode the value of a parameter for the given field.
+   * @param name the name of the field, for errors
+   * @param equals the position of the '=' in the parameter, or -1 if it has none
+   * @param end the end of the parameter
+   * @throws ValidationException if the value contains a malformed escape
+   */
+  private String decodeValue(String name, int equals, int end, boolean plain) throws ValidationException {
+    int valueStart = equals < 0 ? end : equals + 1;
+    String value = decodeValue(valueStart, end, plain);
+    if (value == null) {
+      String encoded = input.isBytes() ?
+          new String(copy(valueStart, end), StandardCharsets.UTF_8) :
+          ((CharInput)input).chars.subSequence(valueStart, end).toString();
+      throw new ValidationException(name, encoded, "malformed percent-encoding");
+    }
+    return value;
+  }
+
+  private int findKey(int from, int to, boolean plain, int hash) {
+    if (plain) {
+      return index.find(input, from, to, hash);
+    }
+    int n = decodeToScratch(from, to);
+    if (n == UNPAIRED_SURROGATE) {
+      String key = decodeChars(from, to);
+      return key == null ? -1 : index.find(key);
+    }
+    if (n < 0) {
+      return -1;
+    }
+    if (!isWellFormedUtf8(scratch, n)) {
+      // names are matched after malformed sequences are replaced with U+FFFD
+      return index.find(new String(scratch, 0, n, StandardCharsets.UTF_8));
+    }
+    return index.find(scratch, 0, n);
+  }
+
+  /**
+   * @return true if the first n bytes are well-formed UTF-8, i.e. decoding them replaces
+   *         nothing with U+FFFD
+   */
+  private static boolean isWellFormedUtf8(byte[] bytes, int n) {
+    for (int i = 0; i < n; ) {
+      int c = bytes[i] & 0xFF;
+      if (c < 0x80) {
+        ++i;
+        continue;
+      }
+      int length = c >= 0xC2 && c <= 0xDF ? 2 : c >= 0xE0 && c <= 0xEF ? 3 : c >= 0xF0 && c <= 0xF4 ? 4 : 0;
+      if (length == 0 || i + length > n) {
+        return false;
+      }
+      // the second byte is restricted to rule out overlong forms, surrogates and code
+      // points above U+10FFFF
+      int second = bytes[i + 1] & 0xFF;
+      int min = c == 0xE0 ? 0xA0 : c == 0xF0 ? 0x90 : 0x80;
+      int max = c == 0xED ? 0x9F : c == 0xF4 ? 0x8F : 0xBF;
+      if (second < min || second > max) {
+        return false;
+      }
+      for (int j = 2; j < length; ++j) {
+        if ((bytes[i + j] & 0xC0) != 0x80) {
+          return false;
+        }
+      }
+      i += length;
+    }
+    return true;
+  }
+
+  /**
+   * @return the decoded key, or the key as given if it contains a malformed escape
+   */
+  private String decodeKey(int from, int to) {
+    int n = decodeToScratch(from, to);
+    if (n >= 0) {
+      return new String(scratch, 0, n, StandardCharsets.UTF_8);
+    }
+    String key = n == UNPAIRED_SURROGATE ? decodeChars(from, to) : null;
+    if (key != null) {
+      return key;
+    }
+    return input.isBytes() ?
+        new String(copy(from, to), StandardCharsets.UTF_8) :
+        ((CharInput)input).chars.subSequence(from, to).toString();
+  }
+
+  /**
+   * @return the decoded value, or null if it contains a malformed escape
+   */
+  private String decodeValue(int from, int to, boolean plain) {
+    if (plain && !input.isBytes()) {
+      return ((CharInput)input).chars.subSequence(from, to).toString();
+    }
+    int n = decodeToScratch(from, to);
+    if (n == UNPAIRED_SURROGATE) {
+      return decodeChars(from, to);
+    }
+    return n < 0 ? null : new String(scratch, 0, n, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Decode the given range of char input exactly as {@link java.net.URLDecoder} does,
+   * keeping characters other than escapes (such as unpaired surrogates, which have no
+   * UTF-8 encoding) as they are.
+   * @return the decoded string, or null if the range contains a malformed escape
+   */
+  private String decodeChars(int from, int to) {
+    StringBuilder out = new StringBuilder(to - from);
+    byte[] bytes = null;
+    for (int i = from; i < to; ++i) {
+      int c = input.unitAt(i);
+      if (c == '+') {
+        out.append(' ');
+      } else if (c == '%') {
+        if (bytes == null) {
+          bytes = new byte[(to - i) / 3];
+        }
+        int n = 0;
+        while (i < to && input.unitAt(i) == '%') {
+          int hi = i + 1 < to ? hexValue(input.unitAt(i + 1)) : -1;
+          int lo = i + 2 < to ? hexValue(input.unitAt(i + 2)) : -1;
+          if (hi < 0 || lo < 0) {
+            return null;
+          }
+          bytes[n++] = (byte)((hi << 4) | lo);
+          i += 3;
+        }
+        out.append(new String(bytes, 0, n, StandardCharsets.UTF_8));
+        --i;
+      } else {
+        out.append((char)c);
+      }
+    }
+    return out.toString();
+  }
+
+  /**
+   * Decode the given range into UTF-8 bytes in the scratch buffer.
+   * @return the number of bytes written, -1 if the range contains a malformed escape, or
+   *         {@link #UNPAIRED_SURROGATE} if it contains an unpaired surrogate (which must be
+   *         decoded with {@link #decodeChars(int, int)} instead)
+   */
+  private int decodeToScratch(int from, int to) {
+    int capacity = 3 * (to - from);
+    if (scratch == null || scratch.length < capacity) {
+      scratch = new byte[Math.max(capacity, 64)];
+    }
+    byte[] out = scratch;
+    int n = 0;
+    for (int i = from; i < to; ++i) {
+      int c = input.unitAt(i);
+      if (c == '+') {
+        out[n++] = ' ';
+      } else if (c == '%') {
+        int hi = i + 1 < to ? hexValue(input.unitAt(i + 1)) : -1;
+        int lo = i + 2 < to ? hexValue(input.unitAt(i + 2)) : -1;
+        if (hi < 0 || lo < 0) {
+          return -1;
+        }
+        out[n++] = (byte)((hi << 4) | lo);
+        i += 2;
+      } else if (c < 0x80 || input.isBytes()) {
+        out[n++] = (byte)c;
+      } else if (c < 0x800) {
+        out[n++] = (byte)(0xC0 | (c >> 6));
+        out[n++] = (byte)(0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate((char)c) && i + 1 < to && Character.isLowSurrogate((char)input.unitAt(i + 1))) {
+        int cp = Character.toCodePoint((char)c, (char)input.unitAt(i + 1));
+        out[n++] = (byte)(0xF0 | (cp >> 18));
+        out[n++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+        out[n++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+        out[n++] = (byte)(0x80 | (cp & 0x3F));
+        ++i;
+      } else if (Character.isSurrogate((char)c)) {
+        return UNPAIRED_SURROGATE;
+      } else {
+        out[n++] = (byte)(0xE0 | (c >> 12));
+        out[n++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+        out[n++] = (byte)(0x80 | (c & 0x3F));
+      }
+    }
+    return n;
+  }
+
+  private byte[] copy(int from, int to) {
+    byte[] result = new byte[to - from];
+    for (int i = from; i < to; ++i) {
+      result[i - from] = (byte)input.unitAt(i);
+    }
+    return result;
+  }
+
+  private static int hexValue(int c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    }
+    if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+}
@@ -0,0 +1,61 @@
+package net.cal.sjforms;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The change in a {@link ValidationSession}'s errors caused by one edit: the fields that
+ * are no longer invalid, and the fields that have become invalid or now fail for a
+ * different reason. Fields whose errors did not change (whether they are valid or not)
+ * are not included.
+ */
+public final class ValidationDiff {
+
+  static final ValidationDiff EMPTY = new ValidationDiff(Collections.<Field<?>>emptyList(), Collections.<Field<?>, ValidationError>emptyMap());
+
+  private final List<Field<?>> fixed;
+  private final Map<Field<?>, ValidationError> errors;
+
+  ValidationDiff(List<Field<?>> fixed, Map<Field<?>, ValidationError> errors) {
+    this.fixed = fixed;
+    this.errors = errors;
+  }
+
+  /**
+   * @return the fields that had an error before the edit and are valid after it, in the
+   *         order of {@link Form#getFields()}
+   */
+  public List<Field<?>> getFixed() {
+    return Collections.unmodifiableList(fixed);
+  }
+
+  /**
+   * @return the new error of each field that became invalid with the edit, or whose error
+   *         changed, in the order of {@link Form#getFields()}
+   */
+  public Map<Field<?>, ValidationError> getErrors() {
+    return Collections.unmodifiableMap(errors);
+  }
+
+  /**
+   * @return true if the edit did not change any field's error
+   */
+  public boolean isEmpty() {
+    return fixed.isEmpty() && errors.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    Map<String, String> names = new LinkedHashMap<>();
+    for (Field<?> field : fixed) {
+      names.put(field.getName(), "fixed");
+    }
+    for (Map.Entry<Field<?>, ValidationError> entry : errors.entrySet()) {
+      names.put(entry.getKey().getName(), entry.getValue().getMessage());
+    }
+    return names.toString();
+  }
+
+}
@@ -0,0 +1,148 @@
+package net.cal.sjforms;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Describes why a value failed validation, without the cost of an exception. Includes
+ * both the name of the field that failed validation ({@link #getFieldName()}) and the
+ * value that caused the error ({@link #getValue()}).
+ *
+ * <p>The human-readable message is only built when {@link #getMessage()} is called, so
+ * creating an error is cheap even when the message would be long (for instance when
+ * it lists all the legal values for a field).</p>
+ *
+ * <p>Errors are serializable. A value that is not serializable itself is written as its
+ * string form, and so is the detail of the message, so a deserialized error has the
+ * same message but may not have the original value.</p>
+ *
+ * @see net.cal.sjforms.Outcome
+ * @see net.cal.sjforms.ValidationException
+ */
+public final class ValidationError implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String fieldName;
+  private final boolean hasValue;
+  private final Object value;
+  private final String message;
+  private final Object detail;
+  private transient String formattedMessage;
+
+  public ValidationError(String fieldName, String message) {
+    this(fieldName, false, null, message, null);
+  }
+
+  public ValidationError(String fieldName, Object value, String message) {
+    this(fieldName, true, value, message, null);
+  }
+
+  /**
+   * Construct an error whose message is <code>message</code> followed by the string
+   * form of <code>detail</code>. The detail object is not converted to a string until
+   * the message is actually needed.
+   * @param fieldName the name of the field that failed validation
+   * @param value the illegal value
+   * @param message the start of the message
+   * @param detail an object whose string form completes the message
+   */
+  public ValidationError(String fieldName, Object value, String message, Object detail) {
+    this(fieldName, true, value, message, detail);
+  }
+
+  private ValidationError(String fieldName, boolean hasValue, Object value, String message, Object detail) {
+    this.fieldName = fieldName;
+    this.hasValue = hasValue;
+    this.value = value;
+    this.message = message;
+    this.detail = detail;
+  }
+
+  /**
+   * Get the name of the field that failed validation.
+   * @return the name of the field that failed validation
+   */
+  public String getFieldName() {
+    return fieldName;
+  }
+
+  /**
+   * Get the illegal value. See {@link ValidationException#getValue()}.
+   * @return the illegal value, or null if the error was not caused by a particular value
+   */
+  public Object getValue() {
+    return value;
+  }
+
+  /**
+   * Get the reason for this error: the message without the field name, value, or any
+   * detail (such as the list of legal values). Errors from the same check of the same
+   * validator have the same reason, so reasons are suitable for grouping errors.
+   * @return the reason
+   */
+  public String getReason() {
+    return message;
+  }
+
+  /**
+   * Get a human-readable description of this error, including the field name and value.
+   * @return the message
+   */
+  public String getMessage() {
+    String result = formattedMessage;
+    if (result == null) {
+      String description = detail == null ? message : message + detail;
+      result = hasValue ?
+          "Value '" + value + "' for field '" + fieldName + "': " + description :
+          "Field '" + fieldName + "': " + description;
+      // benign race: every thread computes the same string
+      formattedMessage = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return a copy of this error whose field name is prefixed with the given string (used
+   *         to name fields of sub-forms by their full path)
+   */
+  ValidationError withPrefix(String prefix) {
+    return new ValidationError(prefix + fieldName, hasValue, value, message, detail);
+  }
+
+  /**
+   * @return true if the other error has the same field name, value, reason and detail (so
+   *         that it describes the same failure, even if it was created separately)
+   */
+  boolean sameAs(ValidationError other) {
+    return other != null && Objects.equals(fieldName, other.fieldName) && hasValue == other.hasValue &&
+        Objects.deepEquals(value, other.value) && Objects.equals(message, other.message) && Objects.equals(detail, other.detail);
+  }
+
+  /**
+   * Wrap this error in an exception, for callers that use the throwing API.
+   * @return a new exception for this error
+   */
+  public ValidationException toException() {
+    return new ValidationException(this);
+  }
+
+  /**
+   * Serialize a copy whose value (if it is not serializable) and detail are strings.
+   */
+  private Object writeReplace() {
+    boolean keepValue = value == null || value instanceof Serializable;
+    boolean keepDetail = detail == null || detail instanceof String;
+    if (keepValue && keepDetail) {
+      return this;
+    }
+    return new ValidationError(fieldName, hasValue, keepValue ? value : String.valueOf(value), message,
+        keepDetail ? detail : String.valueOf(detail));
+  }
+
+  @Override
+  public String toString() {
+    return getMessage();
+  }
+
+}
@@ -4,34 +4,53 @@ package net.cal.sjforms;
  * Thrown when a value passed to a {@link net.cal.sjforms.Validator} fails validation.
  * Includes both the name of the field that failed validation ({@link #getFieldName()})
  * and the value that caused the error ({@link #getValue()}).
+ *
+ * <p>This is a thin wrapper around a {@link net.cal.sjforms.ValidationError}. Because
+ * validation failures are routine (and often caused by junk input), these exceptions
+ * do not record a stack trace and only format their message when it is requested.
+ * Callers who would rather not deal with exceptions at all can use
+ * {@link Field#tryValidate(String)} and {@link Form#tryParse(java.util.Map)}.</p>
  */
 public class ValidationException extends Exception {
 
-  private final String fieldName;
-  private final Object value;
+  private final ValidationError error;
+
+  public ValidationException(ValidationError error) {
+    this(error, null);
+  }
+
+  public ValidationException(ValidationError error, Throwable cause) {
+    super(null, cause, false, false);
+    this.error = error;
+  }
 
   public ValidationException(String fieldName, String message) {
-    super("Field '" + fieldName + "': " + message);
-    this.fieldName = fieldName;
-    this.value = null;
+    this(new ValidationError(fieldName, message));
   }
 
   public ValidationException(String fieldName, Object value, String message) {
-    super("Value '" + value + "' for field '" + fieldName + "': " + message);
-    this.fieldName = fieldName;
-    this.value = value;
+    this(new ValidationError(fieldName, value, message));
   }
 
   public ValidationException(String fieldName, String message, Throwable cause) {
-    super("Field '" + fieldName + "': " + message, cause);
-    this.fieldName = fieldName;
-    this.value = null;
+    this(new ValidationError(fieldName, message), cause);
   }
 
   public ValidationException(String fieldName, Object value, String message, Throwable cause) {
-    super("Value '" + value + "' for field '" + fieldName + "': " + message, cause);
-    this.fieldName = fieldName;
-    this.value = value;
+    this(new ValidationError(fieldName, value, message), cause);
+  }
+
+  /**
+   * Get the error this exception wraps.
+   * @return the error
+   */
+  public ValidationError getError() {
+    return error;
+  }
+
+  @Override
+  public String getMessage() {
+    return error.getMessage();
   }
 
   /**
@@ -39,7 +58,7 @@ public class ValidationException extends Exception {
    * @return the name of the field that caused this exception
    */
   public String getFieldName() {
-    return fieldName;
+    return error.getFieldName();
   }
 
   /**
@@ -50,7 +69,7 @@ public class ValidationException extends Exception {
    * @return the illegal value that caused this exception
    */
   public Object getValue() {
-    return value;
+    return error.getValue();
   }
 
 }
@@ -0,0 +1,299 @@
+package net.cal.sjforms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates input that changes one field at a time, such as a form being filled in
+ * interactively. A session keeps the raw value, parsed value and error of every field of
+ * a {@link Form}. When a field is {@link #set(Field, String)}, only that field and the
+ * {@link CrossFieldValidator}s that read it are validated again, so the cost of an edit
+ * depends on how many checks involve the field rather than on the size of the form.
+ * Each edit returns a {@link ValidationDiff} of the errors it fixed or caused.
+ *
+ * <p>After any sequence of edits, a session holds exactly the values and errors that
+ * {@link Form#parseAll(java.util.Map)} would produce for a map of the current input:
+ * {@link #getErrors()} has the same failures as its {@link FormValidationException},
+ * and when there are none, {@link #toParseResult()} has the same values as its result.
+ * Sessions take one value per field and do not support forms with sub-form fields;
+ * unknown parameters are never reported, even for {@link Form#strict()} forms.</p>
+ *
+ * <p>Sessions are created with {@link Form#newSession()} and are not threadsafe.</p>
+ */
+public final class ValidationSession {
+
+  private final SlotLayout layout;
+  private final FieldIndex index;
+  private final CrossFieldCheck[] checks;
+  /** the indexes of the checks that read each slot */
+  private final int[][] checksBySlot;
+  private final String[] raw;
+  private final ParseResult result;
+  /** the failure of each slot's own validation, or null */
+  private final ValidationError[] fieldErrors;
+  /** the failure of each check, or null if it passed or was skipped */
+  private final ValidationError[] checkErrors;
+  /** the error reported for each slot: its own failure, or else its first failing check */
+  private final ValidationError[] errors;
+  /** scratch space for the slots whose errors an edit may change */
+  private final int[] targets;
+  private int errorCount;
+
+  /**
+   * @throws IllegalArgumentException if the form has sub-form fields
+   */
+  ValidationSession(Form form, Map<String, String> values) {
+    layout = form.layout();
+    if (layout.hasGroups) {
+      throw new IllegalArgumentException("Validation sessions do not support sub-form fields");
+    }
+    index = form.index();
+    checks = form.checks();
+    int n = layout.fields.length;
+    int[] counts = new int[n];
+    for (CrossFieldCheck check : checks) {
+      for (int slot : distinct(check.slots)) {
+        ++counts[slot];
+      }
+    }
+    checksBySlot = new int[n][];
+    int maxCount = 0;
+    for (int slot = 0; slot < n; ++slot) {
+      checksBySlot[slot] = new int[counts[slot]];
+      maxCount = Math.max(maxCount, counts[slot]);
+      counts[slot] = 0;
+    }
+    targets = new int[maxCount + 1];
+    for (int i = 0; i < checks.length; ++i) {
+      for (int slot : distinct(checks[i].slots)) {
+        checksBySlot[slot][counts[slot]++] = i;
+      }
+    }
+    raw = new String[n];
+    result = new ParseResult(layout);
+    fieldErrors = new ValidationError[n];
+    checkErrors = new ValidationError[checks.length];
+    errors = new ValidationError[n];
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      int slot = entry.getKey() == null ? -1 : index.find(entry.getKey());
+      if (slot >= 0) {
+        raw[slot] = entry.getValue();
+      }
+    }
+    for (int slot = 0; slot < n; ++slot) {
+      fieldErrors[slot] = result.tryValidate(slot, raw[slot]);
+    }
+    for (int i = 0; i < checks.length; ++i) {
+      checkErrors[i] = check(i);
+    }
+    for (int slot = 0; slot < n; ++slot) {
+      errors[slot] = reportedError(slot);
+      if (errors[slot] != null) {
+        ++errorCount;
+      }
+    }
+  }
+
+  /**
+   * @return the slots, without duplicates (a validator may list its target as a dependency)
+   */
+  private static int[] distinct(int[] slots) {
+    int[] distinct = new int[slots.length];
+    int n = 0;
+    outer:
+    for (int slot : slots) {
+      for (int i = 0; i < n; ++i) {
+        if (distinct[i] == slot) {
+          continue outer;
+        }
+      }
+      distinct[n++] = slot;
+    }
+    return n == slots.length ? distinct : Arrays.copyOf(distinct, n);
+  }
+
+  /**
+   * Change the raw value of a field and validate it again, along with every cross-field
+   * validator that reads it.
+   * @param name the name of the field
+   * @param value the new raw value, or null to remove the value
+   * @return the change in errors
+   * @throws IllegalArgumentException if the form has no field with the given name
+   */
+  public ValidationDiff set(String name, String value) {
+    int slot = name == null ? -1 : index.find(name);
+    if (slot < 0) {
+      throw new IllegalArgumentException("No field named '" + name + "' on the form");
+    }
+    return set(slot, value);
+  }
+
+  /**
+   * Change the raw value of a field and validate it again, along with every cross-field
+   * validator that reads it.
+   * @param field the field
+   * @param value the new raw value, or null to remove the value
+   * @return the change in errors
+   * @throws IllegalArgumentException if the field is not on the form
+   */
+  public ValidationDiff set(Field<?> field, String value) {
+    int slot = layout.slotOf(field);
+    if (slot < 0) {
+      throw new IllegalArgumentException("Field " + field.getName() + " is not on the form");
+    }
+    return set(slot, value);
+  }
+
+  private ValidationDiff set(int slot, String value) {
+    raw[slot] = value;
+    result.set(slot, null);
+    fieldErrors[slot] = result.tryValidate(slot, value);
+    // the slot itself and the target of each check that reads it, in form order
+    int[] affected = checksBySlot[slot];
+    targets[0] = slot;
+    for (int i = 0; i < affected.length; ++i) {
+      checkErrors[affected[i]] = check(affected[i]);
+      targets[i + 1] = checks[affected[i]].target;
+    }
+    Arrays.sort(targets, 0, affected.length + 1);
+    List<Field<?>> fixed = null;
+    Map<Field<?>, ValidationError> changed = null;
+    for (int i = 0; i <= affected.length; ++i) {
+      int target = targets[i];
+      if (i > 0 && target == targets[i - 1]) {
+        continue;
+      }
+      ValidationError before = errors[target];
+      ValidationError after = reportedError(target);
+      errors[target] = after;
+      if (after == null) {
+        if (before != null) {
+          --errorCount;
+          if (fixed == null) {
+            fixed = new ArrayList<>(1);
+          }
+          fixed.add(layout.fields[target]);
+        }
+      } else if (!after.sameAs(before)) {
+        if (before == null) {
+          ++errorCount;
+        }
+        if (changed == null) {
+          changed = new LinkedHashMap<>();
+        }
+        changed.put(layout.fields[target], after);
+      }
+    }
+    if (fixed == null && changed == null) {
+      return ValidationDiff.EMPTY;
+    }
+    return new ValidationDiff(
+        fixed == null ? Collections.<Field<?>>emptyList() : fixed,
+        changed == null ? Collections.<Field<?>, ValidationError>emptyMap() : changed);
+  }
+
+  /**
+   * Run a check if all of its slots are valid on their own.
+   * @return its failure, or null if it passed or was skipped
+   */
+  private ValidationError check(int i) {
+    CrossFieldCheck check = checks[i];
+    for (int slot : check.slots) {
+      if (fieldErrors[slot] != null) {
+        return null;
+      }
+    }
+    return check.check(layout, result);
+  }
+
+  /**
+   * @return the error to report for a slot, as {@link Form#parseAll(java.util.Map)} would
+   */
+  private ValidationError reportedError(int slot) {
+    if (fieldErrors[slot] != null) {
+      return fieldErrors[slot];
+    }
+    for (int i : checksBySlot[slot]) {
+      if (checks[i].target == slot && checkErrors[i] != null) {
+        return checkErrors[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param field the field
+   * @return the current raw value of the field, or null if it has none or is not on the form
+   */
+  public String getRawValue(Field<?> field) {
+    int slot = layout.slotOf(field);
+    return slot < 0 ? null : raw[slot];
+  }
+
+  /**
+   * Get the parsed value of a field, as it stands.
+   * @param field the field
+   * @param <T> the type of value
+   * @return the parsed value, or null if the field's own validation fails or in the same
+   *         cases as {@link ParseResult#getParsedValue(Field)}. (A field that fails only
+   *         because of a cross-field validator still has its parsed value.)
+   */
+  public <T> T getParsedValue(Field<T> field) {
+    return result.getParsedValue(field);
+  }
+
+  /**
+   * @param field the field
+   * @return the current error of the field, or null if it is valid
+   */
+  public ValidationError getError(Field<?> field) {
+    int slot = layout.slotOf(field);
+    return slot < 0 ? null : errors[slot];
+  }
+
+  /**
+   * @return the current error of every invalid field, in the order of
+   *         {@link Form#getFields()}
+   */
+  public Map<Field<?>, ValidationError> getErrors() {
+    Map<Field<?>, ValidationError> map = new LinkedHashMap<>();
+    if (errorCount > 0) {
+      for (int slot = 0; slot < errors.length; ++slot) {
+        if (errors[slot] != null) {
+          map.put(layout.fields[slot], errors[slot]);
+        }
+      }
+    }
+    return map;
+  }
+
+  /**
+   * @return true if every field (and every cross-field validator) is currently valid
+   */
+  public boolean isValid() {
+    return errorCount == 0;
+  }
+
+  /**
+   * Copy the current values out of this session.
+   * @return a new {@link ParseResult} with the current values, which later edits do not change
+   * @throws FormValidationException with every current error, if there are any
+   */
+  public ParseResult toParseResult() throws FormValidationException {
+    if (errorCount > 0) {
+      Map<Field, ValidationException> failures = new LinkedHashMap<>();
+      for (int slot = 0; slot < errors.length; ++slot) {
+        if (errors[slot] != null) {
+          failures.put(layout.fields[slot], errors[slot].toException());
+        }
+      }
+      throw new FormValidationException(failures, Collections.<ValidationException>emptyList(), false);
+    }
+    return result.copy();
+  }
+
+}
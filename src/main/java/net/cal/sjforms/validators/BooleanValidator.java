@@ -1,12 +1,14 @@
 package net.cal.sjforms.validators;
 
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.TryValidator;
 import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
 
 /**
  * Runs {@link java.lang.Boolean#parseBoolean(String)} on the input.
  */
-public class BooleanValidator implements Validator<String, Boolean> {
+public class BooleanValidator implements TryValidator<String, Boolean>, PureValidator<String, Boolean> {
   @Override
   public Boolean validate(String fieldName, String value) throws ValidationException {
     if (value == null) {
@@ -14,4 +16,12 @@ public class BooleanValidator implements Validator<String, Boolean> {
     }
     return Boolean.parseBoolean(value);
   }
+
+  @Override
+  public Outcome<Boolean> tryValidate(String fieldName, String value) {
+    if (value == null) {
+      return Outcome.success(null);
+    }
+    return Outcome.success(Boolean.parseBoolean(value));
+  }
 }
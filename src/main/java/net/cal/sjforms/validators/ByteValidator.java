@@ -1,22 +1,37 @@
 package net.cal.sjforms.validators;
 
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.TryValidator;
+import net.cal.sjforms.ValidationError;
 import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
 
 /**
- * Applies {@link java.lang.Double#parseDouble(String)} to the input. Throws a
+ * Parses the input with the same syntax as {@link java.lang.Byte#parseByte(String)}. Throws a
  * {@link net.cal.sjforms.ValidationException} when the parse fails.
  */
-public class ByteValidator implements Validator<String, Byte> {
+public class ByteValidator implements TryValidator<String, Byte>, PureValidator<String, Byte> {
   @Override
   public Byte validate(String fieldName, String value) throws ValidationException {
     if (value == null) {
       return null;
     }
-    try {
-      return Byte.parseByte(value);
-    } catch (NumberFormatException e) {
-      throw new ValidationException(fieldName, value, "not a valid byte", e);
+    long result = NumberParsing.parseInRange(value, Byte.MIN_VALUE, Byte.MAX_VALUE);
+    if (result == NumberParsing.FAILED) {
+      throw new ValidationException(fieldName, value, "not a valid byte");
     }
+    return (byte)result;
+  }
+
+  @Override
+  public Outcome<Byte> tryValidate(String fieldName, String value) {
+    if (value == null) {
+      return Outcome.success(null);
+    }
+    long result = NumberParsing.parseInRange(value, Byte.MIN_VALUE, Byte.MAX_VALUE);
+    if (result == NumberParsing.FAILED) {
+      return Outcome.failure(new ValidationError(fieldName, value, "not a valid byte"));
+    }
+    return Outcome.success((byte)result);
   }
 }
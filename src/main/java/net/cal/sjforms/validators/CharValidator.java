@@ -1,14 +1,17 @@
 package net.cal.sjforms.validators;
 
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.TryValidator;
+import net.cal.sjforms.ValidationError;
 import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
 
 /**
  * Extracts the first character of the input string. Throws a
  * {@link net.cal.sjforms.ValidationException} when the input
  * is not exactly one character long.
  */
-public class CharValidator implements Validator<String, Character> {
+public class CharValidator implements TryValidator<String, Character>, PureValidator<String, Character> {
   @Override
   public Character validate(String fieldName, String value) throws ValidationException {
     if (value == null) {
@@ -19,4 +22,15 @@ public class CharValidator implements Validator<String, Character> {
     }
     return value.charAt(0);
   }
+
+  @Override
+  public Outcome<Character> tryValidate(String fieldName, String value) {
+    if (value == null) {
+      return Outcome.success(null);
+    }
+    if (value.length() != 1) {
+      return Outcome.failure(new ValidationError(fieldName, value, "not a single character"));
+    }
+    return Outcome.success(value.charAt(0));
+  }
 }
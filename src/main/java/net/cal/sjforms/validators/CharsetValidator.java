@@ -0,0 +1,99 @@
+package net.cal.sjforms.validators;
+
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.ValidationError;
+
+import java.util.Arrays;
+
+/**
+ * Ensures every character of a string is in a set of allowed characters, given as the
+ * body of a {@link LinearPattern} character class (e.g. <code>"a-zA-Z0-9_\\-"</code> or
+ * <code>"\\w\\s.,"</code>). The scan stops at the first character that is not allowed.
+ * A set that is a single range (such as printable ASCII) is checked with a single
+ * unsigned comparison per character; other sets look ASCII characters up in a table.
+ */
+public class CharsetValidator extends CheckingValidator<String> implements PureValidator<String, String> {
+
+  private static final String PRINTABLE_ASCII = " -~";
+
+  private final String description;
+  private final boolean singleRange;
+  private final int low; // when singleRange: the range is low to low + span
+  private final int span;
+  private final boolean[] ascii = new boolean[128];
+  private final int[] nonAscii; // sorted, disjoint inclusive ranges above U+007F
+
+  /**
+   * @param characterClass the allowed characters, in the syntax of the body of a
+   *                       character class (between the brackets)
+   * @throws IllegalArgumentException if the class is malformed
+   */
+  public CharsetValidator(String characterClass) {
+    this.description = '[' + characterClass + ']';
+    int[] ranges = LinearPattern.characterClassRanges(characterClass);
+    singleRange = ranges.length == 2;
+    low = singleRange ? ranges[0] : 0;
+    span = singleRange ? ranges[1] - ranges[0] : 0;
+    int n = 0;
+    for (int i = 0; i < ranges.length; i += 2) {
+      for (int c = ranges[i]; c <= ranges[i + 1] && c < ascii.length; ++c) {
+        ascii[c] = true;
+      }
+      if (ranges[i + 1] >= ascii.length) {
+        ranges[n++] = Math.max(ranges[i], ascii.length);
+        ranges[n++] = ranges[i + 1];
+      }
+    }
+    nonAscii = Arrays.copyOf(ranges, n);
+  }
+
+  /**
+   * @return a validator that only allows printable ASCII characters (U+0020 to U+007E)
+   */
+  public static CharsetValidator printableAscii() {
+    return new CharsetValidator(PRINTABLE_ASCII);
+  }
+
+  @Override
+  protected ValidationError check(String fieldName, String value) {
+    if (value == null) {
+      return null;
+    }
+    int n = value.length();
+    if (singleRange) {
+      int low = this.low;
+      int span = this.span;
+      for (int i = 0; i < n; ++i) {
+        if ((char)(value.charAt(i) - low) > span) {
+          return error(fieldName, value);
+        }
+      }
+      return null;
+    }
+    boolean[] ascii = this.ascii;
+    for (int i = 0; i < n; ++i) {
+      char c = value.charAt(i);
+      if (c < 128 ? !ascii[c] : !isAllowedNonAscii(c)) {
+        return error(fieldName, value);
+      }
+    }
+    return null;
+  }
+
+  private ValidationError error(String fieldName, String value) {
+    return new ValidationError(fieldName, value, "must only contain the characters ", description);
+  }
+
+  private boolean isAllowedNonAscii(char c) {
+    for (int i = 0; i < nonAscii.length; i += 2) {
+      if (c < nonAscii[i]) {
+        return false;
+      }
+      if (c <= nonAscii[i + 1]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
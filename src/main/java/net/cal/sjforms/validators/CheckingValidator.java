@@ -0,0 +1,39 @@
+package net.cal.sjforms.validators;
+
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.TryValidator;
+import net.cal.sjforms.ValidationError;
+import net.cal.sjforms.ValidationException;
+
+/**
+ * Base class for validators that never change their input, but only check it. Subclasses
+ * implement {@link #check(String, Object)}, which serves both the throwing and the
+ * non-throwing validation methods.
+ * @param <T> the type of value checked
+ */
+public abstract class CheckingValidator<T> implements TryValidator<T, T> {
+
+  /**
+   * Check the given value.
+   * @param fieldName the name of the field being checked
+   * @param value the value to check
+   * @return null if the value is legal, or the reason it is not
+   */
+  protected abstract ValidationError check(String fieldName, T value);
+
+  @Override
+  public final T validate(String fieldName, T value) throws ValidationException {
+    ValidationError error = check(fieldName, value);
+    if (error != null) {
+      throw error.toException();
+    }
+    return value;
+  }
+
+  @Override
+  public final Outcome<T> tryValidate(String fieldName, T value) {
+    ValidationError error = check(fieldName, value);
+    return error == null ? Outcome.success(value) : Outcome.<T>failure(error);
+  }
+
+}
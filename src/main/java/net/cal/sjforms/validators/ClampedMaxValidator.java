@@ -1,9 +1,11 @@
 package net.cal.sjforms.validators;
 
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.TryValidator;
 import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
 
-public class ClampedMaxValidator<T extends Object & Comparable<T>> implements Validator<T, T> {
+public class ClampedMaxValidator<T extends Object & Comparable<T>> implements TryValidator<T, T>, PureValidator<T, T> {
 
   private final T max;
 
@@ -13,6 +15,15 @@ public class ClampedMaxValidator<T extends Object & Comparable<T>> implements Va
 
   @Override
   public T validate(String fieldName, T value) throws ValidationException {
+    return clamp(value);
+  }
+
+  @Override
+  public Outcome<T> tryValidate(String fieldName, T value) {
+    return Outcome.success(clamp(value));
+  }
+
+  private T clamp(T value) {
     if (value == null) {
       return null;
     }
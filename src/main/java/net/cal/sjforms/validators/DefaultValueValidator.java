@@ -1,13 +1,15 @@
 package net.cal.sjforms.validators;
 
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.TryValidator;
 import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
 
 /**
  * Returns the given default value if the input is null.
  * @param <T>
  */
-public class DefaultValueValidator<T> implements Validator<T,T> {
+public class DefaultValueValidator<T> implements TryValidator<T,T>, PureValidator<T, T> {
 
   private final T defaultValue;
 
@@ -20,4 +22,9 @@ public class DefaultValueValidator<T> implements Validator<T,T> {
     return value == null ? defaultValue : value;
   }
 
+  @Override
+  public Outcome<T> tryValidate(String fieldName, T value) {
+    return Outcome.success(value == null ? defaultValue : value);
+  }
+
 }
@@ -1,22 +1,37 @@
 package net.cal.sjforms.validators;
 
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.TryValidator;
+import net.cal.sjforms.ValidationError;
 import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
 
 /**
- * Applies {@link java.lang.Double#parseDouble(String)} to the input. Throws a
+ * Parses the input exactly as {@link java.lang.Double#parseDouble(String)} does. Throws a
  * {@link net.cal.sjforms.ValidationException} when the parse fails.
  */
-public class DoubleValidator implements Validator<String, Double> {
+public class DoubleValidator implements TryValidator<String, Double>, PureValidator<String, Double> {
   @Override
   public Double validate(String fieldName, String value) throws ValidationException {
     if (value == null) {
       return null;
     }
-    try {
-      return Double.parseDouble(value);
-    } catch (NumberFormatException e) {
-      throw new ValidationException(fieldName, value, "not a valid double", e);
+    double result = NumberParsing.parseDouble(value);
+    if (result != result && !NumberParsing.isNaN(value)) {
+      throw new ValidationException(fieldName, value, "not a valid double");
     }
+    return result;
+  }
+
+  @Override
+  public Outcome<Double> tryValidate(String fieldName, String value) {
+    if (value == null) {
+      return Outcome.success(null);
+    }
+    double result = NumberParsing.parseDouble(value);
+    if (result != result && !NumberParsing.isNaN(value)) {
+      return Outcome.failure(new ValidationError(fieldName, value, "not a valid double"));
+    }
+    return Outcome.success(result);
   }
 }
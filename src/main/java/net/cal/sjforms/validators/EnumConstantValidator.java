@@ -0,0 +1,57 @@
+package net.cal.sjforms.validators;
+
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.TryValidator;
+import net.cal.sjforms.ValidationError;
+import net.cal.sjforms.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Maps the input to the constant of a Java enum with that name (see {@link Enum#name()}).
+ * @param <E> the enum type
+ */
+public class EnumConstantValidator<E extends Enum<E>> implements TryValidator<String, E>, PureValidator<String, E> {
+
+  private final E[] constants;
+  private final List<String> names;
+  private final StringMatcher matcher;
+
+  /**
+   * @param type the enum type
+   * @param ignoreCase whether to ignore case when matching constant names
+   */
+  public EnumConstantValidator(Class<E> type, boolean ignoreCase) {
+    constants = type.getEnumConstants();
+    if (constants == null) {
+      throw new IllegalArgumentException(type + " is not an enum");
+    }
+    List<String> names = new ArrayList<>(constants.length);
+    for (E constant : constants) {
+      names.add(constant.name());
+    }
+    this.names = Collections.unmodifiableList(names);
+    this.matcher = new StringMatcher(names, ignoreCase);
+  }
+
+  @Override
+  public E validate(String fieldName, String value) throws ValidationException {
+    return tryValidate(fieldName, value).getOrThrow();
+  }
+
+  @Override
+  public Outcome<E> tryValidate(String fieldName, String value) {
+    if (value == null) {
+      return Outcome.success(null);
+    }
+    int index = matcher.indexOf(value);
+    if (index < 0) {
+      return Outcome.failure(new ValidationError(fieldName, value, "must be one of ", names));
+    }
+    return Outcome.success(constants[index]);
+  }
+
+}
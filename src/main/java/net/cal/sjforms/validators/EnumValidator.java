@@ -1,33 +1,128 @@
 package net.cal.sjforms.validators;
 
 import com.google.common.collect.Sets;
-import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.ValidationError;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 /**
  * Ensures the output is one of the given values. If not, it throws a
  * {@link net.cal.sjforms.ValidationException}.
+ *
+ * <p>Membership is checked with a matcher chosen for the legal values: strings use a
+ * {@link StringMatcher} (which need not hash the whole input), and boxed primitives of
+ * a single type are compared as primitive keys, without calling <code>equals</code> or
+ * <code>hashCode</code>. Other values use a hash set.</p>
  * @param <T>
  */
-public class EnumValidator<T> implements Validator<T,T> {
+public class EnumValidator<T> extends CheckingValidator<T> implements PureValidator<T, T> {
+
+  private static final int SCAN_LIMIT = 8;
 
   public final Set<T> legalValues;
+  private final StringMatcher strings;
+  private final Class<?> keyClass;
+  private final long[] keys; // sorted, unless there are at most SCAN_LIMIT of them
 
   public EnumValidator(Iterable<T> legalValues) {
-    this.legalValues = Sets.newHashSet(legalValues);
+    this(legalValues, false);
   }
 
-  @Override
-  public T validate(String fieldName, T value) throws ValidationException {
-    if (value == null) {
-      return null;
+  /**
+   * @param legalValues the legal values
+   * @param ignoreCase whether to ignore case when comparing strings. If true, all of the
+   *                   legal values must be strings.
+   */
+  public EnumValidator(Iterable<T> legalValues, boolean ignoreCase) {
+    this.legalValues = Sets.newLinkedHashSet(legalValues);
+    Class<?> commonClass = null;
+    for (T value : this.legalValues) {
+      Class<?> c = value == null ? Object.class : value.getClass();
+      commonClass = commonClass == null || commonClass == c ? c : Object.class;
+    }
+    if (ignoreCase && commonClass != null && commonClass != String.class) {
+      throw new IllegalArgumentException("Case-insensitive matching needs string values, not " + this.legalValues);
+    }
+    if (commonClass == String.class) {
+      List<String> values = new ArrayList<>();
+      for (T value : this.legalValues) {
+        values.add((String)value);
+      }
+      strings = new StringMatcher(values, ignoreCase);
+      keyClass = null;
+      keys = null;
+    } else if (isPrimitiveKey(commonClass)) {
+      strings = null;
+      keyClass = commonClass;
+      keys = new long[this.legalValues.size()];
+      int i = 0;
+      for (T value : this.legalValues) {
+        keys[i++] = key(value);
+      }
+      if (keys.length > SCAN_LIMIT) {
+        Arrays.sort(keys);
+      }
+    } else {
+      strings = null;
+      keyClass = null;
+      keys = null;
+    }
+  }
+
+  private static boolean isPrimitiveKey(Class<?> c) {
+    return c == Integer.class || c == Long.class || c == Short.class || c == Byte.class
+        || c == Character.class || c == Double.class || c == Float.class;
+  }
+
+  /**
+   * A key that is equal for two boxed values of the same class exactly when they are
+   * <code>equals</code>.
+   */
+  private static long key(Object value) {
+    if (value instanceof Double) {
+      return Double.doubleToLongBits((Double)value);
     }
-    if (!legalValues.contains(value)) {
-      throw new ValidationException(fieldName, value, "must be one of " + legalValues);
+    if (value instanceof Float) {
+      return Float.floatToIntBits((Float)value);
+    }
+    if (value instanceof Character) {
+      return (Character)value;
+    }
+    return ((Number)value).longValue();
+  }
+
+  private boolean contains(T value) {
+    if (strings != null) {
+      return value instanceof String && strings.indexOf((String)value) >= 0;
+    }
+    if (keys != null) {
+      if (value.getClass() != keyClass) {
+        return false;
+      }
+      long key = key(value);
+      if (keys.length > SCAN_LIMIT) {
+        return Arrays.binarySearch(keys, key) >= 0;
+      }
+      for (long k : keys) {
+        if (k == key) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return legalValues.contains(value);
+  }
+
+  @Override
+  protected ValidationError check(String fieldName, T value) {
+    if (value != null && !contains(value)) {
+      return new ValidationError(fieldName, value, "must be one of ", legalValues);
     }
-    return value;
+    return null;
   }
 
 }
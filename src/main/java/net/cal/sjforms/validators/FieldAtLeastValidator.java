@@ -0,0 +1,47 @@
+package net.cal.sjforms.validators;
+
+import net.cal.sjforms.CrossFieldValidator;
+import net.cal.sjforms.Field;
+import net.cal.sjforms.ParseResult;
+import net.cal.sjforms.ValidationError;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ensures the value of one field is at least the value of another (e.g. that an end
+ * date is not before a start date). Nothing is checked unless both fields have values.
+ * @param <T> the type of the values
+ */
+public class FieldAtLeastValidator<T extends Comparable<? super T>> implements CrossFieldValidator {
+
+  private final Field<T> field;
+  private final Field<T> other;
+  private final List<Field<T>> dependencies;
+
+  /**
+   * @param field the field whose value must be at least the other's
+   * @param other the field whose value is the minimum
+   */
+  public FieldAtLeastValidator(Field<T> field, Field<T> other) {
+    this.field = field;
+    this.other = other;
+    this.dependencies = Arrays.asList(field, other);
+  }
+
+  @Override
+  public List<Field<T>> getDependencies() {
+    return dependencies;
+  }
+
+  @Override
+  public ValidationError check(String fieldName, ParseResult values) {
+    T value = values.getParsedValue(field);
+    T min = values.getParsedValue(other);
+    if (value != null && min != null && value.compareTo(min) < 0) {
+      return new ValidationError(fieldName, value, "must be at least the value of ", other.getName());
+    }
+    return null;
+  }
+
+}
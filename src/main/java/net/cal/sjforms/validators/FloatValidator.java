@@ -1,22 +1,37 @@
 package net.cal.sjforms.validators;
 
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.TryValidator;
+import net.cal.sjforms.ValidationError;
 import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
 
 /**
- * Applies {@link Float#parseFloat(String)} to the input. Throws a
+ * Parses the input exactly as {@link Float#parseFloat(String)} does. Throws a
  * {@link net.cal.sjforms.ValidationException} when the parse fails.
  */
-public class FloatValidator implements Validator<String, Float> {
+public class FloatValidator implements TryValidator<String, Float>, PureValidator<String, Float> {
   @Override
   public Float validate(String fieldName, String value) throws ValidationException {
     if (value == null) {
       return null;
     }
-    try {
-      return Float.parseFloat(value);
-    } catch (NumberFormatException e) {
-      throw new ValidationException(fieldName, value, "not a valid float", e);
+    float result = NumberParsing.parseFloat(value);
+    if (result != result && !NumberParsing.isNaN(value)) {
+      throw new ValidationException(fieldName, value, "not a valid float");
     }
+    return result;
+  }
+
+  @Override
+  public Outcome<Float> tryValidate(String fieldName, String value) {
+    if (value == null) {
+      return Outcome.success(null);
+    }
+    float result = NumberParsing.parseFloat(value);
+    if (result != result && !NumberParsing.isNaN(value)) {
+      return Outcome.failure(new ValidationError(fieldName, value, "not a valid float"));
+    }
+    return Outcome.success(result);
   }
 }
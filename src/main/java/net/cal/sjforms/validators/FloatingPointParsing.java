@@ -0,0 +1,422 @@
+package net.cal.sjforms.validators;
+
+import java.math.BigInteger;
+
+/**
+ * Parses decimal floating point numbers without throwing. The syntax accepted is exactly
+ * that of {@link Double#parseDouble(String)}; see {@link NumberParsing#parseDouble(CharSequence)}.
+ *
+ * <p>Plain decimal input (the common case) is converted without the JDK. Significands of
+ * up to 19 digits that are small enough, with small enough exponents, are converted
+ * exactly with one floating point multiplication or division (Clinger's fast path).
+ * Other significands of up to 19 digits use the Eisel-Lemire algorithm, which
+ * multiplies the significand by a 128-bit approximation of the power of ten and
+ * rounds correctly. That algorithm gives up on a tiny fraction of inputs whose
+ * rounding it cannot decide. Those inputs, significands longer than 19 digits,
+ * hexadecimal input, "NaN" and "Infinity" all go to the JDK. By then the syntax has
+ * already been checked, so the JDK never throws.</p>
+ */
+final class FloatingPointParsing {
+
+  private FloatingPointParsing() { }
+
+  /** The binary format of a double. */
+  static final Format DOUBLE = new Format(52, -1023, 0x7FF, -4, 23, -342, 308);
+  /** The binary format of a float. */
+  static final Format FLOAT = new Format(23, -127, 0xFF, -17, 10, -64, 38);
+
+  private static final double[] DOUBLE_POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  private static final float[] FLOAT_POWERS_OF_TEN = {
+      1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+  };
+
+  private static final int MAX_DIGITS = 19;
+  /** Explicit exponents beyond this are saturated; any such value is zero or infinite. */
+  private static final int MAX_EXPONENT = 100000;
+
+  static final class Format {
+    final int mantissaBits;
+    final int minimumExponent;
+    final int infinitePower;
+    final int minRoundToEven;
+    final int maxRoundToEven;
+    final int smallestPowerOfTen;
+    final int largestPowerOfTen;
+
+    Format(int mantissaBits, int minimumExponent, int infinitePower, int minRoundToEven,
+           int maxRoundToEven, int smallestPowerOfTen, int largestPowerOfTen) {
+      this.mantissaBits = mantissaBits;
+      this.minimumExponent = minimumExponent;
+      this.infinitePower = infinitePower;
+      this.minRoundToEven = minRoundToEven;
+      this.maxRoundToEven = maxRoundToEven;
+      this.smallestPowerOfTen = smallestPowerOfTen;
+      this.largestPowerOfTen = largestPowerOfTen;
+    }
+  }
+
+  /**
+   * Parse a double.
+   * @return the value, or NaN if the input is malformed (or is "NaN")
+   */
+  static double parseDouble(CharSequence s) {
+    return parse(s, DOUBLE);
+  }
+
+  /**
+   * Parse a float.
+   * @return the value, or NaN if the input is malformed (or is "NaN")
+   */
+  static float parseFloat(CharSequence s) {
+    return (float)parse(s, FLOAT);
+  }
+
+  /**
+   * @return true if the input is "NaN" as accepted by {@link Double#parseDouble(String)}
+   */
+  static boolean isNaN(CharSequence s) {
+    int start = trimStart(s);
+    int end = trimEnd(s, start);
+    int i = start;
+    if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+      ++i;
+    }
+    return matches(s, i, end, "NaN");
+  }
+
+  /**
+   * Parse the input in the given format. For floats, the result is a double holding the
+   * float value exactly.
+   */
+  private static double parse(CharSequence s, Format format) {
+    int start = trimStart(s);
+    int end = trimEnd(s, start);
+    if (start == end) {
+      return Double.NaN;
+    }
+    int i = start;
+    boolean negative = false;
+    char c = s.charAt(i);
+    if (c == '+' || c == '-') {
+      negative = c == '-';
+      if (++i == end) {
+        return Double.NaN;
+      }
+      c = s.charAt(i);
+    }
+    if (c == 'N') {
+      return Double.NaN;
+    }
+    if (c == 'I') {
+      if (!matches(s, i, end, "Infinity")) {
+        return Double.NaN;
+      }
+      return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+    }
+    if (c == '0' && i + 1 < end && (s.charAt(i + 1) == 'x' || s.charAt(i + 1) == 'X')) {
+      return isHex(s, i + 2, end) ? viaJdk(s, format) : Double.NaN;
+    }
+
+    long significand = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean sawDigit = false;
+    boolean truncated = false;
+    for (; i < end && isDigit(c = s.charAt(i)); ++i) {
+      sawDigit = true;
+      int d = c - '0';
+      if (digits < MAX_DIGITS) {
+        significand = significand * 10 + d;
+        if (significand != 0) {
+          ++digits;
+        }
+      } else {
+        truncated |= d != 0;
+        ++exponent;
+      }
+    }
+    if (i < end && s.charAt(i) == '.') {
+      for (++i; i < end && isDigit(c = s.charAt(i)); ++i) {
+        sawDigit = true;
+        int d = c - '0';
+        if (digits < MAX_DIGITS) {
+          significand = significand * 10 + d;
+          if (significand != 0) {
+            ++digits;
+          }
+          --exponent;
+        } else {
+          truncated |= d != 0;
+        }
+      }
+    }
+    if (!sawDigit) {
+      return Double.NaN;
+    }
+    if (i < end && ((c = s.charAt(i)) == 'e' || c == 'E')) {
+      if (++i == end) {
+        return Double.NaN;
+      }
+      boolean negativeExponent = false;
+      c = s.charAt(i);
+      if (c == '+' || c == '-') {
+        negativeExponent = c == '-';
+        if (++i == end) {
+          return Double.NaN;
+        }
+      }
+      if (!isDigit(s.charAt(i))) {
+        return Double.NaN;
+      }
+      int explicit = 0;
+      for (; i < end && isDigit(c = s.charAt(i)); ++i) {
+        if (explicit < MAX_EXPONENT) {
+          explicit = explicit * 10 + (c - '0');
+        }
+      }
+      exponent += negativeExponent ? -explicit : explicit;
+    }
+    if (i < end) {
+      c = s.charAt(i);
+      if (i != end - 1 || (c != 'f' && c != 'F' && c != 'd' && c != 'D')) {
+        return Double.NaN;
+      }
+    }
+
+    if (truncated) {
+      return viaJdk(s, format);
+    }
+    double value;
+    if (significand == 0) {
+      value = 0.0;
+    } else if (format == DOUBLE ? fastPathDouble(significand, exponent) : fastPathFloat(significand, exponent)) {
+      value = format == DOUBLE ?
+          fastDouble(significand, exponent) :
+          (double)fastFloat(significand, exponent);
+    } else {
+      long bits = eiselLemire(significand, exponent, format);
+      if (bits < 0) {
+        return viaJdk(s, format);
+      }
+      value = format == DOUBLE ?
+          Double.longBitsToDouble(bits) :
+          (double)Float.intBitsToFloat((int)bits);
+    }
+    return negative ? -value : value;
+  }
+
+  // significands of 19 digits may not fit in a signed long, so they are treated as unsigned
+
+  private static boolean fastPathDouble(long significand, int exponent) {
+    return significand > 0 && significand <= (1L << 53) && exponent >= -22 && exponent <= 22;
+  }
+
+  private static double fastDouble(long significand, int exponent) {
+    return exponent < 0 ?
+        significand / DOUBLE_POWERS_OF_TEN[-exponent] :
+        significand * DOUBLE_POWERS_OF_TEN[exponent];
+  }
+
+  private static boolean fastPathFloat(long significand, int exponent) {
+    return significand > 0 && significand <= (1L << 24) && exponent >= -10 && exponent <= 10;
+  }
+
+  private static float fastFloat(long significand, int exponent) {
+    return exponent < 0 ?
+        (float)significand / FLOAT_POWERS_OF_TEN[-exponent] :
+        (float)significand * FLOAT_POWERS_OF_TEN[exponent];
+  }
+
+  /**
+   * Convert <code>significand * 10^exponent</code> (with a non-zero significand) to the bits
+   * of the nearest value in the given format.
+   * @return the bits, or -1 if the rounding cannot be decided here
+   */
+  static long eiselLemire(long significand, int exponent, Format format) {
+    if (exponent < format.smallestPowerOfTen) {
+      return 0;
+    }
+    if (exponent > format.largestPowerOfTen) {
+      return (long)format.infinitePower << format.mantissaBits;
+    }
+    int lz = Long.numberOfLeadingZeros(significand);
+    long w = significand << lz;
+    int index = exponent - PowersOfFive.SMALLEST;
+    long high = unsignedMultiplyHigh(w, PowersOfFive.HIGH[index]);
+    long low = w * PowersOfFive.HIGH[index];
+    long precisionMask = -1L >>> (format.mantissaBits + 3);
+    if ((high & precisionMask) == precisionMask) {
+      // the truncated product might be too small; refine it with the next 64 bits of the power
+      long secondHigh = unsignedMultiplyHigh(w, PowersOfFive.LOW[index]);
+      long sum = low + secondHigh;
+      if (unsignedLess(sum, secondHigh)) {
+        ++high;
+      }
+      low = sum;
+    }
+    if (low == -1L && (exponent < -27 || exponent > 55)) {
+      return -1;
+    }
+    int upperBit = (int)(high >>> 63);
+    int shift = upperBit + 64 - format.mantissaBits - 3;
+    long mantissa = high >>> shift;
+    int power2 = ((((152170 + 65536) * exponent) >> 16) + 63) + upperBit - lz - format.minimumExponent;
+    if (power2 <= 0) {
+      // subnormal
+      if (-power2 + 1 >= 64) {
+        return 0;
+      }
+      mantissa >>>= -power2 + 1;
+      mantissa += mantissa & 1;
+      mantissa >>>= 1;
+      power2 = mantissa < (1L << format.mantissaBits) ? 0 : 1;
+      return mantissa | ((long)power2 << format.mantissaBits);
+    }
+    if ((low == 0 || low == 1) && exponent >= format.minRoundToEven && exponent <= format.maxRoundToEven
+        && (mantissa & 3) == 1 && (mantissa << shift) == high) {
+      // exactly halfway between two values: round to even
+      mantissa &= ~1L;
+    }
+    mantissa += mantissa & 1;
+    mantissa >>>= 1;
+    if (mantissa >= (2L << format.mantissaBits)) {
+      mantissa = 1L << format.mantissaBits;
+      ++power2;
+    }
+    mantissa &= ~(1L << format.mantissaBits);
+    if (power2 >= format.infinitePower) {
+      return (long)format.infinitePower << format.mantissaBits;
+    }
+    return mantissa | ((long)power2 << format.mantissaBits);
+  }
+
+  static long unsignedMultiplyHigh(long x, long y) {
+    long x0 = x & 0xFFFFFFFFL;
+    long x1 = x >>> 32;
+    long y0 = y & 0xFFFFFFFFL;
+    long y1 = y >>> 32;
+    long p01 = x0 * y1;
+    long p10 = x1 * y0;
+    long middle = ((x0 * y0) >>> 32) + (p01 & 0xFFFFFFFFL) + (p10 & 0xFFFFFFFFL);
+    return x1 * y1 + (p01 >>> 32) + (p10 >>> 32) + (middle >>> 32);
+  }
+
+  private static boolean unsignedLess(long a, long b) {
+    return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+  }
+
+  private static double viaJdk(CharSequence s, Format format) {
+    // the syntax has been checked, so this cannot throw
+    String string = s.toString();
+    return format == DOUBLE ? Double.parseDouble(string) : (double)Float.parseFloat(string);
+  }
+
+  /**
+   * Check the part of a hexadecimal number after "0x": hex digits with an optional point
+   * (and at least one digit), then a binary exponent, then an optional type suffix.
+   */
+  private static boolean isHex(CharSequence s, int i, int end) {
+    boolean sawDigit = false;
+    for (; i < end && Character.digit(s.charAt(i), 16) >= 0 && s.charAt(i) < 128; ++i) {
+      sawDigit = true;
+    }
+    if (i < end && s.charAt(i) == '.') {
+      for (++i; i < end && Character.digit(s.charAt(i), 16) >= 0 && s.charAt(i) < 128; ++i) {
+        sawDigit = true;
+      }
+    }
+    if (!sawDigit || i == end || (s.charAt(i) != 'p' && s.charAt(i) != 'P')) {
+      return false;
+    }
+    if (++i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+      ++i;
+    }
+    if (i == end || !isDigit(s.charAt(i))) {
+      return false;
+    }
+    while (i < end && isDigit(s.charAt(i))) {
+      ++i;
+    }
+    if (i == end) {
+      return true;
+    }
+    char c = s.charAt(i);
+    return i == end - 1 && (c == 'f' || c == 'F' || c == 'd' || c == 'D');
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean matches(CharSequence s, int i, int end, String literal) {
+    if (end - i != literal.length()) {
+      return false;
+    }
+    for (int j = 0; j < literal.length(); ++j) {
+      if (s.charAt(i + j) != literal.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Skip leading characters as {@link String#trim()} does. */
+  private static int trimStart(CharSequence s) {
+    int i = 0;
+    while (i < s.length() && s.charAt(i) <= ' ') {
+      ++i;
+    }
+    return i;
+  }
+
+  /** Skip trailing characters as {@link String#trim()} does. */
+  private static int trimEnd(CharSequence s, int start) {
+    int end = s.length();
+    while (end > start && s.charAt(end - 1) <= ' ') {
+      --end;
+    }
+    return end;
+  }
+
+  /**
+   * 128-bit approximations of the powers of five from 5^-342 to 5^308, normalized so the
+   * top bit is set, as used by the Eisel-Lemire algorithm. Generated when first needed.
+   */
+  private static final class PowersOfFive {
+
+    static final int SMALLEST = -342;
+    static final int LARGEST = 308;
+    static final long[] HIGH = new long[LARGEST - SMALLEST + 1];
+    static final long[] LOW = new long[LARGEST - SMALLEST + 1];
+
+    static {
+      BigInteger five = BigInteger.valueOf(5);
+      BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+      BigInteger two127 = BigInteger.ONE.shiftLeft(127);
+      for (int q = SMALLEST; q <= LARGEST; ++q) {
+        BigInteger value;
+        if (q < 0) {
+          BigInteger power = five.pow(-q);
+          int z = power.subtract(BigInteger.ONE).bitLength(); // smallest z with 2^z >= power
+          int b = q >= -27 ? z + 127 : 2 * z + 128;
+          value = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+        } else {
+          value = five.pow(q);
+          if (value.compareTo(two127) < 0) {
+            value = value.shiftLeft(128 - value.bitLength());
+          }
+        }
+        if (value.compareTo(two128) >= 0) {
+          value = value.shiftRight(value.bitLength() - 128);
+        }
+        HIGH[q - SMALLEST] = value.shiftRight(64).longValue();
+        LOW[q - SMALLEST] = value.longValue();
+      }
+    }
+
+  }
+
+}
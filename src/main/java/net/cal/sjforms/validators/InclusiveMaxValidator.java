@@ -1,9 +1,9 @@
 package net.cal.sjforms.validators;
 
-import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.ValidationError;
 
-public class InclusiveMaxValidator<T, U extends Comparable<T>> implements Validator<T, T> {
+public class InclusiveMaxValidator<T, U extends Comparable<T>> extends CheckingValidator<T> implements PureValidator<T, T> {
 
   private final U max;
 
@@ -12,14 +12,11 @@ public class InclusiveMaxValidator<T, U extends Comparable<T>> implements Valida
   }
 
   @Override
-  public T validate(String fieldName, T value) throws ValidationException {
-    if (value == null) {
-      return null;
+  protected ValidationError check(String fieldName, T value) {
+    if (value != null && max.compareTo(value) < 0) {
+      return new ValidationError(fieldName, value, "must be at most ", max);
     }
-    if (max.compareTo(value) < 0) {
-      throw new ValidationException(fieldName, value, "must be at most " + max);
-    }
-    return value;
+    return null;
   }
 
 }
@@ -1,22 +1,37 @@
 package net.cal.sjforms.validators;
 
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.TryValidator;
+import net.cal.sjforms.ValidationError;
 import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
 
 /**
- * Applies {@link java.lang.Integer#parseInt(String)} to the input. Throws a
+ * Parses the input with the same syntax as {@link java.lang.Integer#parseInt(String)}. Throws a
  * {@link net.cal.sjforms.ValidationException} when the parse fails.
  */
-public class IntValidator implements Validator<String, Integer> {
+public class IntValidator implements TryValidator<String, Integer>, PureValidator<String, Integer> {
   @Override
   public Integer validate(String fieldName, String value) throws ValidationException {
     if (value == null) {
       return null;
     }
-    try {
-      return Integer.parseInt(value);
-    } catch (NumberFormatException e) {
-      throw new ValidationException(fieldName, value, "not a valid int", e);
+    long result = NumberParsing.parseInt(value);
+    if (result == NumberParsing.FAILED) {
+      throw new ValidationException(fieldName, value, "not a valid int");
     }
+    return (int)result;
+  }
+
+  @Override
+  public Outcome<Integer> tryValidate(String fieldName, String value) {
+    if (value == null) {
+      return Outcome.success(null);
+    }
+    long result = NumberParsing.parseInt(value);
+    if (result == NumberParsing.FAILED) {
+      return Outcome.failure(new ValidationError(fieldName, value, "not a valid int"));
+    }
+    return Outcome.success((int)result);
   }
 }
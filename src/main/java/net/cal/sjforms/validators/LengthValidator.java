@@ -0,0 +1,38 @@
+package net.cal.sjforms.validators;
+
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.ValidationError;
+
+/**
+ * Ensures the length of a string is within bounds. Only the length is read, never the
+ * characters, so this is the cheapest way to reject oversized input; put it before any
+ * validator that scans the value.
+ */
+public class LengthValidator extends CheckingValidator<String> implements PureValidator<String, String> {
+
+  private final int minLength;
+  private final int maxLength;
+  private final String range;
+
+  /**
+   * @param minLength the least length to accept
+   * @param maxLength the greatest length to accept
+   */
+  public LengthValidator(int minLength, int maxLength) {
+    if (minLength < 0 || maxLength < minLength) {
+      throw new IllegalArgumentException("Illegal length range [" + minLength + ", " + maxLength + ']');
+    }
+    this.minLength = minLength;
+    this.maxLength = maxLength;
+    this.range = minLength == 0 ? "at most " + maxLength : "between " + minLength + " and " + maxLength;
+  }
+
+  @Override
+  protected ValidationError check(String fieldName, String value) {
+    if (value != null && (value.length() < minLength || value.length() > maxLength)) {
+      return new ValidationError(fieldName, value, "must have a length ", range);
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,899 @@
+package net.cal.sjforms.validators;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A regular expression that is matched in time linear in the length of the input, so
+ * that no input, however crafted, can make matching backtrack catastrophically (as it
+ * can with {@link java.util.regex.Pattern} and patterns such as <code>(a+)+b</code>).
+ *
+ * <p>Patterns always match the <em>whole</em> input, like
+ * {@link java.util.regex.Matcher#matches()}. The syntax is the subset of
+ * {@link java.util.regex.Pattern}'s that can be matched without backtracking:</p>
+ * <ul>
+ *   <li>literal characters, <code>.</code> (any character but a line terminator),
+ *       escaped metacharacters and the escapes <code>\t \n \r \f \a \e \xhh
+ *       &#92;uhhhh</code>;</li>
+ *   <li>the classes <code>\d \D \w \W \s \S</code> (ASCII only, as in
+ *       <code>Pattern</code>) and character classes such as <code>[^a-z_]</code>;</li>
+ *   <li>groups <code>(...)</code> and <code>(?:...)</code>, alternation <code>|</code>,
+ *       and the greedy or reluctant quantifiers <code>* + ? {n} {n,} {n,m}</code> (which
+ *       match the same inputs, since nothing is captured);</li>
+ *   <li><code>^</code> at the very start and <code>$</code> at the very end, which are
+ *       redundant.</li>
+ * </ul>
+ * Backreferences, lookaround, possessive quantifiers, boundary matchers, inline flags and
+ * class intersections are rejected when the pattern is compiled. Characters are UTF-16
+ * chars, so a supplementary character is matched as two characters.
+ *
+ * <p>A pattern is compiled once into a Thompson NFA. If the equivalent DFA is small
+ * (at most 1024 states), it is built eagerly as well, and matching costs one table
+ * lookup per character; otherwise the NFA is simulated, which costs at most one step
+ * per NFA state per character. Either way, input whose length is outside the range the
+ * pattern can match is rejected without being read at all. Compiled patterns are
+ * immutable and can be shared between threads without synchronization.</p>
+ */
+public final class LinearPattern {
+
+  private static final int MAX_NFA_STATES = 10000;
+  private static final int MAX_DFA_STATES = 1024;
+  private static final int MAX_DFA_TABLE = 1 << 18;
+  private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  private static final int[] DOT = { 0, 9, 11, 12, 14, 0x84, 0x86, 0x2027, 0x202A, 0xFFFF };
+  private static final int[] DIGIT = { '0', '9' };
+  private static final int[] WORD = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+  private static final int[] SPACE = { '\t', '\r', ' ', ' ' };
+
+  // NFA state kinds
+  private static final byte CHARS = 0;
+  private static final byte SPLIT = 1;
+  private static final byte MATCH = 2;
+
+  private final String regex;
+  private final int minLength;
+  private final int maxLength;
+
+  // character classes: the chars are partitioned so that every class in the pattern is
+  // a union of partitions; a char's partition is the number of boundaries <= it
+  private final char[] boundaries;
+  private final byte[] asciiPartitions; // null if there are more than 127 partitions
+  private final int partitionCount;
+
+  // the NFA
+  private final byte[] kinds;
+  private final int[] next; // CHARS: the following state; SPLIT: the first branch
+  private final int[] alt; // SPLIT: the second branch
+  private final boolean[][] accepts; // CHARS: whether each partition is accepted
+  private final int start;
+
+  // the DFA (state 0 is the start state), or null if it would be too big
+  private final int[] transitions; // state * partitionCount + partition -> state, or -1
+  private final boolean[] accepting;
+
+  private LinearPattern(String regex) {
+    this.regex = regex;
+    Node root = new Parser(regex).parse();
+    minLength = root.minLength();
+    maxLength = root.maxLength();
+
+    TreeSet<Integer> points = new TreeSet<>();
+    root.collectBoundaries(points);
+    boundaries = new char[points.size()];
+    int b = 0;
+    for (int point : points) {
+      boundaries[b++] = (char)point;
+    }
+    partitionCount = boundaries.length + 1;
+    if (partitionCount <= Byte.MAX_VALUE) {
+      asciiPartitions = new byte[128];
+      for (char c = 0; c < 128; ++c) {
+        asciiPartitions[c] = (byte)searchPartition(c);
+      }
+    } else {
+      asciiPartitions = null;
+    }
+
+    NfaBuilder builder = new NfaBuilder();
+    int match = builder.add(MATCH, -1, -1, null);
+    start = builder.emit(root, match);
+    kinds = Arrays.copyOf(builder.kinds, builder.size);
+    next = Arrays.copyOf(builder.next, builder.size);
+    alt = Arrays.copyOf(builder.alt, builder.size);
+    accepts = builder.accepts.toArray(new boolean[builder.size][]);
+
+    DfaBuilder dfa = new DfaBuilder();
+    if (dfa.build()) {
+      transitions = Arrays.copyOf(dfa.transitions, dfa.states.size() * partitionCount);
+      accepting = new boolean[dfa.states.size()];
+      for (int state = 0; state < accepting.length; ++state) {
+        accepting[state] = dfa.isAccepting(dfa.states.get(state));
+      }
+    } else {
+      transitions = null;
+      accepting = null;
+    }
+  }
+
+  /**
+   * Compile a regular expression.
+   * @param regex the expression, in the syntax described above
+   * @return the compiled pattern
+   * @throws IllegalArgumentException if the expression is malformed, uses a construct
+   *         that cannot be matched in linear time, or compiles to more than 10000 NFA
+   *         states (for instance because of large nested repetition counts)
+   */
+  public static LinearPattern compile(String regex) {
+    return new LinearPattern(regex);
+  }
+
+  /**
+   * Parse the body of a character class (what goes between the brackets).
+   * @return the sorted, disjoint inclusive ranges of the characters in the class, as
+   *         pairs of bounds
+   * @throws IllegalArgumentException if the class is malformed
+   */
+  static int[] characterClassRanges(String body) {
+    Node node = new Parser('[' + body + ']').parse();
+    if (node.type != Node.SET) {
+      throw new IllegalArgumentException("Malformed character class: " + body);
+    }
+    return node.ranges.clone();
+  }
+
+  /**
+   * @return the regular expression this pattern was compiled from
+   */
+  public String pattern() {
+    return regex;
+  }
+
+  /**
+   * @return true if this pattern is matched with a precomputed DFA rather than by
+   *         simulating its NFA
+   */
+  public boolean isDeterministic() {
+    return transitions != null;
+  }
+
+  /**
+   * Match this pattern against the whole of the given input.
+   * @param input the input
+   * @return true if the pattern matches the entire input
+   */
+  public boolean matches(CharSequence input) {
+    int length = input.length();
+    if (length < minLength || length > maxLength) {
+      return false;
+    }
+    return transitions != null ? matchDfa(input, length) : matchNfa(input, length);
+  }
+
+  private boolean matchDfa(CharSequence input, int length) {
+    int[] transitions = this.transitions;
+    int partitionCount = this.partitionCount;
+    int state = 0;
+    for (int i = 0; i < length; ++i) {
+      state = transitions[state * partitionCount + partition(input.charAt(i))];
+      if (state < 0) {
+        return false;
+      }
+    }
+    return accepting[state];
+  }
+
+  private boolean matchNfa(CharSequence input, int length) {
+    int n = kinds.length;
+    int[] current = new int[n];
+    int[] following = new int[n];
+    int[] marks = new int[n]; // the step in which each state was last added, plus one
+    int[] stack = new int[n];
+    int count = closure(start, current, 0, marks, 1, stack);
+    for (int i = 0; i < length; ++i) {
+      int partition = partition(input.charAt(i));
+      int nextCount = 0;
+      for (int j = 0; j < count; ++j) {
+        int state = current[j];
+        if (kinds[state] == CHARS && accepts[state][partition]) {
+          nextCount = closure(next[state], following, nextCount, marks, i + 2, stack);
+        }
+      }
+      if (nextCount == 0) {
+        return false;
+      }
+      int[] swap = current;
+      current = following;
+      following = swap;
+      count = nextCount;
+    }
+    for (int j = 0; j < count; ++j) {
+      if (kinds[current[j]] == MATCH) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Add the CHARS and MATCH states reachable from the given state without reading a
+   * character to <code>set</code>, skipping states already marked with <code>mark</code>.
+   * @return the new size of the set
+   */
+  private int closure(int from, int[] set, int size, int[] marks, int mark, int[] stack) {
+    if (marks[from] == mark) {
+      return size;
+    }
+    marks[from] = mark;
+    int top = 0;
+    stack[top++] = from;
+    while (top > 0) {
+      int state = stack[--top];
+      if (kinds[state] == SPLIT) {
+        int target = next[state];
+        if (marks[target] != mark) {
+          marks[target] = mark;
+          stack[top++] = target;
+        }
+        target = alt[state];
+        if (marks[target] != mark) {
+          marks[target] = mark;
+          stack[top++] = target;
+        }
+      } else {
+        set[size++] = state;
+      }
+    }
+    return size;
+  }
+
+  private int partition(char c) {
+    return c < 128 && asciiPartitions != null ? asciiPartitions[c] : searchPartition(c);
+  }
+
+  private int searchPartition(char c) {
+    int i = Arrays.binarySearch(boundaries, c);
+    return i >= 0 ? i + 1 : -i - 1;
+  }
+
+  /**
+   * @return the first char of the given partition
+   */
+  private char representative(int partition) {
+    return partition == 0 ? 0 : boundaries[partition - 1];
+  }
+
+  @Override
+  public String toString() {
+    return regex;
+  }
+
+  private final class NfaBuilder {
+
+    byte[] kinds = new byte[16];
+    int[] next = new int[16];
+    int[] alt = new int[16];
+    final List<boolean[]> accepts = new ArrayList<>();
+    int size;
+
+    int add(byte kind, int next, int alt, boolean[] accepts) {
+      if (size == MAX_NFA_STATES) {
+        throw new IllegalArgumentException("Pattern is too large: " + regex);
+      }
+      if (size == kinds.length) {
+        kinds = Arrays.copyOf(kinds, size * 2);
+        this.next = Arrays.copyOf(this.next, size * 2);
+        this.alt = Arrays.copyOf(this.alt, size * 2);
+      }
+      kinds[size] = kind;
+      this.next[size] = next;
+      this.alt[size] = alt;
+      this.accepts.add(accepts);
+      return size++;
+    }
+
+    /**
+     * Add the states for the given node, built backwards from its continuation.
+     * @param node the node to match
+     * @param then the state to go to after the node has matched
+     * @return the state in which to start matching the node
+     */
+    int emit(Node node, int then) {
+      switch (node.type) {
+        case Node.SET:
+          boolean[] set = new boolean[partitionCount];
+          for (int p = 0; p < partitionCount; ++p) {
+            set[p] = contains(node.ranges, representative(p));
+          }
+          return add(CHARS, then, -1, set);
+        case Node.CONCAT:
+          for (int i = node.children.size() - 1; i >= 0; --i) {
+            then = emit(node.children.get(i), then);
+          }
+          return then;
+        case Node.ALT:
+          int state = emit(node.children.get(node.children.size() - 1), then);
+          for (int i = node.children.size() - 2; i >= 0; --i) {
+            state = add(SPLIT, emit(node.children.get(i), then), state, null);
+          }
+          return state;
+        default: // Node.REPEAT
+          Node child = node.children.get(0);
+          if (node.max == UNBOUNDED) {
+            int loop = add(SPLIT, -1, then, null);
+            int body = emit(child, loop); // may grow the arrays, so assign afterwards
+            next[loop] = body;
+            then = loop;
+          } else {
+            int optional = then;
+            for (int i = node.min; i < node.max; ++i) {
+              optional = add(SPLIT, emit(child, optional), then, null);
+            }
+            then = optional;
+          }
+          for (int i = 0; i < node.min; ++i) {
+            then = emit(child, then);
+          }
+          return then;
+      }
+    }
+
+  }
+
+  private final class DfaBuilder {
+
+    final List<int[]> states = new ArrayList<>();
+    final Map<Key, Integer> ids = new HashMap<>();
+    int[] transitions = new int[0];
+
+    /**
+     * @return false if the DFA would be too big
+     */
+    boolean build() {
+      int[] marks = new int[kinds.length];
+      int[] stack = new int[kinds.length];
+      int[] buffer = new int[kinds.length];
+      int mark = 1;
+      int size = closure(start, buffer, 0, marks, mark, stack);
+      add(Arrays.copyOf(buffer, size));
+      for (int id = 0; id < states.size(); ++id) {
+        int[] set = states.get(id);
+        for (int p = 0; p < partitionCount; ++p) {
+          ++mark;
+          size = 0;
+          for (int state : set) {
+            if (kinds[state] == CHARS && accepts[state][p]) {
+              size = closure(next[state], buffer, size, marks, mark, stack);
+            }
+          }
+          int target = -1;
+          if (size > 0) {
+            int[] targetSet = Arrays.copyOf(buffer, size);
+            Arrays.sort(targetSet);
+            Integer existing = ids.get(new Key(targetSet));
+            if (existing != null) {
+              target = existing;
+            } else if (states.size() == MAX_DFA_STATES || (states.size() + 1) * partitionCount > MAX_DFA_TABLE) {
+              return false;
+            } else {
+              target = add(targetSet);
+            }
+          }
+          transitions[id * partitionCount + p] = target;
+        }
+      }
+      return true;
+    }
+
+    private int add(int[] set) {
+      Arrays.sort(set);
+      int id = states.size();
+      states.add(set);
+      ids.put(new Key(set), id);
+      int needed = states.size() * partitionCount;
+      if (transitions.length < needed) {
+        transitions = Arrays.copyOf(transitions, Math.max(needed, transitions.length * 2));
+      }
+      return id;
+    }
+
+    boolean isAccepting(int[] set) {
+      for (int state : set) {
+        if (kinds[state] == MATCH) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+  }
+
+  private static final class Key {
+
+    private final int[] set;
+    private final int hash;
+
+    Key(int[] set) {
+      this.set = set;
+      this.hash = Arrays.hashCode(set);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && Arrays.equals(set, ((Key)o).set);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+  }
+
+  /**
+   * @param ranges sorted, disjoint inclusive ranges, as pairs of bounds
+   */
+  private static boolean contains(int[] ranges, char c) {
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (c < ranges[i]) {
+        return false;
+      }
+      if (c <= ranges[i + 1]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A node of a parsed pattern.
+   */
+  private static final class Node {
+
+    static final int SET = 0;
+    static final int CONCAT = 1;
+    static final int ALT = 2;
+    static final int REPEAT = 3;
+
+    final int type;
+    final int[] ranges; // SET: sorted, disjoint inclusive ranges
+    final List<Node> children; // CONCAT and ALT; REPEAT has exactly one
+    final int min; // REPEAT
+    final int max; // REPEAT, possibly UNBOUNDED
+
+    private Node(int type, int[] ranges, List<Node> children, int min, int max) {
+      this.type = type;
+      this.ranges = ranges;
+      this.children = children;
+      this.min = min;
+      this.max = max;
+    }
+
+    static Node set(int[] ranges) {
+      return new Node(SET, ranges, null, 1, 1);
+    }
+
+    static Node concat(List<Node> children) {
+      return children.size() == 1 ? children.get(0) : new Node(CONCAT, null, children, 0, 0);
+    }
+
+    static Node alt(List<Node> children) {
+      return children.size() == 1 ? children.get(0) : new Node(ALT, null, children, 0, 0);
+    }
+
+    static Node repeat(Node child, int min, int max) {
+      return new Node(REPEAT, null, Collections.singletonList(child), min, max);
+    }
+
+    int minLength() {
+      switch (type) {
+        case SET:
+          return 1;
+        case CONCAT:
+          long sum = 0;
+          for (Node child : children) {
+            sum += child.minLength();
+          }
+          return (int)Math.min(sum, UNBOUNDED);
+        case ALT:
+          int shortest = UNBOUNDED;
+          for (Node child : children) {
+            shortest = Math.min(shortest, child.minLength());
+          }
+          return shortest;
+        default:
+          return (int)Math.min((long)min * children.get(0).minLength(), UNBOUNDED);
+      }
+    }
+
+    int maxLength() {
+      switch (type) {
+        case SET:
+          return 1;
+        case CONCAT:
+          long sum = 0;
+          for (Node child : children) {
+            sum += child.maxLength();
+          }
+          return (int)Math.min(sum, UNBOUNDED);
+        case ALT:
+          int longest = 0;
+          for (Node child : children) {
+            longest = Math.max(longest, child.maxLength());
+          }
+          return longest;
+        default:
+          int childMax = children.get(0).maxLength();
+          if (max == 0 || childMax == 0) {
+            return 0;
+          }
+          if (max == UNBOUNDED || childMax == UNBOUNDED) {
+            return UNBOUNDED;
+          }
+          return (int)Math.min((long)max * childMax, UNBOUNDED);
+      }
+    }
+
+    void collectBoundaries(TreeSet<Integer> points) {
+      if (type == SET) {
+        for (int i = 0; i < ranges.length; i += 2) {
+          if (ranges[i] > 0) {
+            points.add(ranges[i]);
+          }
+          if (ranges[i + 1] < Character.MAX_VALUE) {
+            points.add(ranges[i + 1] + 1);
+          }
+        }
+      } else {
+        for (Node child : children) {
+          child.collectBoundaries(points);
+        }
+      }
+    }
+
+  }
+
+  /**
+   * A recursive-descent parser for the supported syntax.
+   */
+  private static final class Parser {
+
+    private final String regex;
+    private int pos;
+    private int depth;
+
+    Parser(String regex) {
+      this.regex = regex;
+    }
+
+    Node parse() {
+      if (more() && peek() == '^') {
+        ++pos;
+      }
+      Node root = alternation();
+      if (more()) {
+        throw error("Unmatched closing ')'");
+      }
+      return root;
+    }
+
+    private Node alternation() {
+      List<Node> alternatives = new ArrayList<>();
+      alternatives.add(concatenation());
+      while (more() && peek() == '|') {
+        ++pos;
+        alternatives.add(concatenation());
+      }
+      return Node.alt(alternatives);
+    }
+
+    private Node concatenation() {
+      List<Node> items = new ArrayList<>();
+      while (more() && peek() != '|' && peek() != ')') {
+        if (peek() == '$' && pos == regex.length() - 1 && depth == 0) {
+          ++pos;
+          break;
+        }
+        items.add(quantified(atom()));
+      }
+      return Node.concat(items);
+    }
+
+    private Node atom() {
+      char c = regex.charAt(pos++);
+      switch (c) {
+        case '(':
+          if (regex.startsWith("?:", pos)) {
+            pos += 2;
+          } else if (more() && peek() == '?') {
+            throw error("Lookaround and inline flags are not supported");
+          }
+          ++depth;
+          Node group = alternation();
+          if (!more()) {
+            throw error("Unclosed group");
+          }
+          ++pos;
+          --depth;
+          return group;
+        case '[':
+          return Node.set(characterClass());
+        case '.':
+          return Node.set(DOT);
+        case '\\':
+          return Node.set(escape());
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          throw error("Dangling quantifier '" + c + '\'');
+        case '^':
+        case '$':
+          throw error("Anchors are only supported at the start and end of the pattern");
+        default:
+          return Node.set(new int[] { c, c });
+      }
+    }
+
+    private Node quantified(Node atom) {
+      if (!more()) {
+        return atom;
+      }
+      int min;
+      int max;
+      switch (peek()) {
+        case '*':
+          min = 0;
+          max = UNBOUNDED;
+          ++pos;
+          break;
+        case '+':
+          min = 1;
+          max = UNBOUNDED;
+          ++pos;
+          break;
+        case '?':
+          min = 0;
+          max = 1;
+          ++pos;
+          break;
+        case '{':
+          ++pos;
+          min = number();
+          max = min;
+          if (more() && peek() == ',') {
+            ++pos;
+            max = more() && peek() == '}' ? UNBOUNDED : number();
+          }
+          if (!more() || peek() != '}') {
+            throw error("Unclosed repetition");
+          }
+          ++pos;
+          if (max < min) {
+            throw error("Illegal repetition range");
+          }
+          break;
+        default:
+          return atom;
+      }
+      if (more() && peek() == '?') {
+        ++pos; // reluctant: matches the same inputs
+      } else if (more() && peek() == '+') {
+        throw error("Possessive quantifiers are not supported");
+      }
+      return Node.repeat(atom, min, max);
+    }
+
+    private int number() {
+      int begin = pos;
+      while (more() && peek() >= '0' && peek() <= '9') {
+        ++pos;
+      }
+      if (begin == pos || pos - begin > 6) {
+        throw error("Illegal repetition count");
+      }
+      return Integer.parseInt(regex.substring(begin, pos));
+    }
+
+    private int[] characterClass() {
+      boolean negate = more() && peek() == '^';
+      if (negate) {
+        ++pos;
+      }
+      List<int[]> parts = new ArrayList<>();
+      boolean first = true;
+      while (true) {
+        if (!more()) {
+          throw error("Unclosed character class");
+        }
+        char c = peek();
+        if (c == ']' && !first) {
+          ++pos;
+          break;
+        }
+        first = false;
+        if (c == '[') {
+          throw error("Nested character classes are not supported");
+        }
+        if (c == '&' && regex.startsWith("&&", pos)) {
+          throw error("Character class intersections are not supported");
+        }
+        int[] low = classAtom();
+        if (more() && peek() == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+          ++pos;
+          int[] high = classAtom();
+          if (!isSingle(low) || !isSingle(high) || high[0] < low[0]) {
+            throw error("Illegal character range");
+          }
+          parts.add(new int[] { low[0], high[0] });
+        } else {
+          parts.add(low);
+        }
+      }
+      int[] ranges = union(parts);
+      return negate ? complement(ranges) : ranges;
+    }
+
+    private int[] classAtom() {
+      char c = regex.charAt(pos++);
+      return c == '\\' ? escape() : new int[] { c, c };
+    }
+
+    private int[] escape() {
+      if (!more()) {
+        throw error("Trailing backslash");
+      }
+      char c = regex.charAt(pos++);
+      switch (c) {
+        case 'd':
+          return DIGIT;
+        case 'D':
+          return complement(DIGIT);
+        case 'w':
+          return WORD;
+        case 'W':
+          return complement(WORD);
+        case 's':
+          return SPACE;
+        case 'S':
+          return complement(SPACE);
+        case 't':
+          return single('\t');
+        case 'n':
+          return single('\n');
+        case 'r':
+          return single('\r');
+        case 'f':
+          return single('\f');
+        case 'a':
+          return single('\u0007');
+        case 'e':
+          return single('\u001B');
+        case 'x':
+          return single(hex(2));
+        case 'u':
+          return single(hex(4));
+        case 'b':
+        case 'B':
+        case 'A':
+        case 'z':
+        case 'Z':
+        case 'G':
+          throw error("Boundary matchers are not supported");
+        default:
+          if (c >= '1' && c <= '9') {
+            throw error("Backreferences are not supported");
+          }
+          if (Character.isLetterOrDigit(c)) {
+            throw error("Unsupported escape '\\" + c + '\'');
+          }
+          return single(c);
+      }
+    }
+
+    private char hex(int digits) {
+      if (pos + digits > regex.length()) {
+        throw error("Illegal hexadecimal escape");
+      }
+      int value = 0;
+      for (int i = 0; i < digits; ++i) {
+        int digit = Character.digit(regex.charAt(pos++), 16);
+        if (digit < 0) {
+          throw error("Illegal hexadecimal escape");
+        }
+        value = value * 16 + digit;
+      }
+      return (char)value;
+    }
+
+    private boolean more() {
+      return pos < regex.length();
+    }
+
+    private char peek() {
+      return regex.charAt(pos);
+    }
+
+    private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " at index " + pos + " in pattern: " + regex);
+    }
+
+  }
+
+  private static int[] single(char c) {
+    return new int[] { c, c };
+  }
+
+  private static boolean isSingle(int[] ranges) {
+    return ranges.length == 2 && ranges[0] == ranges[1];
+  }
+
+  /**
+   * @param parts sets of sorted, disjoint ranges
+   * @return the sorted, disjoint ranges of their union
+   */
+  private static int[] union(List<int[]> parts) {
+    List<int[]> ranges = new ArrayList<>();
+    for (int[] part : parts) {
+      for (int i = 0; i < part.length; i += 2) {
+        ranges.add(new int[] { part[i], part[i + 1] });
+      }
+    }
+    Collections.sort(ranges, new Comparator<int[]>() {
+      @Override
+      public int compare(int[] a, int[] b) {
+        return Integer.compare(a[0], b[0]);
+      }
+    });
+    Deque<int[]> merged = new ArrayDeque<>();
+    for (int[] range : ranges) {
+      int[] last = merged.peekLast();
+      if (last != null && range[0] <= last[1] + 1) {
+        last[1] = Math.max(last[1], range[1]);
+      } else {
+        merged.addLast(range.clone());
+      }
+    }
+    int[] result = new int[merged.size() * 2];
+    int i = 0;
+    for (int[] range : merged) {
+      result[i++] = range[0];
+      result[i++] = range[1];
+    }
+    return result;
+  }
+
+  /**
+   * @param ranges sorted, disjoint ranges
+   * @return the sorted, disjoint ranges of the chars not in them
+   */
+  private static int[] complement(int[] ranges) {
+    List<Integer> result = new ArrayList<>();
+    int low = 0;
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (ranges[i] > low) {
+        result.add(low);
+        result.add(ranges[i] - 1);
+      }
+      low = ranges[i + 1] + 1;
+    }
+    if (low <= Character.MAX_VALUE) {
+      result.add(low);
+      result.add((int)Character.MAX_VALUE);
+    }
+    int[] array = new int[result.size()];
+    for (int i = 0; i < array.length; ++i) {
+      array[i] = result.get(i);
+    }
+    return array;
+  }
+
+}
@@ -1,22 +1,37 @@
 package net.cal.sjforms.validators;
 
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.TryValidator;
+import net.cal.sjforms.ValidationError;
 import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
 
 /**
- * Applies {@link java.lang.Long#parseLong(String)} to the input. Throws a
+ * Parses the input with the same syntax as {@link java.lang.Long#parseLong(String)}. Throws a
  * {@link net.cal.sjforms.ValidationException} when the parse fails.
  */
-public class LongValidator implements Validator<String, Long> {
+public class LongValidator implements TryValidator<String, Long>, PureValidator<String, Long> {
   @Override
   public Long validate(String fieldName, String value) throws ValidationException {
     if (value == null) {
       return null;
     }
-    try {
-      return Long.parseLong(value);
-    } catch (NumberFormatException e) {
-      throw new ValidationException(fieldName, value, "not a valid long", e);
+    long result = NumberParsing.parseLong(value);
+    if (result == NumberParsing.FAILED && !NumberParsing.isLong(value)) {
+      throw new ValidationException(fieldName, value, "not a valid long");
     }
+    return result;
+  }
+
+  @Override
+  public Outcome<Long> tryValidate(String fieldName, String value) {
+    if (value == null) {
+      return Outcome.success(null);
+    }
+    long result = NumberParsing.parseLong(value);
+    if (result == NumberParsing.FAILED && !NumberParsing.isLong(value)) {
+      return Outcome.failure(new ValidationError(fieldName, value, "not a valid long"));
+    }
+    return Outcome.success(result);
   }
 }
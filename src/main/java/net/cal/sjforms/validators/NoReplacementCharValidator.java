@@ -0,0 +1,26 @@
+package net.cal.sjforms.validators;
+
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.ValidationError;
+
+/**
+ * Ensures a string has no U+FFFD REPLACEMENT CHARACTER. Decoders, including
+ * {@link net.cal.sjforms.Form#parseUrlEncoded(CharSequence)} and most servlet containers,
+ * put that character in place of malformed UTF-8, so rejecting it rejects input that was
+ * not valid UTF-8 before it was decoded. (U+FFFD is itself a valid character, which
+ * {@link Utf8Validator} accepts; only use this for fields where it cannot legitimately
+ * occur.)
+ */
+public class NoReplacementCharValidator extends CheckingValidator<String> implements PureValidator<String, String> {
+
+  private static final char REPLACEMENT = '\uFFFD';
+
+  @Override
+  protected ValidationError check(String fieldName, String value) {
+    if (value == null || value.indexOf(REPLACEMENT) < 0) {
+      return null;
+    }
+    return new ValidationError(fieldName, value, "must not contain replacement characters (U+FFFD)");
+  }
+
+}
@@ -0,0 +1,188 @@
+package net.cal.sjforms.validators;
+
+/**
+ * Number parsing that reports malformed input without throwing (and therefore without
+ * the cost of creating and catching a {@link java.lang.NumberFormatException}).
+ *
+ * <p>The integer parsers accept exactly the syntax of {@link java.lang.Integer#parseInt(String)}
+ * and {@link java.lang.Long#parseLong(String)}: an optional sign followed by one or more
+ * decimal digits (as determined by {@link java.lang.Character#digit(char, int)}). The
+ * floating point parsers accept exactly the syntax of {@link java.lang.Double#parseDouble(String)}
+ * and {@link java.lang.Float#parseFloat(String)}, and round exactly as they do.</p>
+ */
+public final class NumberParsing {
+
+  /**
+   * Returned by the int-sized parsers when the input is malformed or out of range.
+   * It is outside the range of int, so it cannot be confused with a real result.
+   */
+  public static final long FAILED = Long.MIN_VALUE;
+
+  private NumberParsing() { }
+
+  /**
+   * Parse an int.
+   * @param s the input
+   * @return the parsed value, or {@link #FAILED}
+   */
+  public static long parseInt(CharSequence s) {
+    return parseInRange(s, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Parse an integer that must lie in the given range (which must be within the range
+   * of int). Useful for shorts and bytes.
+   * @param s the input
+   * @param min the smallest legal value
+   * @param max the largest legal value
+   * @return the parsed value, or {@link #FAILED}
+   */
+  public static long parseInRange(CharSequence s, int min, int max) {
+    int len = s.length();
+    if (len == 0) {
+      return FAILED;
+    }
+    int i = 0;
+    boolean negative = false;
+    char first = s.charAt(0);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      if (len == 1) {
+        return FAILED;
+      }
+      i = 1;
+    }
+    long result = 0;
+    for (; i < len; ++i) {
+      int digit = digit(s.charAt(i));
+      if (digit < 0) {
+        return FAILED;
+      }
+      result = result * 10 + digit;
+      if (result > (1L << 32)) {
+        // far out of range; stop before the accumulator can overflow
+        return FAILED;
+      }
+    }
+    if (negative) {
+      result = -result;
+    }
+    return result < min || result > max ? FAILED : result;
+  }
+
+  /**
+   * Parse a long. Since every long is a legal result, {@link #FAILED} is ambiguous here:
+   * when it is returned, use {@link #isLong(CharSequence)} to tell whether the input was
+   * malformed or was really {@link java.lang.Long#MIN_VALUE}.
+   * @param s the input
+   * @return the parsed value, or {@link #FAILED}
+   */
+  public static long parseLong(CharSequence s) {
+    int len = s.length();
+    if (len == 0) {
+      return FAILED;
+    }
+    int i = 0;
+    boolean negative = false;
+    char first = s.charAt(0);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      if (len == 1) {
+        return FAILED;
+      }
+      i = 1;
+    }
+    // accumulate negatively (as Long.parseLong does) since |MIN_VALUE| > MAX_VALUE
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long multmin = limit / 10;
+    long result = 0;
+    for (; i < len; ++i) {
+      int digit = digit(s.charAt(i));
+      if (digit < 0 || result < multmin) {
+        return FAILED;
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        return FAILED;
+      }
+      result -= digit;
+    }
+    return negative ? result : -result;
+  }
+
+  /**
+   * Determine whether {@link java.lang.Long#parseLong(String)} would accept the input.
+   * @param s the input
+   * @return true if the input is a well-formed long
+   */
+  public static boolean isLong(CharSequence s) {
+    int len = s.length();
+    if (len == 0) {
+      return false;
+    }
+    int i = 0;
+    long limit = -Long.MAX_VALUE;
+    char first = s.charAt(0);
+    if (first == '-' || first == '+') {
+      if (first == '-') {
+        limit = Long.MIN_VALUE;
+      }
+      if (len == 1) {
+        return false;
+      }
+      i = 1;
+    }
+    // accumulate negatively (as Long.parseLong does) since |MIN_VALUE| > MAX_VALUE
+    long multmin = limit / 10;
+    long result = 0;
+    for (; i < len; ++i) {
+      int digit = digit(s.charAt(i));
+      if (digit < 0 || result < multmin) {
+        return false;
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        return false;
+      }
+      result -= digit;
+    }
+    return true;
+  }
+
+  /**
+   * Parse a double. Since NaN is a legal result, a NaN result is ambiguous: when it is
+   * returned, use {@link #isNaN(CharSequence)} to tell whether the input was malformed or
+   * was really "NaN".
+   * @param s the input
+   * @return the parsed value, or NaN if the input is malformed
+   */
+  public static double parseDouble(CharSequence s) {
+    return FloatingPointParsing.parseDouble(s);
+  }
+
+  /**
+   * Parse a float. As for {@link #parseDouble(CharSequence)}, a NaN result is ambiguous.
+   * @param s the input
+   * @return the parsed value, or NaN if the input is malformed
+   */
+  public static float parseFloat(CharSequence s) {
+    return FloatingPointParsing.parseFloat(s);
+  }
+
+  /**
+   * Determine whether the input is a NaN as accepted by {@link java.lang.Double#parseDouble(String)}.
+   * @param s the input
+   * @return true if the input spells NaN
+   */
+  public static boolean isNaN(CharSequence s) {
+    return FloatingPointParsing.isNaN(s);
+  }
+
+  static int digit(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    return c < 128 ? -1 : Character.digit(c, 10);
+  }
+
+}
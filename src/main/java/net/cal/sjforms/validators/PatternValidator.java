@@ -0,0 +1,44 @@
+package net.cal.sjforms.validators;
+
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.ValidationError;
+
+/**
+ * Ensures a string is at most a given length and matches a {@link LinearPattern}. The
+ * length is checked first, so validating any input costs at most time linear in the
+ * maximum length, whatever the pattern and the input.
+ */
+public class PatternValidator extends CheckingValidator<String> implements PureValidator<String, String> {
+
+  private final LinearPattern pattern;
+  private final int maxLength;
+  private final String maxLengthDescription;
+
+  /**
+   * @param pattern the pattern values must match
+   * @param maxLength the greatest length of value to try to match
+   */
+  public PatternValidator(LinearPattern pattern, int maxLength) {
+    if (maxLength < 0) {
+      throw new IllegalArgumentException("Illegal maximum length " + maxLength);
+    }
+    this.pattern = pattern;
+    this.maxLength = maxLength;
+    this.maxLengthDescription = maxLength + " characters long";
+  }
+
+  @Override
+  protected ValidationError check(String fieldName, String value) {
+    if (value == null) {
+      return null;
+    }
+    if (value.length() > maxLength) {
+      return new ValidationError(fieldName, value, "must be at most ", maxLengthDescription);
+    }
+    if (!pattern.matches(value)) {
+      return new ValidationError(fieldName, value, "must match ", pattern);
+    }
+    return null;
+  }
+
+}
@@ -1,18 +1,15 @@
 package net.cal.sjforms.validators;
 
-import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.ValidationError;
 
 /**
  * Only allows non-null values
  * @param <T>
  */
-public class RequiredValidator<T> implements Validator<T,T> {
+public class RequiredValidator<T> extends CheckingValidator<T> implements PureValidator<T, T> {
   @Override
-  public T validate(String fieldName, T value) throws ValidationException {
-    if (value == null) {
-      throw new ValidationException(fieldName, "missing value");
-    }
-    return value;
+  protected ValidationError check(String fieldName, T value) {
+    return value == null ? new ValidationError(fieldName, "missing value") : null;
   }
 }
@@ -1,22 +1,37 @@
 package net.cal.sjforms.validators;
 
+import net.cal.sjforms.Outcome;
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.TryValidator;
+import net.cal.sjforms.ValidationError;
 import net.cal.sjforms.ValidationException;
-import net.cal.sjforms.Validator;
 
 /**
- * Applies {@link Short#parseShort(String)} to the input. Throws a
+ * Parses the input with the same syntax as {@link Short#parseShort(String)}. Throws a
  * {@link net.cal.sjforms.ValidationException} when the parse fails.
  */
-public class ShortValidator implements Validator<String, Short> {
+public class ShortValidator implements TryValidator<String, Short>, PureValidator<String, Short> {
   @Override
   public Short validate(String fieldName, String value) throws ValidationException {
     if (value == null) {
       return null;
     }
-    try {
-      return Short.parseShort(value);
-    } catch (NumberFormatException e) {
-      throw new ValidationException(fieldName, value, "not a valid short", e);
+    long result = NumberParsing.parseInRange(value, Short.MIN_VALUE, Short.MAX_VALUE);
+    if (result == NumberParsing.FAILED) {
+      throw new ValidationException(fieldName, value, "not a valid short");
     }
+    return (short)result;
+  }
+
+  @Override
+  public Outcome<Short> tryValidate(String fieldName, String value) {
+    if (value == null) {
+      return Outcome.success(null);
+    }
+    long result = NumberParsing.parseInRange(value, Short.MIN_VALUE, Short.MAX_VALUE);
+    if (result == NumberParsing.FAILED) {
+      return Outcome.failure(new ValidationError(fieldName, value, "not a valid short"));
+    }
+    return Outcome.success((short)result);
   }
 }
@@ -0,0 +1,151 @@
+package net.cal.sjforms.validators;
+
+import java.util.List;
+
+/**
+ * Finds strings in a fixed list, chosen so that a lookup does as little work as
+ * possible:
+ * <ul>
+ *   <li>Small lists are scanned, comparing lengths before characters.</li>
+ *   <li>Larger lists use a perfect hash over the length and at most three sampled
+ *       characters, so that a lookup reads only a few characters of the input before
+ *       one final comparison. The sample positions and hash seed are searched for when
+ *       the matcher is built.</li>
+ *   <li>If no such perfect hash exists, a hash of the whole string is used, with
+ *       linear probing.</li>
+ * </ul>
+ * When matching ignores case, characters are compared as by
+ * {@link String#equalsIgnoreCase(String)}.
+ */
+final class StringMatcher {
+
+  private static final int SCAN_LIMIT = 8;
+  private static final int MAX_SEEDS = 256;
+
+  // sample positions: from the start if >= 0, or from the end if < 0 (-1 is the last char)
+  private static final int[][] SAMPLES = {
+      {0}, {-1}, {0, -1}, {1, -1}, {0, 1, -1}, {0, -2, -1}, {0, 1, -2}, {1, -2, -1}, {0, 2, -1}
+  };
+
+  private final String[] values;
+  private final boolean ignoreCase;
+  private final int[] table; // value index + 1, or 0 for empty; null when scanning
+  private final int mask;
+  private final int[] samples; // null when hashing whole strings
+  private final int seed;
+
+  /**
+   * @param values the strings to find (duplicates allowed; the first is found)
+   * @param ignoreCase whether to ignore case when matching
+   */
+  StringMatcher(List<String> values, boolean ignoreCase) {
+    this.values = values.toArray(new String[values.size()]);
+    this.ignoreCase = ignoreCase;
+    if (this.values.length <= SCAN_LIMIT) {
+      table = null;
+      mask = 0;
+      samples = null;
+      seed = 0;
+      return;
+    }
+    int size = Integer.highestOneBit(this.values.length * 2 - 1) * 2;
+    mask = size - 1;
+    for (int[] candidate : SAMPLES) {
+      for (int s = 1; s <= MAX_SEEDS; ++s) {
+        int[] t = buildPerfect(candidate, s);
+        if (t != null) {
+          table = t;
+          samples = candidate;
+          seed = s;
+          return;
+        }
+      }
+    }
+    samples = null;
+    seed = 0;
+    table = new int[size];
+    for (int i = 0; i < this.values.length; ++i) {
+      int slot = fullHash(this.values[i]) & mask;
+      while (table[slot] != 0 && !equal(this.values[table[slot] - 1], this.values[i])) {
+        slot = (slot + 1) & mask;
+      }
+      if (table[slot] == 0) {
+        table[slot] = i + 1;
+      }
+    }
+  }
+
+  private int[] buildPerfect(int[] candidate, int s) {
+    int[] t = new int[mask + 1];
+    for (int i = 0; i < values.length; ++i) {
+      int slot = sampledHash(values[i], candidate, s) & mask;
+      if (t[slot] != 0) {
+        if (!equal(values[t[slot] - 1], values[i])) {
+          return null;
+        }
+      } else {
+        t[slot] = i + 1;
+      }
+    }
+    return t;
+  }
+
+  /**
+   * @param s the string to find
+   * @return the index of the first matching value, or -1 if there is none
+   */
+  int indexOf(String s) {
+    if (table == null) {
+      for (int i = 0; i < values.length; ++i) {
+        if (values[i].length() == s.length() && equal(values[i], s)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    if (samples != null) {
+      int index = table[sampledHash(s, samples, seed) & mask] - 1;
+      return index >= 0 && equal(values[index], s) ? index : -1;
+    }
+    for (int slot = fullHash(s) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      int index = table[slot] - 1;
+      if (equal(values[index], s)) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private boolean equal(String a, String b) {
+    return ignoreCase ? a.equalsIgnoreCase(b) : a.equals(b);
+  }
+
+  private char fold(char c) {
+    if (!ignoreCase) {
+      return c;
+    }
+    // The same folding that String.equalsIgnoreCase uses, so that equal strings hash
+    // equally. Surrogates may be folded as whole code points, so they all hash alike.
+    return Character.isSurrogate(c) ? Character.MIN_SURROGATE : Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  private int sampledHash(String s, int[] positions, int s0) {
+    int length = s.length();
+    int h = length * s0;
+    for (int position : positions) {
+      int i = position >= 0 ? position : length + position;
+      int c = i >= 0 && i < length ? fold(s.charAt(i)) : 0;
+      h = (h ^ c) * 0x9E3779B1;
+    }
+    return h ^ (h >>> 15);
+  }
+
+  private int fullHash(String s) {
+    int h = 0;
+    for (int i = 0; i < s.length(); ++i) {
+      h = 31 * h + fold(s.charAt(i));
+    }
+    return h ^ (h >>> 16);
+  }
+
+}
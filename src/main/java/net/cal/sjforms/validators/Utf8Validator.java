@@ -0,0 +1,34 @@
+package net.cal.sjforms.validators;
+
+import net.cal.sjforms.PureValidator;
+import net.cal.sjforms.ValidationError;
+
+/**
+ * Ensures a string can be encoded as valid UTF-8, which is exactly when it has no
+ * unpaired surrogates. Decoders, including
+ * {@link net.cal.sjforms.Form#parseUrlEncoded(CharSequence)} and most servlet containers,
+ * replace malformed UTF-8 with U+FFFD, which is a valid character and so passes this
+ * check; use {@link NoReplacementCharValidator} as well to reject it.
+ */
+public class Utf8Validator extends CheckingValidator<String> implements PureValidator<String, String> {
+
+  @Override
+  protected ValidationError check(String fieldName, String value) {
+    if (value == null) {
+      return null;
+    }
+    for (int i = 0, n = value.length(); i < n; ++i) {
+      char c = value.charAt(i);
+      // almost every character is below the surrogates, so this is usually the only test
+      if (c >= Character.MIN_SURROGATE) {
+        if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+          ++i;
+        } else if (c <= Character.MAX_SURROGATE) {
+          return new ValidationError(fieldName, value, "must be valid UTF-8");
+        }
+      }
+    }
+    return null;
+  }
+
+}
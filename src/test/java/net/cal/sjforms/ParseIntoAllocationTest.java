@@ -0,0 +1,103 @@
+package net.cal.sjforms;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that {@link Form#parseInto(java.util.Map, ParseBuffer)} allocates nothing once
+ * it is warmed up, by counting the bytes the test thread allocates with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}. The form is the
+ * one of <code>ParseIntoBenchmark</code>: int, long, double and string fields.
+ */
+public class ParseIntoAllocationTest {
+
+  private static final int CALLS_PER_ROUND = 100000;
+  private static final int MAX_ROUNDS = 50;
+
+  private static final IntField PAGE = Field.intField("page").atLeast(1);
+  private static final IntField LIMIT = Field.intField("limit").atLeast(1).atMost(100);
+  private static final LongField SINCE = Field.longField("since");
+  private static final DoubleField LAT = Field.doubleField("lat").atLeast(-90.0).atMost(90.0);
+  private static final DoubleField LON = Field.doubleField("lon").atLeast(-180.0).atMost(180.0);
+  private static final Field<String> QUERY = Field.stringField("q");
+  private static final Field<String> SORT = Field.stringField("sort").oneOf("asc", "desc");
+  private static final Form FORM = new Form(PAGE, LIMIT, SINCE, LAT, LON, QUERY, SORT);
+
+  private com.sun.management.ThreadMXBean threads;
+  private long threadId;
+  private Map<String, String> values;
+  private ParseBuffer buffer;
+
+  @Before
+  public void setUp() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    threads = (com.sun.management.ThreadMXBean)bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+    threadId = Thread.currentThread().getId();
+    values = new HashMap<>();
+    values.put("page", "3");
+    values.put("limit", "50");
+    values.put("since", "1404172800000");
+    values.put("lat", "47.6062");
+    values.put("lon", "-122.3321");
+    values.put("q", "coffee");
+    values.put("sort", "desc");
+    buffer = FORM.newBuffer();
+  }
+
+  @Test
+  public void parsesValues() throws ValidationException {
+    ParseResult result = FORM.parseInto(values, buffer);
+    assertEquals(3, result.getInt(PAGE));
+    assertEquals(50, result.getInt(LIMIT));
+    assertEquals(1404172800000L, result.getLong(SINCE));
+    assertEquals(47.6062, result.getDouble(LAT), 0.0);
+    assertEquals(-122.3321, result.getDouble(LON), 0.0);
+    assertEquals("coffee", result.getParsedValue(QUERY));
+    assertEquals("desc", result.getParsedValue(SORT));
+  }
+
+  @Test
+  public void allocatesNothingInSteadyState() throws ValidationException {
+    // the first rounds may allocate while the code is interpreted or being compiled, so
+    // a round that allocates nothing at all is enough; any allocation per call would
+    // show up in every round
+    long overhead = measure(0);
+    long allocated = 0;
+    for (int round = 0; round < MAX_ROUNDS; ++round) {
+      allocated = measure(CALLS_PER_ROUND) - overhead;
+      if (allocated <= 0) {
+        return;
+      }
+    }
+    fail("parseInto allocated " + allocated + " bytes in " + CALLS_PER_ROUND + " calls ("
+        + (double)allocated / CALLS_PER_ROUND + " bytes per call) in the last of " + MAX_ROUNDS
+        + " rounds");
+  }
+
+  /**
+   * @return the number of bytes this thread allocated while parsing the values the given
+   *         number of times
+   */
+  private long measure(int calls) throws ValidationException {
+    long sum = 0;
+    long before = threads.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < calls; ++i) {
+      sum += FORM.parseInto(values, buffer).getInt(LIMIT);
+    }
+    long after = threads.getThreadAllocatedBytes(threadId);
+    assertEquals(50L * calls, sum);
+    return after - before;
+  }
+
+}
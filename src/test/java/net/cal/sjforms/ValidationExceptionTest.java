@@ -0,0 +1,80 @@
+package net.cal.sjforms;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that {@link ValidationException} and {@link FormValidationException} survive
+ * Java serialization with their field names, values and messages intact.
+ */
+public class ValidationExceptionTest {
+
+  @Test
+  public void serializesException() throws Exception {
+    ValidationException e = roundTrip(new ValidationException("f", "x", "bad"));
+    assertEquals("f", e.getFieldName());
+    assertEquals("x", e.getValue());
+    assertEquals("Value 'x' for field 'f': bad", e.getMessage());
+    assertEquals("bad", e.getError().getReason());
+  }
+
+  @Test
+  public void serializesExceptionWithoutValue() throws Exception {
+    ValidationException e = roundTrip(new ValidationException("f", "is required"));
+    assertEquals("f", e.getFieldName());
+    assertNull(e.getValue());
+    assertEquals("Field 'f': is required", e.getMessage());
+  }
+
+  @Test
+  public void serializesUnserializableValueAndDetailAsStrings() throws Exception {
+    Object value = new Object() {
+      @Override
+      public String toString() {
+        return "thing";
+      }
+    };
+    Object detail = new Object() {
+      @Override
+      public String toString() {
+        return "[a, b]";
+      }
+    };
+    ValidationError error = new ValidationError("f", value, "must be one of ", detail);
+    ValidationException e = roundTrip(error.toException());
+    assertEquals("thing", e.getValue());
+    assertEquals(error.getMessage(), e.getMessage());
+    assertEquals("must be one of ", e.getError().getReason());
+  }
+
+  @Test
+  public void serializesFormException() throws Exception {
+    FormValidationException e = roundTrip(new FormValidationException(
+        Collections.<Field, ValidationException>emptyMap(),
+        Arrays.asList(new ValidationException("x", "1", "unknown parameter"))));
+    assertEquals(1, e.getInputFailures().size());
+    assertEquals("Value '1' for field 'x': unknown parameter", e.getInputFailures().get(0).getMessage());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T roundTrip(T object) throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(object);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return (T)in.readObject();
+    }
+  }
+
+}
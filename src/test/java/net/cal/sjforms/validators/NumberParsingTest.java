@@ -0,0 +1,258 @@
+package net.cal.sjforms.validators;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the parsers of {@link NumberParsing} accept exactly the inputs that
+ * {@link Integer#parseInt(String)}, {@link Long#parseLong(String)},
+ * {@link Double#parseDouble(String)} and {@link Float#parseFloat(String)} accept, and
+ * give bit-for-bit the same results. Inputs are edge cases plus random strings from a
+ * fixed seed: mutations of well-formed numbers, decimal strings of every length and
+ * exponent range, and values next to the rounding boundaries of doubles and floats.
+ */
+public class NumberParsingTest {
+
+  private static final String[] EDGE_CASES = {
+      "", " ", "+", "-", "0", "-0", "+0", "00", "007", "1", "-1", "+1", "++1", "--1", "+-1",
+      "1 ", " 1", "\t1", "1\n", "1_000", "1,000", "0x10", "0X10", "1L", "1l",
+      "\u0661\u0662\u0663", "-\u0967", "\uff11", "\u00bd", "1\u0660", "\ud835\udfcf",
+      "2147483647", "2147483648", "-2147483648", "-2147483649", "4294967296", "-4294967296",
+      "9223372036854775807", "9223372036854775808", "-9223372036854775808", "-9223372036854775809",
+      "99999999999999999999", "-99999999999999999999", "000000000000000000000000001",
+      ".", "-.", "1.", ".5", "-.5", "+.5", "1.5", "1..5", "1.5.", "e5", "1e", "1e+", "1e-",
+      "1e5", "1E5", "1e+5", "1e-5", "1e05", "1.e5", ".e5", "1e5.5", "1e5e5",
+      "1d", "1D", "1f", "1F", "1.5d", "1.5f", "1e5d", "1df", "d", "f", ".d", "1 d", "1d ",
+      " 1.5 ", "\u00001.5", "1.5\u0000", "\u001f1", "1\u00a0", "\u20031",
+      "NaN", "-NaN", "+NaN", "nan", "NaNd", " NaN ", "Infinity", "-Infinity", "+Infinity",
+      "infinity", "Inf", "Infinityd", " -Infinity\t",
+      "0x1p0", "0x1P0", "0x1.8p1", "-0x1.fffffffffffffp1023", "0x1p-1074", "0x1p-1075",
+      "0x.8p1", "0x1", "0x1p", "0xp1", "0x1.p1", "0x1p1f", "0x1p1d", "0X1P+1", "0x1p-1",
+      "0x0.0000000000001p-1022", "0x1.000000000000080000000001p0", "0x1.0000010000000001p0",
+      "1e308", "1.7976931348623157e308", "1.7976931348623158e308", "1.7976931348623159e308",
+      "1e309", "1e400", "-1e400", "1e-324", "2e-324", "2.4703282292062327e-324",
+      "2.4703282292062328e-324", "4.9e-324", "4.9406564584124654e-324", "1e-400",
+      "2.2250738585072011e-308", "2.2250738585072012e-308", "2.2250738585072014e-308",
+      "3.4028235e38", "3.4028236e38", "3.4028235677973366e38", "3.40282357e38", "1e39",
+      "1.4e-45", "1.401298464324817e-45", "7.006492321624085e-46", "7.006492321624086e-46",
+      "1e-46", "1.17549435e-38", "1.1754942e-38",
+      "9007199254740993", "9007199254740993.0000000000000000001", "9007199254740992.9999999999999999",
+      "16777217", "16777217.000000000000001", "16777216.999999999999999", "33554434.999999999",
+      "0.1", "0.2", "0.3", "123456789012345678", "1234567890123456789", "12345678901234567890",
+      "0.000000000000000000000000000000000000000000000000000000001", "1e-2147483648",
+      "1e2147483647", "1e2147483648", "1e-2147483649", "1e99999999999999999999",
+      "1e-99999999999999999999", "0e99999999999", "0.0e-99999999999",
+      "1" + zeros(400), "0." + zeros(400) + "1", "1" + zeros(400) + "e-400",
+      "0." + zeros(300) + "49406564584124654e-24", "1." + zeros(30) + "1"
+  };
+
+  private static final char[] ALPHABET = "0123456789012345678901234567890123456789+-.eEdDfFxXpP aNIy\t".toCharArray();
+
+  @Test
+  public void edgeCases() {
+    for (String s : EDGE_CASES) {
+      checkAll(s);
+    }
+  }
+
+  @Test
+  public void mutatedNumbers() {
+    Random random = new Random(42);
+    for (int i = 0; i < 50000; ++i) {
+      checkAll(mutate(random, sample(random), random.nextInt(3)));
+    }
+  }
+
+  @Test
+  public void randomStrings() {
+    Random random = new Random(43);
+    for (int i = 0; i < 50000; ++i) {
+      char[] chars = new char[random.nextInt(12)];
+      for (int j = 0; j < chars.length; ++j) {
+        chars[j] = ALPHABET[random.nextInt(ALPHABET.length)];
+      }
+      checkAll(new String(chars));
+    }
+  }
+
+  @Test
+  public void decimalStrings() {
+    Random random = new Random(44);
+    for (int i = 0; i < 50000; ++i) {
+      StringBuilder s = new StringBuilder();
+      if (random.nextBoolean()) {
+        s.append(random.nextBoolean() ? '-' : '+');
+      }
+      appendDigits(random, s, random.nextInt(25));
+      if (random.nextBoolean()) {
+        s.append('.');
+        appendDigits(random, s, random.nextInt(25));
+      }
+      if (random.nextBoolean()) {
+        s.append('e').append(random.nextInt(700) - 350);
+      }
+      checkAll(s.toString());
+    }
+  }
+
+  @Test
+  public void roundingBoundaries() {
+    Random random = new Random(45);
+    for (int i = 0; i < 5000; ++i) {
+      // halfway between two adjacent doubles, and just either side of it
+      double d = Double.longBitsToDouble(random.nextLong() & Long.MAX_VALUE);
+      if (!Double.isNaN(d) && !Double.isInfinite(Math.nextUp(d))) {
+        checkBoundary(new BigDecimal(d).add(new BigDecimal(Math.nextUp(d))).divide(BigDecimal.valueOf(2)));
+      }
+      // the same for floats
+      float f = Float.intBitsToFloat(random.nextInt() & Integer.MAX_VALUE);
+      if (!Float.isNaN(f) && !Float.isInfinite(Math.nextUp(f))) {
+        checkBoundary(new BigDecimal(f).add(new BigDecimal(Math.nextUp(f))).divide(BigDecimal.valueOf(2)));
+      }
+    }
+  }
+
+  @Test
+  public void shortestRepresentations() {
+    Random random = new Random(46);
+    for (int i = 0; i < 20000; ++i) {
+      checkAll(Double.toString(Double.longBitsToDouble(random.nextLong())));
+      checkAll(Float.toString(Float.intBitsToFloat(random.nextInt())));
+      checkAll(Long.toString(random.nextLong()));
+      checkAll(Integer.toString(random.nextInt()));
+      checkAll(Integer.toString(random.nextInt()) + random.nextInt(1000));
+    }
+  }
+
+  private static void checkBoundary(BigDecimal halfway) {
+    checkAll(halfway.toString());
+    // truncated to 17 to 21 significant digits, which lands just below the boundary, and
+    // then with the last digit raised, which lands just above it
+    String digits = halfway.unscaledValue().toString();
+    for (int n = 17; n <= 21 && n < digits.length(); ++n) {
+      int exponent = digits.length() - halfway.scale() - n;
+      checkAll(digits.substring(0, n) + "e" + exponent);
+      checkAll(new BigDecimal(digits.substring(0, n)).add(BigDecimal.ONE) + "e" + exponent);
+    }
+  }
+
+  private static void checkAll(String s) {
+    checkInt(s);
+    checkLong(s);
+    checkDouble(s);
+    checkFloat(s);
+  }
+
+  private static void checkInt(String s) {
+    long expected;
+    try {
+      expected = Integer.parseInt(s);
+    } catch (NumberFormatException e) {
+      expected = NumberParsing.FAILED;
+    }
+    assertEquals("parseInt(\"" + s + "\")", expected, NumberParsing.parseInt(s));
+    long inRange = expected >= Short.MIN_VALUE && expected <= Short.MAX_VALUE ? expected : NumberParsing.FAILED;
+    assertEquals("parseInRange(\"" + s + "\")", inRange, NumberParsing.parseInRange(s, Short.MIN_VALUE, Short.MAX_VALUE));
+  }
+
+  private static void checkLong(String s) {
+    Long expected;
+    try {
+      expected = Long.parseLong(s);
+    } catch (NumberFormatException e) {
+      expected = null;
+    }
+    assertEquals("isLong(\"" + s + "\")", expected != null, NumberParsing.isLong(s));
+    assertEquals("parseLong(\"" + s + "\")", expected != null ? (long)expected : NumberParsing.FAILED, NumberParsing.parseLong(s));
+  }
+
+  private static void checkDouble(String s) {
+    Double expected;
+    try {
+      expected = Double.parseDouble(s);
+    } catch (NumberFormatException e) {
+      expected = null;
+    }
+    double actual = NumberParsing.parseDouble(s);
+    if (expected == null) {
+      assertEquals("parseDouble(\"" + s + "\") should fail", Double.NaN, actual, 0.0);
+      assertEquals("isNaN(\"" + s + "\")", false, NumberParsing.isNaN(s));
+    } else {
+      assertEquals("parseDouble(\"" + s + "\")", Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual));
+      assertEquals("isNaN(\"" + s + "\")", expected.isNaN(), NumberParsing.isNaN(s));
+    }
+  }
+
+  private static void checkFloat(String s) {
+    Float expected;
+    try {
+      expected = Float.parseFloat(s);
+    } catch (NumberFormatException e) {
+      expected = null;
+    }
+    float actual = NumberParsing.parseFloat(s);
+    if (expected == null) {
+      assertEquals("parseFloat(\"" + s + "\") should fail", Float.NaN, actual, 0.0f);
+    } else {
+      assertEquals("parseFloat(\"" + s + "\")", Float.floatToRawIntBits(expected), Float.floatToRawIntBits(actual));
+    }
+  }
+
+  private static String sample(Random random) {
+    switch (random.nextInt(4)) {
+      case 0:
+        return EDGE_CASES[random.nextInt(EDGE_CASES.length)];
+      case 1:
+        return Double.toString(Double.longBitsToDouble(random.nextLong()));
+      case 2:
+        return Float.toString(Float.intBitsToFloat(random.nextInt()));
+      default:
+        return Long.toString(random.nextLong() >> random.nextInt(64));
+    }
+  }
+
+  /**
+   * @return the string with the given number of random single-character insertions,
+   *         deletions or replacements
+   */
+  private static String mutate(Random random, String s, int count) {
+    StringBuilder result = new StringBuilder(s);
+    for (int i = 0; i < count; ++i) {
+      int at = random.nextInt(result.length() + 1);
+      char c = ALPHABET[random.nextInt(ALPHABET.length)];
+      switch (random.nextInt(3)) {
+        case 0:
+          result.insert(at, c);
+          break;
+        case 1:
+          if (at < result.length()) {
+            result.deleteCharAt(at);
+          }
+          break;
+        default:
+          if (at < result.length()) {
+            result.setCharAt(at, c);
+          }
+      }
+    }
+    return result.toString();
+  }
+
+  private static void appendDigits(Random random, StringBuilder s, int count) {
+    for (int i = 0; i < count; ++i) {
+      s.append((char)('0' + random.nextInt(10)));
+    }
+  }
+
+  private static String zeros(int n) {
+    char[] chars = new char[n];
+    Arrays.fill(chars, '0');
+    return new String(chars);
+  }
+
+}